@@ -0,0 +1,23 @@
+# ============================
+# 运行基准测试并与基线对比
+# 用法: .\run-benchmarks.ps1 [JMH参数...]      例: .\run-benchmarks.ps1 BuzzBenchmark
+# 更新基线: Copy-Item target\current.json baseline\baseline.json
+# ============================
+$ErrorActionPreference = "Stop"
+Set-Location $PSScriptRoot
+$threshold = if ($env:BENCH_THRESHOLD) { $env:BENCH_THRESHOLD } else { "10" }
+
+Write-Host "[1/3] 安装后端classes包..." -ForegroundColor Cyan
+mvn -B -q -f ..\pom.xml install -DskipTests
+if ($LASTEXITCODE -ne 0) { exit $LASTEXITCODE }
+
+Write-Host "[2/3] 构建并运行基准..." -ForegroundColor Cyan
+mvn -B -q package
+if ($LASTEXITCODE -ne 0) { exit $LASTEXITCODE }
+java -jar target\benchmarks.jar -rf json -rff target\current.json @args
+if ($LASTEXITCODE -ne 0) { exit $LASTEXITCODE }
+
+Write-Host "[3/3] 与基线对比..." -ForegroundColor Cyan
+java "-Dstdout.encoding=UTF-8" -cp target\benchmarks.jar com.qdq.benchmark.BenchmarkCompare `
+    baseline\baseline.json target\current.json $threshold
+exit $LASTEXITCODE
@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# ============================
+# 运行基准测试并与基线对比
+# 用法: ./run-benchmarks.sh [JMH参数...]      例: ./run-benchmarks.sh BuzzBenchmark
+# 更新基线: cp target/current.json baseline/baseline.json
+# 回归阈值: BENCH_THRESHOLD=10 (百分比)
+# ============================
+set -euo pipefail
+cd "$(dirname "$0")"
+
+echo "[1/3] 安装后端classes包..."
+mvn -B -q -f ../pom.xml install -DskipTests
+
+echo "[2/3] 构建并运行基准..."
+mvn -B -q package
+java -jar target/benchmarks.jar -rf json -rff target/current.json "$@"
+
+echo "[3/3] 与基线对比..."
+java -Dstdout.encoding=UTF-8 -cp target/benchmarks.jar com.qdq.benchmark.BenchmarkCompare \
+    baseline/baseline.json target/current.json "${BENCH_THRESHOLD:-10}"
@@ -0,0 +1,95 @@
+package com.qdq.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 基准结果对比报告
+ * 读取两份JMH JSON结果(-rf json)，按 基准方法+参数 对齐输出对比表；
+ * 平均耗时类结果变慢超过阈值视为回归，存在回归时以退出码1结束
+ *
+ * 用法: java -cp benchmarks.jar com.qdq.benchmark.BenchmarkCompare baseline.json current.json [阈值百分比，默认10]
+ */
+public class BenchmarkCompare {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BenchmarkCompare <baseline.json> <current.json> [threshold%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Result> baseline = load(new File(args[0]));
+        Map<String, Result> current = load(new File(args[1]));
+
+        System.out.printf("%-62s %14s %14s %9s  %s%n", "基准(参数)", "基线", "当前", "变化", "");
+        int regressions = 0;
+        Set<String> keys = new TreeSet<>(baseline.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            Result before = baseline.get(key);
+            Result after = current.get(key);
+            if (before == null || after == null) {
+                System.out.printf("%-62s %14s %14s %9s  %s%n", key,
+                        before != null ? format(before) : "-", after != null ? format(after) : "-", "",
+                        before == null ? "新增" : "缺失");
+                continue;
+            }
+            // 平均耗时越小越好，吞吐量越大越好，统一换算为"变慢"百分比
+            double change = (after.score - before.score) / before.score * 100;
+            double slowdown = after.lowerIsBetter() ? change : -change;
+            // 变化落在两次误差范围之内时不判定回归
+            boolean withinError = Math.abs(after.score - before.score) <= before.error + after.error;
+            String flag = "";
+            if (slowdown > threshold && !withinError) {
+                flag = "回归";
+                regressions++;
+            } else if (slowdown < -threshold && !withinError) {
+                flag = "提升";
+            }
+            System.out.printf("%-62s %14s %14s %+8.1f%%  %s%n", key, format(before), format(after), change, flag);
+        }
+        System.out.printf("%n阈值 %.1f%%，回归 %d 项%n", threshold, regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Result> load(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            String benchmark = node.get("benchmark").asText().replace("com.qdq.benchmark.", "");
+            StringBuilder key = new StringBuilder(benchmark);
+            JsonNode params = node.get("params");
+            if (params != null) {
+                List<String> names = new ArrayList<>();
+                params.fieldNames().forEachRemaining(names::add);
+                Collections.sort(names);
+                key.append('(');
+                for (int i = 0; i < names.size(); i++) {
+                    key.append(i > 0 ? "," : "").append(names.get(i)).append('=').append(params.get(names.get(i)).asText());
+                }
+                key.append(')');
+            }
+            JsonNode metric = node.get("primaryMetric");
+            double error = metric.get("scoreError").isNumber() ? metric.get("scoreError").asDouble() : 0;
+            results.put(key.toString(), new Result(node.get("mode").asText(), metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    private static String format(Result result) {
+        return String.format("%.3f %s", result.score, result.unit);
+    }
+
+    private record Result(String mode, double score, double error, String unit) {
+
+        boolean lowerIsBetter() {
+            return "avgt".equals(mode) || "sample".equals(mode) || "ss".equals(mode);
+        }
+    }
+}
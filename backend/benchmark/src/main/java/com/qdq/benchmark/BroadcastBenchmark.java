@@ -0,0 +1,65 @@
+package com.qdq.benchmark;
+
+import com.qdq.benchmark.support.BenchmarkMetrics;
+import com.qdq.benchmark.support.Fixtures;
+import com.qdq.benchmark.support.StubWebSocketSession;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.websocket.WebSocketMessageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 广播热点路径基准: 消息序列化与向场次全部连接扇出
+ * 连接为桩会话(只累计字节数)，participants=1 时近似为单次序列化开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+
+    @Param({"1", "100", "1000", "10000"})
+    int participants;
+
+    WebSocketMessageService messageService;
+    QuizQuestion question;
+    List<Map<String, Object>> buzzResults;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messageService = new WebSocketMessageService(BenchmarkMetrics.create(), new QuestionTracer());
+        for (int i = 0; i < participants; i++) {
+            StubWebSocketSession session = new StubWebSocketSession("ws-" + i);
+            messageService.registerSession(session);
+            messageService.subscribeSession(session.getId(), Fixtures.SESSION_ID, (long) i + 1);
+        }
+        question = Fixtures.question();
+        buzzResults = new ArrayList<>();
+        for (int rank = 1; rank <= 5; rank++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("rank", rank);
+            result.put("memberId", "user:" + rank);
+            result.put("serverTime", 1_700_000_000_000L + rank * 7);
+            result.put("isFirst", rank == 1);
+            buzzResults.add(result);
+        }
+    }
+
+    @Benchmark
+    public void questionPush() {
+        messageService.broadcastQuestion(Fixtures.SESSION_ID, question);
+    }
+
+    @Benchmark
+    public void buzzResult() {
+        messageService.broadcastBuzzResult(Fixtures.SESSION_ID, Fixtures.QUESTION_ID, buzzResults);
+    }
+}
@@ -0,0 +1,133 @@
+package com.qdq.benchmark;
+
+import com.qdq.benchmark.support.BenchmarkAudit;
+import com.qdq.benchmark.support.BenchmarkEventLog;
+import com.qdq.benchmark.support.BenchmarkMetrics;
+import com.qdq.benchmark.support.Fixtures;
+import com.qdq.benchmark.support.Stubs;
+import com.qdq.entity.QuizSession;
+import com.qdq.live.LiveStateStore;
+import com.qdq.live.LocalLiveStateStore;
+import com.qdq.live.SubmissionDeduplicator;
+import com.qdq.mapper.QuizBuzzLogMapper;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.metrics.QuizMetrics;
+import com.qdq.service.AuditLogService;
+import com.qdq.service.BuzzService;
+import com.qdq.service.SessionEventLog;
+import com.qdq.service.SessionService;
+import com.qdq.websocket.WebSocketMessageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抢答热点路径基准: 抢答受理(buzz)与窗口结束后的结果判定排名(processBuzzResult)
+ * 实时状态存储为进程内实现，数据库为桩，测量的是业务代码本身的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuzzBenchmark {
+
+    /**
+     * 被测抢答服务
+     */
+    @State(Scope.Benchmark)
+    public static class BuzzState {
+
+        LiveStateStore liveStateStore;
+        BuzzService buzzService;
+        AuditLogService auditLogService;
+        SessionEventLog sessionEventLog;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            liveStateStore = new LocalLiveStateStore();
+            sessionEventLog = BenchmarkEventLog.create();
+            SubmissionDeduplicator submissionDeduplicator = new SubmissionDeduplicator();
+            QuizSession session = Fixtures.runningSession();
+            SessionService sessionService = new SessionService(null, liveStateStore, null, sessionEventLog,
+                    submissionDeduplicator) {
+                @Override
+                public QuizSession getById(Serializable id) {
+                    return session;
+                }
+            };
+            QuizBuzzLogMapper buzzLogMapper = Stubs.mapper(QuizBuzzLogMapper.class, Map.of("insert", args -> 1));
+            QuizMetrics quizMetrics = BenchmarkMetrics.create();
+            QuestionTracer tracer = new QuestionTracer();
+            auditLogService = BenchmarkAudit.create();
+            buzzService = new BuzzService(liveStateStore, buzzLogMapper, sessionService,
+                    new WebSocketMessageService(quizMetrics, tracer), quizMetrics, tracer, auditLogService, sessionEventLog,
+                    submissionDeduplicator);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            auditLogService.shutdown();
+            sessionEventLog.shutdown();
+        }
+    }
+
+    /**
+     * 抢答受理: 参赛者轮流提交，每轮10000人后重新开放题目(保证每次都是首次抢答)
+     */
+    @State(Scope.Thread)
+    public static class AdmissionState {
+
+        long nextUserId;
+
+        long nextUser(BuzzState buzz) {
+            nextUserId = nextUserId % 10_000 + 1;
+            if (nextUserId == 1) {
+                buzz.buzzService.openBuzz(Fixtures.SESSION_ID, Fixtures.QUESTION_ID);
+            }
+            return nextUserId;
+        }
+    }
+
+    /**
+     * 结果判定: 每次调用前重新放入指定人数的抢答记录(均在判定窗口内)
+     */
+    @State(Scope.Benchmark)
+    public static class RankingState {
+
+        @Param({"10", "100", "1000"})
+        int buzzers;
+
+        @Setup(Level.Invocation)
+        public void fill(BuzzState buzz) {
+            buzz.liveStateStore.resetBuzz(Fixtures.SESSION_ID, Fixtures.QUESTION_ID);
+            long baseTime = System.currentTimeMillis();
+            for (int i = 0; i < buzzers; i++) {
+                buzz.liveStateStore.addBuzz(Fixtures.SESSION_ID, Fixtures.QUESTION_ID, "user:" + (i + 1),
+                        baseTime + (long) i * 100 / buzzers);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> admission(BuzzState buzz, AdmissionState admission) {
+        return buzz.buzzService.buzz(Fixtures.SESSION_ID, Fixtures.QUESTION_ID, admission.nextUser(buzz), null,
+                System.nanoTime());
+    }
+
+    /**
+     * 客户端重试: 同一参与者重复抢答，按已记录的结果应答
+     */
+    @Benchmark
+    public Map<String, Object> retry(BuzzState buzz) {
+        return buzz.buzzService.buzz(Fixtures.SESSION_ID, Fixtures.QUESTION_ID, 1L, null, System.nanoTime());
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> ranking(BuzzState buzz, RankingState ranking) {
+        return buzz.buzzService.processBuzzResult(Fixtures.SESSION_ID, Fixtures.QUESTION_ID);
+    }
+}
@@ -0,0 +1,56 @@
+package com.qdq.benchmark;
+
+import com.qdq.benchmark.support.Fixtures;
+import com.qdq.benchmark.support.Stubs;
+import com.qdq.entity.LeaderboardConfig;
+import com.qdq.entity.QuizSessionParticipant;
+import com.qdq.mapper.QuizSessionParticipantMapper;
+import com.qdq.service.LeaderboardService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 排行榜构建基准: 排序并组装实时排行榜数据(参赛者列表由桩直接返回)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int participants;
+
+    @Param({"1", "2"})
+    int sortType;
+
+    LeaderboardService leaderboardService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<QuizSessionParticipant> rows = Fixtures.participants(participants);
+        QuizSessionParticipantMapper participantMapper = Stubs.mapper(QuizSessionParticipantMapper.class,
+                Map.of("selectList", args -> new ArrayList<>(rows)));
+        LeaderboardConfig config = new LeaderboardConfig();
+        config.setSessionId(Fixtures.SESSION_ID);
+        config.setLeaderboardName("实时排行榜");
+        config.setSortType(sortType);
+        leaderboardService = new LeaderboardService(participantMapper) {
+            @Override
+            public LeaderboardConfig getBySessionId(Long sessionId) {
+                return config;
+            }
+        };
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> build() {
+        return leaderboardService.getRealTimeLeaderboard(Fixtures.SESSION_ID);
+    }
+}
@@ -0,0 +1,125 @@
+package com.qdq.benchmark;
+
+import com.qdq.benchmark.support.Fixtures;
+import com.qdq.config.RedisConfig;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.live.LiveStateCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点Redis值的编解码开销: 带类型信息的JSON(RedisConfig默认序列化器) 对比 LiveStateCodec 二进制编码
+ * 每次操作为一次编码加一次解码；各格式的字节数在启动时打印
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisCodecBenchmark {
+
+    Jackson2JsonRedisSerializer<Object> json;
+    List<Map<String, Object>> buzzResult;
+    Map<String, Object> sessionState;
+    Map<String, Object> progress;
+    QuizQuestion question;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = RedisConfig.jsonSerializer();
+        buzzResult = new ArrayList<>();
+        long baseTime = System.currentTimeMillis();
+        for (int rank = 1; rank <= 10; rank++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("rank", rank);
+            result.put("memberId", "user:" + (10_000 + rank));
+            result.put("serverTime", baseTime + rank * 7);
+            result.put("isFirst", rank == 1);
+            buzzResult.add(result);
+        }
+        sessionState = new HashMap<>();
+        sessionState.put("id", Fixtures.SESSION_ID);
+        sessionState.put("status", 2);
+        sessionState.put("currentQuestionIndex", 5);
+        sessionState.put("questionCount", 30);
+        progress = new HashMap<>();
+        progress.put("userId", 10_001L);
+        progress.put("answeredCount", 12);
+        progress.put("timestamp", baseTime);
+        question = Fixtures.question();
+
+        int stateJsonBytes = 0;
+        for (Map.Entry<String, Object> field : sessionState.entrySet()) {
+            stateJsonBytes += field.getKey().length() + json.serialize(field.getValue()).length;
+        }
+        System.out.printf("%n%-14s %8s %8s%n", "字节数", "JSON", "二进制");
+        System.out.printf("%-14s %8d %8d%n", "buzzResult", json.serialize(buzzResult).length,
+                LiveStateCodec.encodeBuzzResult(buzzResult).length);
+        System.out.printf("%-14s %8d %8d%n", "sessionState", stateJsonBytes,
+                LiveStateCodec.encodeSessionState(sessionState).length);
+        System.out.printf("%-14s %8d %8d%n", "progress", json.serialize(progress).length,
+                LiveStateCodec.encodeProgress(progress).length);
+        System.out.printf("%-14s %8d %8d%n", "question", json.serialize(question).length,
+                LiveStateCodec.encodeQuestion(question).length);
+    }
+
+    /**
+     * 抢答结果(10名)
+     */
+    @Benchmark
+    public Object buzzResultJson() {
+        return json.deserialize(json.serialize(buzzResult));
+    }
+
+    @Benchmark
+    public Object buzzResultBinary() {
+        return LiveStateCodec.decodeBuzzResult(LiveStateCodec.encodeBuzzResult(buzzResult));
+    }
+
+    /**
+     * 场次状态(原为Hash，每个字段单独序列化)
+     */
+    @Benchmark
+    public Object sessionStateJson() {
+        Map<String, Object> decoded = new HashMap<>();
+        for (Map.Entry<String, Object> field : sessionState.entrySet()) {
+            decoded.put(field.getKey(), json.deserialize(json.serialize(field.getValue())));
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public Object sessionStateBinary() {
+        return LiveStateCodec.decodeSessionState(LiveStateCodec.encodeSessionState(sessionState));
+    }
+
+    /**
+     * 单个用户的答题进度(Hash字段值)
+     */
+    @Benchmark
+    public Object progressJson() {
+        return json.deserialize(json.serialize(progress));
+    }
+
+    @Benchmark
+    public Object progressBinary() {
+        return LiveStateCodec.decodeProgress("10001", LiveStateCodec.encodeProgress(progress));
+    }
+
+    /**
+     * 当前题目缓存
+     */
+    @Benchmark
+    public Object questionJson() {
+        return json.deserialize(json.serialize(question));
+    }
+
+    @Benchmark
+    public Object questionBinary() {
+        return LiveStateCodec.decodeQuestion(LiveStateCodec.encodeQuestion(question));
+    }
+}
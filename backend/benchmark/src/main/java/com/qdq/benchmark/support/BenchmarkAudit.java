@@ -0,0 +1,22 @@
+package com.qdq.benchmark.support;
+
+import com.qdq.service.AuditLogService;
+
+/**
+ * 与生产配置一致的审计日志服务(写入 target/audit，计入抢答路径开销)
+ */
+public final class BenchmarkAudit {
+
+    private BenchmarkAudit() {
+    }
+
+    public static AuditLogService create() {
+        AuditLogService auditLogService = new AuditLogService();
+        Stubs.setField(auditLogService, "enabled", true);
+        Stubs.setField(auditLogService, "auditPath", "target/audit");
+        Stubs.setField(auditLogService, "queueCapacity", 65536);
+        Stubs.setField(auditLogService, "flushIntervalMs", 1000L);
+        auditLogService.init();
+        return auditLogService;
+    }
+}
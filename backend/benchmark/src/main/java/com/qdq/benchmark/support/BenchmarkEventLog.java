@@ -0,0 +1,22 @@
+package com.qdq.benchmark.support;
+
+import com.qdq.service.SessionEventLog;
+
+/**
+ * 与生产配置一致的场次事件日志(写入 target/eventlog，计入抢答路径开销)
+ */
+public final class BenchmarkEventLog {
+
+    private BenchmarkEventLog() {
+    }
+
+    public static SessionEventLog create() {
+        SessionEventLog sessionEventLog = new SessionEventLog();
+        Stubs.setField(sessionEventLog, "enabled", true);
+        Stubs.setField(sessionEventLog, "logPath", "target/eventlog");
+        Stubs.setField(sessionEventLog, "segmentBytes", 16 * 1024 * 1024);
+        Stubs.setField(sessionEventLog, "syncIntervalMs", 20L);
+        sessionEventLog.init();
+        return sessionEventLog;
+    }
+}
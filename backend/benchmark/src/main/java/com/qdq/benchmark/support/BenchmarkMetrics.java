@@ -0,0 +1,43 @@
+package com.qdq.benchmark.support;
+
+import com.qdq.metrics.QuizMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 与 application.yml 相同配置的指标(Prometheus注册表，广播计时器输出直方图；抢答受理与单连接发送为 LatencyHistogram)，
+ * 使指标开销计入测量
+ */
+public final class BenchmarkMetrics {
+
+    private static final Set<String> HISTOGRAM_METERS = Set.of(
+            "quiz.buzz.result.latency", "quiz.ws.broadcast");
+
+    private BenchmarkMetrics() {
+    }
+
+    public static QuizMetrics create() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HISTOGRAM_METERS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofNanos(10_000).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        });
+        return new QuizMetrics(registry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.qdq.benchmark.support;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Servlet输出流桩: 只累计写出的字节数，不做网络IO
+ */
+public class CountingServletOutputStream extends ServletOutputStream {
+
+    private long writtenBytes;
+
+    @Override
+    public void write(int b) {
+        writtenBytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        writtenBytes += len;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+    }
+}
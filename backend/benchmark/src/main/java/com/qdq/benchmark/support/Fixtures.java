@@ -0,0 +1,87 @@
+package com.qdq.benchmark.support;
+
+import com.qdq.entity.QuizQuestion;
+import com.qdq.entity.QuizSession;
+import com.qdq.entity.QuizSessionParticipant;
+
+import java.util.*;
+
+/**
+ * 基准测试数据(固定随机种子，保证每次运行数据一致)
+ */
+public final class Fixtures {
+
+    public static final long SESSION_ID = 1L;
+    public static final long QUESTION_ID = 1001L;
+
+    private Fixtures() {
+    }
+
+    /**
+     * 进行中的场次，当前题目为 QUESTION_ID
+     */
+    public static QuizSession runningSession() {
+        QuizSession session = new QuizSession();
+        session.setId(SESSION_ID);
+        session.setName("基准测试场次");
+        session.setStatus(2);
+        session.setMode(1);
+        session.setQuestionIds(List.of(QUESTION_ID - 1, QUESTION_ID, QUESTION_ID + 1));
+        session.setCurrentQuestionIndex(1);
+        return session;
+    }
+
+    /**
+     * 典型的单选题(推题时下发的内容)
+     */
+    public static QuizQuestion question() {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(QUESTION_ID);
+        question.setBankId(1L);
+        question.setCategoryId(1L);
+        question.setType(1);
+        question.setTitle("我国第一部纪传体通史是哪一部？");
+        question.setContent("请从下列选项中选择正确答案。该书记载了从黄帝时代到汉武帝太初年间约三千年的历史。");
+        List<Map<String, Object>> options = new ArrayList<>();
+        String[] labels = {"A", "B", "C", "D"};
+        String[] texts = {"《史记》", "《汉书》", "《资治通鉴》", "《春秋》"};
+        for (int i = 0; i < labels.length; i++) {
+            Map<String, Object> option = new LinkedHashMap<>();
+            option.put("key", labels[i]);
+            option.put("value", texts[i]);
+            options.add(option);
+        }
+        question.setOptions(options);
+        question.setScore(10);
+        question.setDifficulty(2);
+        question.setTags(List.of("历史", "古代文学"));
+        question.setStatus(1);
+        question.setIsDisabled(0);
+        return question;
+    }
+
+    /**
+     * 参赛者(得分与答题数随机分布)
+     */
+    public static List<QuizSessionParticipant> participants(int count) {
+        Random random = new Random(42);
+        List<QuizSessionParticipant> participants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            QuizSessionParticipant participant = new QuizSessionParticipant();
+            participant.setId((long) i + 1);
+            participant.setSessionId(SESSION_ID);
+            participant.setUserId((long) i + 1);
+            participant.setUserName("选手" + (i + 1));
+            int answered = random.nextInt(50);
+            int correct = answered == 0 ? 0 : random.nextInt(answered + 1);
+            participant.setAnsweredCount(answered);
+            participant.setCorrectCount(correct);
+            participant.setWrongCount(answered - correct);
+            participant.setTotalScore(correct * 10);
+            participant.setBuzzCount(random.nextInt(20));
+            participant.setBuzzSuccessCount(random.nextInt(5));
+            participants.add(participant);
+        }
+        return participants;
+    }
+}
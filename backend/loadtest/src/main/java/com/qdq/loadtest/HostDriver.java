@@ -0,0 +1,84 @@
+package com.qdq.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 主持人驱动: 登录后按固定间隔推题，等待抢答窗口后触发判定
+ */
+public class HostDriver {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final LoadOptions options;
+    private final LatencyRecorder recorder;
+    private final HttpClient httpClient;
+    private String token;
+
+    public HostDriver(LoadOptions options, LatencyRecorder recorder, HttpClient httpClient) {
+        this.options = options;
+        this.recorder = recorder;
+        this.httpClient = httpClient;
+    }
+
+    public void login() throws IOException, InterruptedException {
+        JsonNode result = post("/api/auth/login",
+                Map.of("username", options.adminUsername, "password", options.adminPassword), "login");
+        token = result.path("data").path("token").asText(null);
+        if (token == null) {
+            throw new IllegalStateException("主持人登录失败: " + result.path("message").asText());
+        }
+        if (options.startSession) {
+            post("/api/sessions/" + options.sessionId + "/start", null, "start");
+        }
+    }
+
+    /**
+     * 推题并判定，直到截止时间
+     */
+    public void run(long deadlineNanos) throws InterruptedException {
+        while (System.nanoTime() < deadlineNanos) {
+            long roundStart = System.nanoTime();
+            try {
+                JsonNode question = post("/api/sessions/" + options.sessionId + "/next-question", null, "next_question");
+                long questionId = question.path("data").path("id").asLong(0);
+                if (questionId == 0) {
+                    System.out.println("推题失败(题目已推完或场次未开始): " + question.path("message").asText());
+                    return;
+                }
+                Thread.sleep(options.buzzWindowMs);
+                post("/api/sessions/" + options.sessionId + "/process-buzz/" + questionId, null, "process_buzz");
+            } catch (IOException e) {
+                recorder.increment("host.error: " + e.getMessage());
+            }
+            long elapsedMs = (System.nanoTime() - roundStart) / 1_000_000;
+            Thread.sleep(Math.max(0, options.questionIntervalMs - elapsedMs));
+        }
+    }
+
+    private JsonNode post(String path, Object body, String metric) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(options.httpUrl + path))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)));
+        if (token != null) {
+            builder.header("Authorization", token);
+        }
+        long startTime = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        recorder.record("host." + metric, System.nanoTime() - startTime);
+        if (response.statusCode() != 200) {
+            recorder.increment("host." + metric + ".http_" + response.statusCode());
+        }
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
@@ -0,0 +1,78 @@
+package com.qdq.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 延迟与计数统计(按指标名分别记录微秒级样本，结束时计算分位数)
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次延迟(纳秒)
+     */
+    public void record(String metric, long nanos) {
+        samples.computeIfAbsent(metric, k -> new Samples()).add(Math.max(0, nanos / 1000));
+    }
+
+    /**
+     * 计数加一
+     */
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long count(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value != null ? value.get() : 0;
+    }
+
+    /**
+     * 输出报告
+     */
+    public void print() {
+        System.out.printf("%n%-26s %9s %10s %10s %10s %10s %10s%n", "延迟指标", "样本数", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "平均(ms)");
+        new TreeMap<>(samples).forEach((metric, s) -> {
+            long[] values = s.snapshot();
+            if (values.length == 0) {
+                return;
+            }
+            Arrays.sort(values);
+            System.out.printf("%-26s %9d %10.2f %10.2f %10.2f %10.2f %10.2f%n", metric, values.length,
+                    percentile(values, 0.50), percentile(values, 0.99), percentile(values, 0.999),
+                    values[values.length - 1] / 1000.0, Arrays.stream(values).average().orElse(0) / 1000.0);
+        });
+        System.out.printf("%n%-40s %10s%n", "计数", "次数");
+        new TreeMap<>(counters).forEach((name, value) -> System.out.printf("%-40s %10d%n", name, value.get()));
+    }
+
+    private double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+
+    /**
+     * 可增长的long数组(单锁，记录频率远低于锁开销敏感的程度)
+     */
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.qdq.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压测参数(--名称=值)
+ */
+public class LoadOptions {
+
+    /** WebSocket地址 */
+    String wsUrl = "ws://localhost:8080/ws/quiz";
+
+    /** HTTP地址(主持人驱动时使用) */
+    String httpUrl = "http://localhost:8080";
+
+    /** 场次ID */
+    long sessionId = 1;
+
+    /** 模拟选手数 */
+    int clients = 500;
+
+    /** 每秒新建连接数 */
+    int connectRate = 200;
+
+    /** 持续时间(秒，从全部连接建立后开始计) */
+    int durationSeconds = 60;
+
+    /** 收到推题后在此时间内随机抢答(毫秒) */
+    int buzzSpreadMs = 200;
+
+    /** 参与抢答的选手比例 */
+    double buzzRatio = 1.0;
+
+    /** 提交答案的选手比例 */
+    double answerRatio = 0.3;
+
+    /** 心跳间隔(毫秒) */
+    int pingIntervalMs = 15000;
+
+    /** 模拟选手的起始用户ID */
+    long userIdBase = 100000;
+
+    /** 主持人账号(设置后由模拟器定时推题并判定抢答) */
+    String adminUsername;
+
+    String adminPassword;
+
+    /** 推题间隔(毫秒) */
+    int questionIntervalMs = 5000;
+
+    /** 推题后等待多久判定抢答(毫秒) */
+    int buzzWindowMs = 300;
+
+    /** 开始前先调用开始比赛接口 */
+    boolean startSession = false;
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                printUsage();
+                System.exit(0);
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            int index = arg.indexOf('=');
+            values.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+
+        LoadOptions options = new LoadOptions();
+        options.wsUrl = values.getOrDefault("ws-url", options.wsUrl);
+        options.httpUrl = values.getOrDefault("http-url", options.httpUrl);
+        options.sessionId = Long.parseLong(values.getOrDefault("session-id", String.valueOf(options.sessionId)));
+        options.clients = Integer.parseInt(values.getOrDefault("clients", String.valueOf(options.clients)));
+        options.connectRate = Integer.parseInt(values.getOrDefault("connect-rate", String.valueOf(options.connectRate)));
+        options.durationSeconds = Integer.parseInt(values.getOrDefault("duration", String.valueOf(options.durationSeconds)));
+        options.buzzSpreadMs = Integer.parseInt(values.getOrDefault("buzz-spread-ms", String.valueOf(options.buzzSpreadMs)));
+        options.buzzRatio = Double.parseDouble(values.getOrDefault("buzz-ratio", String.valueOf(options.buzzRatio)));
+        options.answerRatio = Double.parseDouble(values.getOrDefault("answer-ratio", String.valueOf(options.answerRatio)));
+        options.pingIntervalMs = Integer.parseInt(values.getOrDefault("ping-interval-ms", String.valueOf(options.pingIntervalMs)));
+        options.userIdBase = Long.parseLong(values.getOrDefault("user-id-base", String.valueOf(options.userIdBase)));
+        options.adminUsername = values.get("admin-username");
+        options.adminPassword = values.get("admin-password");
+        options.questionIntervalMs = Integer.parseInt(values.getOrDefault("question-interval-ms", String.valueOf(options.questionIntervalMs)));
+        options.buzzWindowMs = Integer.parseInt(values.getOrDefault("buzz-window-ms", String.valueOf(options.buzzWindowMs)));
+        options.startSession = Boolean.parseBoolean(values.getOrDefault("start", String.valueOf(options.startSession)));
+        return options;
+    }
+
+    static void printUsage() {
+        System.out.println("""
+                用法: java -jar loadtest.jar [--名称=值 ...]
+                  --ws-url=ws://localhost:8080/ws/quiz     WebSocket地址
+                  --http-url=http://localhost:8080         HTTP地址(主持人驱动)
+                  --session-id=1                           场次ID
+                  --clients=500                            模拟选手数
+                  --connect-rate=200                       每秒新建连接数
+                  --duration=60                            全部连接建立后的持续时间(秒)
+                  --buzz-spread-ms=200                     收到推题后在此时间内随机抢答
+                  --buzz-ratio=1.0                         参与抢答的选手比例
+                  --answer-ratio=0.3                       提交答案的选手比例
+                  --ping-interval-ms=15000                 心跳间隔
+                  --user-id-base=100000                    模拟选手起始用户ID
+                  --admin-username= --admin-password=      主持人账号，设置后由模拟器定时推题并判定
+                  --question-interval-ms=5000              推题间隔
+                  --buzz-window-ms=300                     推题后等待多久判定抢答
+                  --start=false                            开始前先调用开始比赛接口
+                """);
+    }
+}
@@ -0,0 +1,98 @@
+package com.qdq.loadtest;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 选手压测模拟器
+ * 按设定速率建立N个WebSocket连接并加入场次，收到推题后全部选手在设定时间内随机抢答、部分选手提交答案，
+ * 持续心跳；可选以主持人身份定时推题和判定。结束时输出建连速率、各事件延迟分位数与错误统计
+ *
+ * 用法: java -jar loadtest.jar --clients=2000 --session-id=1 --admin-username=admin --admin-password=xxx
+ */
+public class LoadSimulator {
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        LatencyRecorder recorder = new LatencyRecorder();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()), daemonThreads("client-timer-"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                        daemonThreads("ws-io-")))
+                .build();
+
+        HostDriver host = null;
+        if (options.adminUsername != null) {
+            host = new HostDriver(options, recorder, httpClient);
+            host.login();
+        }
+
+        // 1. 按速率建立连接
+        System.out.printf("建立连接: %d 个选手，速率 %d/s -> %s%n", options.clients, options.connectRate, options.wsUrl);
+        List<SimulatedClient> clients = new ArrayList<>(options.clients);
+        List<CompletableFuture<Void>> connecting = new ArrayList<>(options.clients);
+        long intervalNanos = 1_000_000_000L / Math.max(1, options.connectRate);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < options.clients; i++) {
+            long due = connectStart + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            SimulatedClient client = new SimulatedClient(options, options.userIdBase + i, recorder, scheduler);
+            clients.add(client);
+            connecting.add(client.connect(httpClient).exceptionally(e -> {
+                recorder.increment("connect.failed: " + rootCause(e).getClass().getSimpleName());
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(connecting.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.MINUTES);
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+        long connected = recorder.count("connect.success");
+        System.out.printf("连接完成: 成功 %d / %d，耗时 %.2fs，实际建连速率 %.1f/s%n",
+                connected, options.clients, connectSeconds, connected / connectSeconds);
+
+        // 2. 持续运行(有主持人账号时由模拟器推题)
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        if (host != null) {
+            host.run(deadline);
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+        // 留出时间接收最后一轮的应答
+        Thread.sleep(1000);
+
+        clients.forEach(SimulatedClient::close);
+        scheduler.shutdownNow();
+
+        System.out.printf("%n===== 压测结果: %d 选手, 持续 %ds =====%n", options.clients, options.durationSeconds);
+        System.out.printf("建连速率: %.1f/s (成功 %d, 失败 %d)%n", connected / connectSeconds, connected,
+                options.clients - connected);
+        recorder.print();
+        System.exit(0);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        ThreadFactory delegate = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = delegate.newThread(runnable);
+            thread.setName(prefix + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e.getCause() != null && e.getCause() != e) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,210 @@
+package com.qdq.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟选手: 建立连接并加入场次，收到推题后按配置抢答/答题，定时心跳
+ * 服务端对同一连接的消息按顺序处理并同步应答，因此按发送顺序匹配应答即可计算往返延迟
+ */
+public class SimulatedClient implements WebSocket.Listener {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** 请求事件 -> 应答事件 */
+    private static final Map<String, String> RESPONSES = Map.of(
+            "join_session", "join_success",
+            "client_buzz", "buzz_response",
+            "submit_answer", "answer_received",
+            "ping", "pong");
+
+    private final LoadOptions options;
+    private final long userId;
+    private final LatencyRecorder recorder;
+    private final ScheduledExecutorService scheduler;
+
+    private WebSocket webSocket;
+    private final StringBuilder partial = new StringBuilder();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private CompletableFuture<?> sendChain = CompletableFuture.completedFuture(null);
+    private volatile boolean closed;
+
+    public SimulatedClient(LoadOptions options, long userId, LatencyRecorder recorder,
+                           ScheduledExecutorService scheduler) {
+        this.options = options;
+        this.userId = userId;
+        this.recorder = recorder;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 建立连接(完成时已发送加入场次)
+     */
+    public CompletableFuture<Void> connect(HttpClient httpClient) {
+        long startTime = System.nanoTime();
+        return httpClient.newWebSocketBuilder()
+                .buildAsync(URI.create(options.wsUrl), this)
+                .thenAccept(ws -> {
+                    recorder.record("connect", System.nanoTime() - startTime);
+                    recorder.increment("connect.success");
+                    webSocket = ws;
+                    send("join_session", Map.of("sessionId", options.sessionId, "userId", userId));
+                    long delay = ThreadLocalRandom.current().nextLong(options.pingIntervalMs);
+                    scheduler.scheduleAtFixedRate(this::ping, delay, options.pingIntervalMs, TimeUnit.MILLISECONDS);
+                });
+    }
+
+    public void close() {
+        closed = true;
+        if (webSocket != null) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            handle(text);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+        if (!closed) {
+            recorder.increment("connection.closed_by_server");
+        }
+        closed = true;
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket ws, Throwable error) {
+        recorder.increment("connection.error: " + error.getClass().getSimpleName());
+        closed = true;
+    }
+
+    private void handle(String text) {
+        long receivedAt = System.nanoTime();
+        JsonNode message;
+        try {
+            message = OBJECT_MAPPER.readTree(text);
+        } catch (Exception e) {
+            recorder.increment("recv.invalid_json");
+            return;
+        }
+        String event = message.path("event").asText();
+        JsonNode data = message.path("data");
+        recorder.increment("recv." + event);
+
+        switch (event) {
+            case "join_success", "buzz_response", "answer_received", "pong", "error" -> completePending(event, data, receivedAt);
+            case "question_push" -> {
+                recordDeliveryLag("push.question_push", message);
+                onQuestion(data.path("id").asLong());
+            }
+            case "buzz_result" -> recordDeliveryLag("push.buzz_result", message);
+            default -> {
+            }
+        }
+    }
+
+    private void completePending(String event, JsonNode data, long receivedAt) {
+        Pending head;
+        synchronized (pending) {
+            head = pending.poll();
+        }
+        if (head == null) {
+            recorder.increment("recv.unmatched_" + event);
+            return;
+        }
+        if ("error".equals(event)) {
+            recorder.increment("error[" + head.request() + "]: " + data.path("message").asText());
+            return;
+        }
+        if ("buzz_response".equals(event) && !data.path("success").asBoolean()) {
+            recorder.increment("buzz.rejected: " + data.path("message").asText());
+        }
+        recorder.record("rtt." + head.request(), receivedAt - head.sentAt());
+    }
+
+    /**
+     * 推题/结果广播的投递延迟: 客户端收到时间减去服务端发出时间(同机压测时时钟一致)
+     */
+    private void recordDeliveryLag(String metric, JsonNode message) {
+        long serverTime = message.path("timestamp").asLong(0);
+        if (serverTime > 0) {
+            recorder.record(metric, (System.currentTimeMillis() - serverTime) * 1_000_000);
+        }
+    }
+
+    private void onQuestion(long questionId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.buzzRatio) {
+            scheduler.schedule(() -> send("client_buzz", Map.of(
+                    "sessionId", options.sessionId, "questionId", questionId, "userId", userId)),
+                    random.nextLong(Math.max(1, options.buzzSpreadMs)), TimeUnit.MILLISECONDS);
+        }
+        if (random.nextDouble() < options.answerRatio) {
+            Map<String, Object> answer = new LinkedHashMap<>();
+            answer.put("sessionId", options.sessionId);
+            answer.put("questionId", questionId);
+            answer.put("userId", userId);
+            answer.put("answer", String.valueOf((char) ('A' + random.nextInt(4))));
+            scheduler.schedule(() -> send("submit_answer", answer), 1000 + random.nextLong(4000), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void ping() {
+        send("ping", Map.of());
+    }
+
+    /**
+     * 发送事件(JDK WebSocket要求上一条发送完成后才能发送下一条，按链顺序发送)
+     */
+    private void send(String event, Map<String, Object> data) {
+        if (closed) {
+            return;
+        }
+        String text;
+        try {
+            text = OBJECT_MAPPER.writeValueAsString(Map.of("event", event, "data", data));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        synchronized (this) {
+            sendChain = sendChain.thenCompose(v -> {
+                if (RESPONSES.containsKey(event)) {
+                    synchronized (pending) {
+                        pending.add(new Pending(event, System.nanoTime()));
+                    }
+                }
+                recorder.increment("sent." + event);
+                return webSocket.sendText(text, true);
+            }).exceptionally(e -> {
+                recorder.increment("send.failed");
+                return null;
+            });
+        }
+    }
+
+    private record Pending(String request, long sentAt) {
+    }
+}
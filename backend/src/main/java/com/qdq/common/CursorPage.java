@@ -0,0 +1,30 @@
+package com.qdq.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 游标分页结果(在分页结果基础上附加下一页游标)
+ *
+ * @param <T> 数据类型
+ */
+@Getter
+@Setter
+public class CursorPage<T> extends Page<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 下一页游标，没有更多数据时为null */
+    private String nextCursor;
+
+    /** 是否还有更多数据 */
+    private boolean hasMore;
+
+    /** total是否为估算值 */
+    private boolean approximateTotal;
+
+    public CursorPage(long current, long size) {
+        super(current, size, false);
+    }
+}
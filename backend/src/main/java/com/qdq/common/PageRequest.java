@@ -23,6 +23,22 @@ public class PageRequest {
     /** 搜索关键字 */
     private String keyword;
 
+    /**
+     * 游标(键集分页): 为null时使用页码分页；传空字符串取第一页，
+     * 之后传上一页返回的nextCursor，按(created_at, id)定位，不受页深影响
+     */
+    private String cursor;
+
+    /** 计数方式（exact精确/approx估算/none不计数），默认页码分页exact、游标分页none */
+    private String countMode;
+
+    /**
+     * 是否为游标分页
+     */
+    public boolean isCursorMode() {
+        return cursor != null;
+    }
+
     /**
      * 获取偏移量
      */
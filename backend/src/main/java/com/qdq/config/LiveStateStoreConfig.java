@@ -0,0 +1,30 @@
+package com.qdq.config;
+
+import com.qdq.live.HybridLiveStateStore;
+import com.qdq.live.LiveStateStore;
+import com.qdq.live.LocalLiveStateStore;
+import com.qdq.live.RedisLiveStateStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * 比赛实时状态存储配置
+ */
+@Configuration
+public class LiveStateStoreConfig {
+
+    @Bean
+    public LiveStateStore liveStateStore(RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                         @Value("${quiz.live-store.type:redis}") String type,
+                                         @Value("${quiz.live-store.replication-queue-capacity:65536}") int queueCapacity) {
+        return switch (type) {
+            case "redis" -> new RedisLiveStateStore(binaryRedisTemplate);
+            case "local" -> new LocalLiveStateStore();
+            case "hybrid" -> new HybridLiveStateStore(new LocalLiveStateStore(),
+                    new RedisLiveStateStore(binaryRedisTemplate), queueCapacity);
+            default -> throw new IllegalArgumentException("未知的实时状态存储类型: " + type);
+        };
+    }
+}
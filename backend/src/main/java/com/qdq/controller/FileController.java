@@ -2,16 +2,23 @@ package com.qdq.controller;
 
 import cn.dev33.satoken.annotation.SaCheckRole;
 import com.qdq.common.R;
+import com.qdq.dto.ChunkUploadRequest;
+import com.qdq.dto.ChunkUploadStatus;
 import com.qdq.entity.SysFile;
+import com.qdq.service.ChunkUploadService;
 import com.qdq.service.FileStorageService;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import com.qdq.service.ImageVariantService;
+import com.qdq.service.MediaCacheService;
+import com.qdq.service.MediaStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 /**
  * 文件管理控制器
  */
@@ -20,9 +27,22 @@ import org.springframework.web.multipart.MultipartFile;
 public class FileController {
 
     private final FileStorageService fileStorageService;
+    private final MediaStreamService mediaStreamService;
+    private final MediaCacheService mediaCacheService;
+    private final ChunkUploadService chunkUploadService;
+    private final ImageVariantService imageVariantService;
+
+    /** 客户端提示: 图片显示宽度(物理像素) */
+    private static final String CLIENT_HINT_WIDTH = "Sec-CH-Width";
 
-    public FileController(FileStorageService fileStorageService) {
+    public FileController(FileStorageService fileStorageService, MediaStreamService mediaStreamService,
+                          MediaCacheService mediaCacheService, ChunkUploadService chunkUploadService,
+                          ImageVariantService imageVariantService) {
         this.fileStorageService = fileStorageService;
+        this.mediaStreamService = mediaStreamService;
+        this.mediaCacheService = mediaCacheService;
+        this.chunkUploadService = chunkUploadService;
+        this.imageVariantService = imageVariantService;
     }
 
     /**
@@ -52,25 +72,78 @@ public class FileController {
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
     public R<SysFile> uploadImage(@RequestParam("file") MultipartFile file) {
         SysFile sysFile = fileStorageService.uploadFile(file, "image");
+        imageVariantService.pregenerate(sysFile);
         return R.ok("图片上传成功", sysFile);
     }
 
     /**
-     * 下载文件
+     * 初始化分片上传(大文件断点续传)
+     */
+    @PostMapping("/uploads")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<ChunkUploadStatus> initChunkUpload(@Valid @RequestBody ChunkUploadRequest request) {
+        return R.ok(chunkUploadService.init(request));
+    }
+
+    /**
+     * 查询分片上传状态(续传前获取已接收的分片)
+     */
+    @GetMapping("/uploads/{uploadId}")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<ChunkUploadStatus> getChunkUpload(@PathVariable String uploadId) {
+        return R.ok(chunkUploadService.getStatus(uploadId));
+    }
+
+    /**
+     * 上传分片(请求体为分片原始字节，可并行上传)
+     */
+    @PutMapping("/uploads/{uploadId}/chunks")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<ChunkUploadStatus> uploadChunk(@PathVariable String uploadId, @RequestParam long offset,
+                                            @RequestHeader("X-Chunk-Checksum") String checksum,
+                                            HttpServletRequest request) throws IOException {
+        return R.ok(chunkUploadService.writeChunk(uploadId, offset, checksum, request.getInputStream()));
+    }
+
+    /**
+     * 完成分片上传
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<SysFile> completeChunkUpload(@PathVariable String uploadId) {
+        SysFile sysFile = chunkUploadService.complete(uploadId);
+        imageVariantService.pregenerate(sysFile);
+        return R.ok("上传成功", sysFile);
+    }
+
+    /**
+     * 取消分片上传
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<Void> abortChunkUpload(@PathVariable String uploadId) {
+        chunkUploadService.abort(uploadId);
+        return R.ok("已取消", null);
+    }
+
+    /**
+     * 下载文件(支持Range断点续传与条件请求；图片可用w参数或Sec-CH-Width请求头获取缩放版本)
      */
     @GetMapping("/{fileId}/download")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long fileId) {
-        SysFile sysFile = fileStorageService.getFileInfo(fileId);
-        
-        Resource resource = new FileSystemResource(sysFile.getFilePath());
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
-        }
+    public void downloadFile(@PathVariable Long fileId, @RequestParam(required = false) Integer w,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SysFile sysFile = resolveVariant(fileStorageService.getFileInfo(fileId), w, request, response);
+        mediaStreamService.stream(sysFile, true, request, response);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + sysFile.getFileName() + "\"")
-                .header(HttpHeaders.CONTENT_TYPE, sysFile.getMimeType())
-                .body(resource);
+    /**
+     * 在线播放媒体(内联输出，支持拖动进度的Range请求；图片同样支持按宽度取缩放版本)
+     */
+    @GetMapping("/{fileId}/stream")
+    public void streamFile(@PathVariable Long fileId, @RequestParam(required = false) Integer w,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SysFile sysFile = resolveVariant(fileStorageService.getFileInfo(fileId), w, request, response);
+        mediaStreamService.stream(sysFile, false, request, response);
     }
 
     /**
@@ -79,10 +152,30 @@ public class FileController {
     @DeleteMapping("/{fileId}")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
     public R<Void> deleteFile(@PathVariable Long fileId) {
+        // 先解除缓存映射再删除物理文件(Windows下映射中的文件无法删除)
+        mediaCacheService.evict(fileStorageService.getFileInfo(fileId).getFilePath());
         fileStorageService.deleteFile(fileId);
         return R.ok("删除成功", null);
     }
 
+    /**
+     * 选择图片衍生图: 优先w参数，其次客户端提示的显示宽度
+     */
+    private SysFile resolveVariant(SysFile sysFile, Integer w, HttpServletRequest request,
+                                   HttpServletResponse response) {
+        if (!"image".equals(sysFile.getFileType())) {
+            return sysFile;
+        }
+        Integer width = w;
+        if (width == null) {
+            response.setHeader("Accept-CH", CLIENT_HINT_WIDTH);
+            response.setHeader(HttpHeaders.VARY, CLIENT_HINT_WIDTH);
+            String hint = request.getHeader(CLIENT_HINT_WIDTH);
+            width = hint != null && hint.trim().matches("\\d{1,5}") ? Integer.valueOf(hint.trim()) : null;
+        }
+        return imageVariantService.resolve(sysFile, width);
+    }
+
     /**
      * 获取文件信息
      */
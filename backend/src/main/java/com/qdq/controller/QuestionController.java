@@ -1,18 +1,31 @@
 package com.qdq.controller;
 
 import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.excel.support.ExcelTypeEnum;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.qdq.common.PageRequest;
 import com.qdq.common.R;
+import com.qdq.dto.BatchResult;
 import com.qdq.dto.QuestionRequest;
+import com.qdq.entity.QuizImportJob;
 import com.qdq.entity.QuizQuestion;
+import com.qdq.exception.BusinessException;
 import com.qdq.service.QuestionService;
 import com.qdq.service.ImportExportService;
+import com.qdq.service.ImportJobService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 题目管理控制器
@@ -23,10 +36,14 @@ public class QuestionController {
 
     private final QuestionService questionService;
     private final ImportExportService importExportService;
+    private final ImportJobService importJobService;
 
-    public QuestionController(QuestionService questionService, ImportExportService importExportService) {
+    public QuestionController(QuestionService questionService,
+                              ImportExportService importExportService,
+                              ImportJobService importJobService) {
         this.questionService = questionService;
         this.importExportService = importExportService;
+        this.importJobService = importJobService;
     }
 
     /**
@@ -34,12 +51,13 @@ public class QuestionController {
      */
     @GetMapping
     public R<Page<QuizQuestion>> page(PageRequest pageRequest,
+                                       @RequestParam(required = false) Long bankId,
                                        @RequestParam(required = false) Long categoryId,
                                        @RequestParam(required = false) Integer type,
                                        @RequestParam(required = false) Integer difficulty,
                                        @RequestParam(required = false) Integer status,
                                        @RequestParam(required = false) String keyword) {
-        Page<QuizQuestion> page = questionService.page(pageRequest, categoryId, type, difficulty, status, keyword);
+        Page<QuizQuestion> page = questionService.page(pageRequest, bankId, categoryId, type, difficulty, status, keyword);
         return R.ok(page);
     }
 
@@ -103,14 +121,30 @@ public class QuestionController {
     }
 
     /**
-     * 上传题目模板
+     * 下载题目模板
      */
     @GetMapping("/template")
-    public R<Void> getTemplate() {
-        // 上传模板文件
-        String filePath = "./uploads/question_template.xlsx";
-        importExportService.exportTemplate(filePath);
-        return R.ok("模板下载成功", null);
+    public void getTemplate(HttpServletResponse response) throws IOException {
+        setDownloadHeaders(response, "question_template.xlsx", ExcelTypeEnum.XLSX);
+        importExportService.exportTemplate(response.getOutputStream());
+    }
+
+    /**
+     * 导出题目(xlsx/csv)
+     */
+    @GetMapping("/export")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public void exportQuestions(@RequestParam(defaultValue = "xlsx") String format,
+                                @RequestParam(required = false) Long bankId,
+                                @RequestParam(required = false) Long categoryId,
+                                @RequestParam(required = false) Integer type,
+                                @RequestParam(required = false) Integer difficulty,
+                                @RequestParam(required = false) Integer status,
+                                HttpServletResponse response) throws IOException {
+        ExcelTypeEnum excelType = "csv".equalsIgnoreCase(format) ? ExcelTypeEnum.CSV : ExcelTypeEnum.XLSX;
+        setDownloadHeaders(response, "questions" + excelType.getValue(), excelType);
+        importExportService.exportQuestions(response.getOutputStream(), excelType,
+                bankId, categoryId, type, difficulty, status);
     }
 
     /**
@@ -118,10 +152,20 @@ public class QuestionController {
      */
     @PostMapping("/import")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<List<QuizQuestion>> importQuestions(@RequestParam("file") MultipartFile file,
-                                                  @RequestParam(required = false) Long bankId) {
-        List<QuizQuestion> questions = importExportService.importQuestions(file, bankId);
-        return R.ok("导入成功", questions);
+    public R<QuizImportJob> importQuestions(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(required = false) Long bankId) {
+        QuizImportJob job = importJobService.submit(file, bankId);
+        return R.ok("导入任务已提交", job);
+    }
+
+    /**
+     * 查询导入任务进度
+     */
+    @GetMapping("/import/{jobId}")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<QuizImportJob> getImportJob(@PathVariable Long jobId) {
+        QuizImportJob job = importJobService.getDetail(jobId);
+        return R.ok(job);
     }
 
     /**
@@ -149,9 +193,9 @@ public class QuestionController {
      */
     @PostMapping("/batch/disable")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<Void> disableBatch(@RequestBody List<Long> ids) {
-        questionService.disableBatch(ids);
-        return R.ok("批量禁用成功", null);
+    public R<BatchResult> disableBatch(@RequestBody List<Long> ids) {
+        BatchResult result = questionService.disableBatch(ids);
+        return R.ok("批量禁用成功", result);
     }
 
     /**
@@ -159,21 +203,61 @@ public class QuestionController {
      */
     @PostMapping("/batch/enable")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<Void> enableBatch(@RequestBody List<Long> ids) {
-        questionService.enableBatch(ids);
-        return R.ok("批量启用成功", null);
+    public R<BatchResult> enableBatch(@RequestBody List<Long> ids) {
+        BatchResult result = questionService.enableBatch(ids);
+        return R.ok("批量启用成功", result);
     }
 
     /**
      * 随机题目
+     * strata为按难度分层抽题参数，格式"难度:数量"逗号分隔，如 1:5,2:3,3:2
      */
     @GetMapping("/random")
     public R<List<QuizQuestion>> getRandomQuestions(
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) Integer type,
             @RequestParam(required = false) Integer difficulty,
-            @RequestParam(defaultValue = "10") Integer count) {
+            @RequestParam(defaultValue = "10") Integer count,
+            @RequestParam(required = false) String strata) {
+        if (StrUtil.isNotBlank(strata)) {
+            List<QuizQuestion> questions = questionService.getStratifiedRandomQuestions(categoryId, type,
+                    parseStrata(strata));
+            return R.ok(questions);
+        }
         List<QuizQuestion> questions = questionService.getRandomQuestions(categoryId, type, difficulty, count);
         return R.ok(questions);
     }
+
+    /**
+     * 解析分层抽题参数
+     */
+    private Map<Integer, Integer> parseStrata(String strata) {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (String item : strata.split(",")) {
+            String[] parts = item.split(":");
+            try {
+                int difficulty = Integer.parseInt(parts[0].trim());
+                int count = Integer.parseInt(parts[1].trim());
+                if (count <= 0) {
+                    throw new BusinessException("抽题数量必须大于0");
+                }
+                result.merge(difficulty, count, Integer::sum);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new BusinessException("分层抽题参数格式错误: " + item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 设置文件下载响应头
+     */
+    private void setDownloadHeaders(HttpServletResponse response, String fileName, ExcelTypeEnum excelType) {
+        String encodedName = URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+        response.setContentType(excelType == ExcelTypeEnum.CSV
+                ? "text/csv"
+                : "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedName);
+    }
 }
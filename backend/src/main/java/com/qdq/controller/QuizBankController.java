@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.qdq.common.PageRequest;
 import com.qdq.common.R;
 import com.qdq.dto.BankRequest;
+import com.qdq.dto.BatchResult;
+import com.qdq.dto.DuplicateReport;
 import com.qdq.entity.QuizBank;
 import com.qdq.service.QuizBankService;
 import jakarta.validation.Valid;
@@ -46,6 +48,16 @@ public class QuizBankController {
         return R.ok(bank);
     }
 
+    /**
+     * 题库重复题目报告
+     */
+    @GetMapping("/{id}/duplicates")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<DuplicateReport> getDuplicateReport(@PathVariable Long id) {
+        DuplicateReport report = bankService.getDuplicateReport(id);
+        return R.ok(report);
+    }
+
     /**
      * 创建题库
      */
@@ -81,9 +93,9 @@ public class QuizBankController {
      */
     @DeleteMapping("/batch")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<Void> deleteBatch(@RequestBody List<Long> ids) {
-        bankService.deleteBatch(ids);
-        return R.ok("批量删除成功", null);
+    public R<BatchResult> deleteBatch(@RequestBody List<Long> ids) {
+        BatchResult result = bankService.deleteBatch(ids);
+        return R.ok("批量删除成功", result);
     }
 
     /**
@@ -111,9 +123,9 @@ public class QuizBankController {
      */
     @PostMapping("/batch/disable")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<Void> disableBatch(@RequestBody List<Long> ids) {
-        bankService.disableBatch(ids);
-        return R.ok("批量禁用成功", null);
+    public R<BatchResult> disableBatch(@RequestBody List<Long> ids) {
+        BatchResult result = bankService.disableBatch(ids);
+        return R.ok("批量禁用成功", result);
     }
 
     /**
@@ -121,8 +133,8 @@ public class QuizBankController {
      */
     @PostMapping("/batch/enable")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
-    public R<Void> enableBatch(@RequestBody List<Long> ids) {
-        bankService.enableBatch(ids);
-        return R.ok("批量启用成功", null);
+    public R<BatchResult> enableBatch(@RequestBody List<Long> ids) {
+        BatchResult result = bankService.enableBatch(ids);
+        return R.ok("批量启用成功", result);
     }
 }
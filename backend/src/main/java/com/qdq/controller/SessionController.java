@@ -7,12 +7,17 @@ import com.qdq.common.R;
 import com.qdq.dto.SessionRequest;
 import com.qdq.entity.QuizQuestion;
 import com.qdq.entity.QuizSession;
+import com.qdq.exception.BusinessException;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.service.AuditLogService;
 import com.qdq.service.BuzzService;
 import com.qdq.service.SessionService;
 import com.qdq.websocket.WebSocketMessageService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -26,13 +31,19 @@ public class SessionController {
     private final SessionService sessionService;
     private final BuzzService buzzService;
     private final WebSocketMessageService wsMessageService;
+    private final QuestionTracer questionTracer;
+    private final AuditLogService auditLogService;
 
     public SessionController(SessionService sessionService, 
                               BuzzService buzzService,
-                              WebSocketMessageService wsMessageService) {
+                              WebSocketMessageService wsMessageService,
+                              QuestionTracer questionTracer,
+                              AuditLogService auditLogService) {
         this.sessionService = sessionService;
         this.buzzService = buzzService;
         this.wsMessageService = wsMessageService;
+        this.questionTracer = questionTracer;
+        this.auditLogService = auditLogService;
     }
 
     /**
@@ -82,6 +93,7 @@ public class SessionController {
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
     public R<Void> delete(@PathVariable Long id) {
         sessionService.delete(id);
+        wsMessageService.releaseSession(id);
         return R.ok("删除成功", null);
     }
 
@@ -94,6 +106,8 @@ public class SessionController {
         QuizSession session = sessionService.start(id);
         // 广播比赛开始
         wsMessageService.broadcastSessionState(id, Map.of("status", "started", "session", session));
+        // 通知客户端预取前几道题的媒体
+        wsMessageService.broadcastMediaPrefetch(id, sessionService.getUpcomingMedia(id));
         return R.ok("比赛已开始", session);
     }
 
@@ -127,6 +141,7 @@ public class SessionController {
     public R<QuizSession> finish(@PathVariable Long id) {
         QuizSession session = sessionService.finish(id);
         wsMessageService.broadcastSessionState(id, Map.of("status", "finished"));
+        wsMessageService.releaseSession(id);
         return R.ok("比赛已结束", session);
     }
 
@@ -136,7 +151,9 @@ public class SessionController {
     @PostMapping("/{id}/next-question")
     @SaCheckRole({"SUPER_ADMIN", "HOST"})
     public R<QuizQuestion> nextQuestion(@PathVariable Long id) {
+        long requestNanos = System.nanoTime();
         QuizQuestion question = sessionService.nextQuestion(id);
+        questionTracer.begin(id, question.getId(), requestNanos);
         
         // 开放抢答
         buzzService.openBuzz(id, question.getId());
@@ -153,6 +170,7 @@ public class SessionController {
         questionForBroadcast.setAttachments(question.getAttachments());
         
         wsMessageService.broadcastQuestion(id, questionForBroadcast);
+        wsMessageService.broadcastMediaPrefetch(id, sessionService.getUpcomingMedia(id));
         
         return R.ok(question);
     }
@@ -186,6 +204,41 @@ public class SessionController {
         return R.ok("抢答已关闭", null);
     }
 
+    /**
+     * 最近追踪的题目列表
+     */
+    @GetMapping("/{id}/traces")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<List<Map<String, Object>>> listTraces(@PathVariable Long id) {
+        return R.ok(questionTracer.list(id));
+    }
+
+    /**
+     * 导出题目延迟时间线(推题到抢答结果)
+     */
+    @GetMapping("/{id}/traces/{questionId}")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<Map<String, Object>> getTrace(@PathVariable Long id, @PathVariable Long questionId) {
+        Map<String, Object> timeline = questionTracer.timeline(id, questionId);
+        if (timeline == null) {
+            throw new BusinessException("没有该题目的追踪记录");
+        }
+        return R.ok(timeline);
+    }
+
+    /**
+     * 查询抢答/答题审计记录(默认当天)
+     */
+    @GetMapping("/{id}/audit")
+    @SaCheckRole({"SUPER_ADMIN", "HOST"})
+    public R<List<Map<String, Object>>> getAudit(@PathVariable Long id,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                 @RequestParam(required = false) Long questionId,
+                                                 @RequestParam(defaultValue = "1000") int limit) {
+        LocalDate day = date != null ? date : LocalDate.now();
+        return R.ok(auditLogService.read(day, id, questionId, Math.min(Math.max(limit, 1), 10000)));
+    }
+
     /**
      * 获取场次在线人数
      */
@@ -0,0 +1,43 @@
+package com.qdq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量操作结果(逐条结果)
+ */
+@Data
+public class BatchResult {
+
+    /** 请求的ID数(去重后) */
+    private int total;
+
+    /** 成功的ID */
+    private List<Long> successIds = new ArrayList<>();
+
+    /** 失败的ID及原因 */
+    private List<Failure> failures = new ArrayList<>();
+
+    public void addFailure(Long id, String message) {
+        failures.add(new Failure(id, message));
+    }
+
+    /**
+     * 失败条目
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+
+        /** ID */
+        private Long id;
+
+        /** 失败原因 */
+        private String message;
+    }
+}
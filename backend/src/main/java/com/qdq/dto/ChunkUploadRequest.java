@@ -0,0 +1,32 @@
+package com.qdq.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * 分片上传初始化请求DTO
+ */
+@Data
+public class ChunkUploadRequest {
+
+    @NotBlank(message = "文件名不能为空")
+    private String fileName;
+
+    /** 文件类型(audio/video/image) */
+    @NotBlank(message = "文件类型不能为空")
+    private String fileType;
+
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long fileSize;
+
+    private String mimeType;
+
+    /** 分片大小(为空时使用服务端默认值) */
+    private Integer chunkSize;
+
+    /** 整个文件的SHA-256(可选，完成时校验) */
+    private String sha256;
+}
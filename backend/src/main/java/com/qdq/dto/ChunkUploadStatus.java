@@ -0,0 +1,27 @@
+package com.qdq.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分片上传状态(客户端据此续传缺失的分片)
+ */
+@Data
+public class ChunkUploadStatus {
+
+    /** 上传ID */
+    private String uploadId;
+
+    /** 文件大小 */
+    private Long fileSize;
+
+    /** 分片大小 */
+    private Integer chunkSize;
+
+    /** 分片总数 */
+    private Integer totalChunks;
+
+    /** 已接收的分片序号 */
+    private List<Integer> receivedChunks;
+}
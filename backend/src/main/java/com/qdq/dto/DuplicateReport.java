@@ -0,0 +1,45 @@
+package com.qdq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题库重复题目报告
+ */
+@Data
+public class DuplicateReport {
+
+    /** 题库ID */
+    private Long bankId;
+
+    /** 已索引题目数 */
+    private int questionCount;
+
+    /** 完全重复的题目分组(每组为题目ID列表) */
+    private List<List<Long>> exactGroups = new ArrayList<>();
+
+    /** 近似重复的题目对 */
+    private List<NearDuplicate> nearDuplicates = new ArrayList<>();
+
+    /**
+     * 近似重复题目对
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NearDuplicate {
+
+        /** 题目ID */
+        private Long questionId;
+
+        /** 相似题目ID */
+        private Long similarQuestionId;
+
+        /** 估算相似度(0~1) */
+        private double similarity;
+    }
+}
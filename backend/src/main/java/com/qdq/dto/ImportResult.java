@@ -0,0 +1,67 @@
+package com.qdq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题目导入结果(行级错误报告)
+ */
+@Data
+public class ImportResult {
+
+    /** 错误明细最多保留条数，避免超大文件撑爆内存 */
+    public static final int MAX_ERROR_ROWS = 1000;
+
+    /** 所属题库ID */
+    private Long bankId;
+
+    /** 已读取行数 */
+    private int totalRows;
+
+    /** 成功导入数 */
+    private int successCount;
+
+    /** 失败行数 */
+    private int failedCount;
+
+    /** 最后处理的Excel行号(断点续传位置) */
+    private int lastRowNum;
+
+    /** 耗时(毫秒) */
+    private long costMs;
+
+    /** 失败行明细 */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 记录一行失败
+     */
+    public void addError(int rowNum, String title, String message) {
+        failedCount++;
+        if (errors.size() < MAX_ERROR_ROWS) {
+            errors.add(new RowError(rowNum, title, message));
+        }
+    }
+
+    /**
+     * 行级错误
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        /** Excel行号(从1开始，含表头) */
+        private int rowNum;
+
+        /** 题目标题 */
+        private String title;
+
+        /** 错误原因 */
+        private String message;
+    }
+}
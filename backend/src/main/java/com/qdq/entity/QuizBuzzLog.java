@@ -36,6 +36,7 @@ public class QuizBuzzLog {
     private Integer isFirst;
 
     /** 抢答排名 */
+    @TableField("`rank`")
     private Integer rank;
 
     /** 是否已处理 */
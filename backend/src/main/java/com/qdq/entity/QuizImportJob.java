@@ -0,0 +1,75 @@
+package com.qdq.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题目导入任务实体类
+ */
+@Data
+@TableName(value = "quiz_import_job", autoResultMap = true)
+public class QuizImportJob {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 目标题库ID */
+    private Long bankId;
+
+    /** 原始文件名 */
+    private String fileName;
+
+    /** 暂存文件路径 */
+    @JsonIgnore
+    private String filePath;
+
+    /** 状态(0:排队中 1:导入中 2:已完成 3:失败) */
+    private Integer status;
+
+    /** 已读取行数 */
+    private Integer totalRows;
+
+    /** 成功导入数 */
+    private Integer successCount;
+
+    /** 失败行数 */
+    private Integer failedCount;
+
+    /** 最后提交的Excel行号(断点) */
+    private Integer lastRowNum;
+
+    /** 失败行明细(JSON数组) */
+    @TableField(typeHandler = JacksonTypeHandler.class)
+    private List<Map<String, Object>> errors;
+
+    /** 任务失败原因 */
+    private String errorMessage;
+
+    /** 创建人 */
+    private Long createdBy;
+
+    /** 开始时间 */
+    private LocalDateTime startedAt;
+
+    /** 完成时间 */
+    private LocalDateTime finishedAt;
+
+    /** 创建时间 */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /** 更新时间 */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    // ============ 非数据库字段 ============
+
+    /** 吞吐量(行/秒) */
+    @TableField(exist = false)
+    private Double throughput;
+}
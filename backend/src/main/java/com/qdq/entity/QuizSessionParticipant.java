@@ -42,6 +42,7 @@ public class QuizSessionParticipant {
     private Integer answeredCount;
 
     /** 排名 */
+    @TableField("`rank`")
     private Integer rank;
 
     /** 加入时间 */
@@ -29,6 +29,9 @@ public class SysFile {
     /** MIME类型 */
     private String mimeType;
 
+    /** 内容SHA-256 */
+    private String contentHash;
+
     /** 上传人ID */
     private Long uploadedBy;
 
@@ -0,0 +1,28 @@
+package com.qdq.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 物理文件实体类(按内容寻址文件的引用计数，引用数为0的记录即待删除的物理文件)
+ */
+@Data
+@TableName("sys_file_blob")
+public class SysFileBlob {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 内容SHA-256(历史文件为空) */
+    private String contentHash;
+
+    /** 物理文件路径 */
+    private String filePath;
+
+    /** 引用该物理文件的未删除文件记录数 */
+    private Integer refCount;
+
+    /** 更新时间 */
+    private LocalDateTime updatedAt;
+}
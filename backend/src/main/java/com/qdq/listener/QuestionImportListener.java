@@ -0,0 +1,128 @@
+package com.qdq.listener;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.qdq.dto.ImportResult;
+import com.qdq.dto.QuestionImportDTO;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 题目导入监听器
+ * 逐行校验、按批次写入，单行或单批失败只记入错误报告，不中断整个文件
+ * 结果中的lastRowNum不为0时视为断点续传，跳过已处理的行
+ */
+@Slf4j
+public class QuestionImportListener implements ReadListener<QuestionImportDTO> {
+
+    private final int batchSize;
+    private final Function<QuestionImportDTO, QuizQuestion> rowMapper;
+    private final Consumer<List<QuizQuestion>> batchWriter;
+    private final Consumer<ImportResult> progressCallback;
+    private final ImportResult result;
+    private final int resumeAfterRow;
+
+    private final List<QuizQuestion> buffer;
+    private final List<Integer> bufferRowNums;
+    private int lastReadRowNum;
+
+    /**
+     * @param batchSize        每批写入条数
+     * @param rowMapper        行转换(校验失败抛出BusinessException)
+     * @param batchWriter      批量写入(此时result.lastRowNum已指向本批最后一行)
+     * @param progressCallback 每批写入后的进度回调
+     * @param result           导入结果(续传时为上次断点的结果)
+     */
+    public QuestionImportListener(int batchSize,
+                                  Function<QuestionImportDTO, QuizQuestion> rowMapper,
+                                  Consumer<List<QuizQuestion>> batchWriter,
+                                  Consumer<ImportResult> progressCallback,
+                                  ImportResult result) {
+        this.batchSize = batchSize;
+        this.rowMapper = rowMapper;
+        this.batchWriter = batchWriter;
+        this.progressCallback = progressCallback;
+        this.result = result;
+        this.resumeAfterRow = result.getLastRowNum();
+        this.lastReadRowNum = result.getLastRowNum();
+        this.buffer = new ArrayList<>(batchSize);
+        this.bufferRowNums = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void invoke(QuestionImportDTO dto, AnalysisContext context) {
+        int rowNum = context.readRowHolder().getRowIndex() + 1;
+        if (rowNum <= resumeAfterRow) {
+            return;
+        }
+        lastReadRowNum = rowNum;
+        result.setTotalRows(result.getTotalRows() + 1);
+
+        try {
+            buffer.add(rowMapper.apply(dto));
+            bufferRowNums.add(rowNum);
+        } catch (BusinessException e) {
+            result.addError(rowNum, dto.getTitle(), e.getMessage());
+        }
+
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onException(Exception exception, AnalysisContext context) {
+        // 单元格类型转换失败等行级异常，记录后继续读取
+        if (exception instanceof ExcelDataConvertException convertException) {
+            int rowNum = convertException.getRowIndex() + 1;
+            if (rowNum <= resumeAfterRow) {
+                return;
+            }
+            lastReadRowNum = rowNum;
+            result.setTotalRows(result.getTotalRows() + 1);
+            result.addError(rowNum, null,
+                    "第" + (convertException.getColumnIndex() + 1) + "列数据格式错误");
+            return;
+        }
+        log.error("解析导入文件失败", exception);
+        throw new BusinessException("解析导入文件失败: " + exception.getMessage());
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        flush();
+    }
+
+    /**
+     * 写入当前批次
+     */
+    private void flush() {
+        if (lastReadRowNum == result.getLastRowNum()) {
+            return;
+        }
+        result.setLastRowNum(lastReadRowNum);
+
+        if (!buffer.isEmpty()) {
+            try {
+                batchWriter.accept(buffer);
+                result.setSuccessCount(result.getSuccessCount() + buffer.size());
+            } catch (Exception e) {
+                log.error("批量写入题目失败: 起始行={}, 条数={}", bufferRowNums.get(0), buffer.size(), e);
+                for (int i = 0; i < buffer.size(); i++) {
+                    result.addError(bufferRowNums.get(i), buffer.get(i).getTitle(), "写入数据库失败");
+                }
+            }
+        }
+
+        buffer.clear();
+        bufferRowNums.clear();
+        progressCallback.accept(result);
+    }
+}
@@ -0,0 +1,168 @@
+package com.qdq.live;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.qdq.entity.QuizQuestion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 混合实时状态存储(单实例部署，Redis保留一份副本供其他实例/监控读取)
+ * 读写都走进程内存储，写操作按顺序放入单线程队列异步复制到Redis；队列满时丢弃复制并告警，不阻塞抢答。
+ * 读不回源Redis(异步复制可能落后于本地)，重启后的状态由场次事件日志恢复
+ */
+@Slf4j
+public class HybridLiveStateStore implements LiveStateStore {
+
+    private final LiveStateStore local;
+    private final LiveStateStore remote;
+    private final int queueCapacity;
+    private final LongAdder dropped = new LongAdder();
+    private ThreadPoolExecutor replicator;
+
+    public HybridLiveStateStore(LiveStateStore local, LiveStateStore remote, int queueCapacity) {
+        this.local = local;
+        this.remote = remote;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @PostConstruct
+    public void init() {
+        replicator = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                ThreadUtil.newNamedThreadFactory("live-store-replicator-", true), (task, executor) -> dropped.increment());
+    }
+
+    /**
+     * 停止复制(等待已排队的写操作复制完成)
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        replicator.shutdown();
+        replicator.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public long addBuzz(Long sessionId, Long questionId, String memberId, long serverTime) {
+        long firstTime = local.addBuzz(sessionId, questionId, memberId, serverTime);
+        if (firstTime == serverTime) {
+            replicate(store -> store.addBuzz(sessionId, questionId, memberId, serverTime));
+        }
+        return firstTime;
+    }
+
+    @Override
+    public List<BuzzEntry> getBuzzQueue(Long sessionId, Long questionId) {
+        return local.getBuzzQueue(sessionId, questionId);
+    }
+
+    @Override
+    public List<BuzzEntry> lockBuzzQueue(Long sessionId, Long questionId) {
+        List<BuzzEntry> buzzes = local.lockBuzzQueue(sessionId, questionId);
+        if (!buzzes.isEmpty()) {
+            replicate(store -> store.lockBuzzQueue(sessionId, questionId));
+        }
+        return buzzes;
+    }
+
+    @Override
+    public boolean isBuzzLocked(Long sessionId, Long questionId) {
+        return local.isBuzzLocked(sessionId, questionId);
+    }
+
+    @Override
+    public void lockBuzz(Long sessionId, Long questionId, boolean closedByHost) {
+        local.lockBuzz(sessionId, questionId, closedByHost);
+        replicate(store -> store.lockBuzz(sessionId, questionId, closedByHost));
+    }
+
+    @Override
+    public List<Map<String, Object>> getBuzzResult(Long sessionId, Long questionId) {
+        return local.getBuzzResult(sessionId, questionId);
+    }
+
+    @Override
+    public void saveBuzzResult(Long sessionId, Long questionId, List<Map<String, Object>> results) {
+        local.saveBuzzResult(sessionId, questionId, results);
+        replicate(store -> store.saveBuzzResult(sessionId, questionId, results));
+    }
+
+    @Override
+    public void resetBuzz(Long sessionId, Long questionId) {
+        local.resetBuzz(sessionId, questionId);
+        replicate(store -> store.resetBuzz(sessionId, questionId));
+    }
+
+    @Override
+    public void saveSessionState(Long sessionId, Map<String, Object> state) {
+        local.saveSessionState(sessionId, state);
+        Map<String, Object> copy = new HashMap<>(state);
+        replicate(store -> store.saveSessionState(sessionId, copy));
+    }
+
+    @Override
+    public Map<String, Object> getSessionState(Long sessionId) {
+        return local.getSessionState(sessionId);
+    }
+
+    @Override
+    public void saveCurrentQuestion(Long sessionId, QuizQuestion question) {
+        local.saveCurrentQuestion(sessionId, question);
+        replicate(store -> store.saveCurrentQuestion(sessionId, question));
+    }
+
+    @Override
+    public QuizQuestion getCurrentQuestion(Long sessionId) {
+        return local.getCurrentQuestion(sessionId);
+    }
+
+    @Override
+    public void saveCountdown(Long sessionId, int countdownSeconds) {
+        local.saveCountdown(sessionId, countdownSeconds);
+        replicate(store -> store.saveCountdown(sessionId, countdownSeconds));
+    }
+
+    @Override
+    public Integer getCountdown(Long sessionId) {
+        return local.getCountdown(sessionId);
+    }
+
+    @Override
+    public void saveAnswerProgress(Long sessionId, Long userId, Map<String, Object> progress) {
+        local.saveAnswerProgress(sessionId, userId, progress);
+        replicate(store -> store.saveAnswerProgress(sessionId, userId, progress));
+    }
+
+    @Override
+    public Map<Object, Object> getAnswerProgress(Long sessionId) {
+        return local.getAnswerProgress(sessionId);
+    }
+
+    @Override
+    public void clearSession(Long sessionId) {
+        local.clearSession(sessionId);
+        replicate(store -> store.clearSession(sessionId));
+    }
+
+    private void replicate(Consumer<LiveStateStore> operation) {
+        replicator.execute(() -> {
+            try {
+                operation.accept(remote);
+            } catch (RuntimeException e) {
+                log.warn("实时状态复制到Redis失败: {}", e.getMessage());
+            }
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                log.warn("实时状态复制队列已满，丢弃{}条写操作", lost);
+            }
+        });
+    }
+}
@@ -0,0 +1,348 @@
+package com.qdq.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qdq.entity.QuizQuestion;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * 热点实时状态的二进制编码(替代带类型信息的JSON)
+ * 每种数据固定字段顺序，数值定长、字符串与列表带长度前缀，均为大端序；首字节为格式版本，
+ * 版本不符或数据不完整时解码返回null(按缓存未命中处理)
+ * <ul>
+ *     <li>抢答结果: version count(short) [memberLength(short) member serverTime(long)]*，名次按顺序推出</li>
+ *     <li>场次状态: version mask(byte) id(long) status(int) currentQuestionIndex(int) questionCount(int)，mask标记非空字段</li>
+ *     <li>答题进度: version answeredCount(int) timestamp(long)，用户ID取自Hash字段名</li>
+ *     <li>当前题目: version mask(int) 非空字段按声明顺序，选项/答案/附件为无类型信息的JSON</li>
+ * </ul>
+ */
+public final class LiveStateCodec {
+
+    private static final byte VERSION = 1;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> OPTIONS_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<List<Map<String, String>>> ATTACHMENTS_TYPE = new TypeReference<>() {
+    };
+
+    private LiveStateCodec() {
+    }
+
+    public static byte[] encodeBuzzResult(List<Map<String, Object>> results) {
+        byte[][] members = new byte[results.size()][];
+        int size = 1 + 2;
+        for (int i = 0; i < members.length; i++) {
+            members[i] = results.get(i).get("memberId").toString().getBytes(StandardCharsets.UTF_8);
+            size += 2 + members[i].length + 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putShort((short) members.length);
+        for (int i = 0; i < members.length; i++) {
+            buffer.putShort((short) members[i].length);
+            buffer.put(members[i]);
+            buffer.putLong(((Number) results.get(i).get("serverTime")).longValue());
+        }
+        return buffer.array();
+    }
+
+    public static List<Map<String, Object>> decodeBuzzResult(byte[] data) {
+        ByteBuffer buffer = open(data);
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            int count = Short.toUnsignedInt(buffer.getShort());
+            List<Map<String, Object>> results = new ArrayList<>(count);
+            for (int rank = 1; rank <= count; rank++) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("rank", rank);
+                result.put("memberId", readShortString(buffer));
+                result.put("serverTime", buffer.getLong());
+                result.put("isFirst", rank == 1);
+                results.add(result);
+            }
+            return results;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    public static byte[] encodeSessionState(Map<String, Object> state) {
+        Object id = state.get("id");
+        Object status = state.get("status");
+        Object currentQuestionIndex = state.get("currentQuestionIndex");
+        Object questionCount = state.get("questionCount");
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 8 + 4 + 4 + 4);
+        buffer.put(VERSION);
+        buffer.put((byte) ((id != null ? 1 : 0) | (status != null ? 2 : 0)
+                | (currentQuestionIndex != null ? 4 : 0) | (questionCount != null ? 8 : 0)));
+        buffer.putLong(id != null ? ((Number) id).longValue() : 0);
+        buffer.putInt(status != null ? ((Number) status).intValue() : 0);
+        buffer.putInt(currentQuestionIndex != null ? ((Number) currentQuestionIndex).intValue() : 0);
+        buffer.putInt(questionCount != null ? ((Number) questionCount).intValue() : 0);
+        return buffer.array();
+    }
+
+    public static Map<String, Object> decodeSessionState(byte[] data) {
+        ByteBuffer buffer = open(data);
+        if (buffer == null || buffer.remaining() < 1 + 8 + 4 + 4 + 4) {
+            return null;
+        }
+        int mask = buffer.get();
+        long id = buffer.getLong();
+        int status = buffer.getInt();
+        int currentQuestionIndex = buffer.getInt();
+        int questionCount = buffer.getInt();
+        Map<String, Object> state = new HashMap<>();
+        if ((mask & 1) != 0) {
+            state.put("id", id);
+        }
+        if ((mask & 2) != 0) {
+            state.put("status", status);
+        }
+        if ((mask & 4) != 0) {
+            state.put("currentQuestionIndex", currentQuestionIndex);
+        }
+        if ((mask & 8) != 0) {
+            state.put("questionCount", questionCount);
+        }
+        return state;
+    }
+
+    public static byte[] encodeProgress(Map<String, Object> progress) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8);
+        buffer.put(VERSION);
+        buffer.putInt(((Number) progress.get("answeredCount")).intValue());
+        buffer.putLong(((Number) progress.get("timestamp")).longValue());
+        return buffer.array();
+    }
+
+    public static Map<String, Object> decodeProgress(String userId, byte[] data) {
+        ByteBuffer buffer = open(data);
+        if (buffer == null || buffer.remaining() < 4 + 8) {
+            return null;
+        }
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("userId", Long.valueOf(userId));
+        progress.put("answeredCount", buffer.getInt());
+        progress.put("timestamp", buffer.getLong());
+        return progress;
+    }
+
+    public static byte[] encodeQuestion(QuizQuestion question) {
+        Output out = new Output(256 + length(question.getContent()) * 3);
+        out.buffer.put(VERSION);
+        int maskPosition = out.buffer.position();
+        out.buffer.putInt(0);
+        int mask = 0;
+        mask |= out.putLong(0, question.getId());
+        mask |= out.putLong(1, question.getCategoryId());
+        mask |= out.putLong(2, question.getBankId());
+        mask |= out.putInt(3, question.getType());
+        mask |= out.putString(4, question.getTitle());
+        mask |= out.putString(5, question.getContent());
+        mask |= out.putJson(6, question.getOptions());
+        mask |= out.putJson(7, question.getAnswer());
+        mask |= out.putString(8, question.getAnalysis());
+        mask |= out.putInt(9, question.getScore());
+        mask |= out.putInt(10, question.getDifficulty());
+        if (question.getTags() != null) {
+            out.ensure(4);
+            out.buffer.putInt(question.getTags().size());
+            for (String tag : question.getTags()) {
+                out.putString(0, tag);
+            }
+            mask |= 1 << 11;
+        }
+        mask |= out.putJson(12, question.getAttachments());
+        mask |= out.putInt(13, question.getStatus());
+        mask |= out.putInt(14, question.getIsDisabled());
+        mask |= out.putLong(15, question.getCreatedBy());
+        mask |= out.putLong(16, question.getUpdatedBy());
+        mask |= out.putTime(17, question.getCreatedAt());
+        mask |= out.putTime(18, question.getUpdatedAt());
+        mask |= out.putInt(19, question.getDeleted());
+        mask |= out.putString(20, question.getCategoryName());
+        mask |= out.putString(21, question.getBankName());
+        mask |= out.putString(22, question.getCreatedByName());
+        out.buffer.putInt(maskPosition, mask);
+        return Arrays.copyOf(out.buffer.array(), out.buffer.position());
+    }
+
+    public static QuizQuestion decodeQuestion(byte[] data) {
+        ByteBuffer buffer = open(data);
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            int mask = buffer.getInt();
+            QuizQuestion question = new QuizQuestion();
+            question.setId(has(mask, 0) ? buffer.getLong() : null);
+            question.setCategoryId(has(mask, 1) ? buffer.getLong() : null);
+            question.setBankId(has(mask, 2) ? buffer.getLong() : null);
+            question.setType(has(mask, 3) ? buffer.getInt() : null);
+            question.setTitle(has(mask, 4) ? readString(buffer) : null);
+            question.setContent(has(mask, 5) ? readString(buffer) : null);
+            question.setOptions(has(mask, 6) ? readJson(buffer, OPTIONS_TYPE) : null);
+            question.setAnswer(has(mask, 7) ? readJson(buffer, Object.class) : null);
+            question.setAnalysis(has(mask, 8) ? readString(buffer) : null);
+            question.setScore(has(mask, 9) ? buffer.getInt() : null);
+            question.setDifficulty(has(mask, 10) ? buffer.getInt() : null);
+            if (has(mask, 11)) {
+                int count = buffer.getInt();
+                List<String> tags = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    tags.add(readString(buffer));
+                }
+                question.setTags(tags);
+            }
+            question.setAttachments(has(mask, 12) ? readJson(buffer, ATTACHMENTS_TYPE) : null);
+            question.setStatus(has(mask, 13) ? buffer.getInt() : null);
+            question.setIsDisabled(has(mask, 14) ? buffer.getInt() : null);
+            question.setCreatedBy(has(mask, 15) ? buffer.getLong() : null);
+            question.setUpdatedBy(has(mask, 16) ? buffer.getLong() : null);
+            question.setCreatedAt(has(mask, 17) ? readTime(buffer) : null);
+            question.setUpdatedAt(has(mask, 18) ? readTime(buffer) : null);
+            question.setDeleted(has(mask, 19) ? buffer.getInt() : null);
+            question.setCategoryName(has(mask, 20) ? readString(buffer) : null);
+            question.setBankName(has(mask, 21) ? readString(buffer) : null);
+            question.setCreatedByName(has(mask, 22) ? readString(buffer) : null);
+            return question;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 校验版本并返回定位到版本之后的缓冲区
+     */
+    private static ByteBuffer open(byte[] data) {
+        if (data == null || data.length < 1 || data[0] != VERSION) {
+            return null;
+        }
+        return ByteBuffer.wrap(data, 1, data.length - 1);
+    }
+
+    private static boolean has(int mask, int field) {
+        return (mask & (1 << field)) != 0;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static String readShortString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static <T> T readJson(ByteBuffer buffer, TypeReference<T> type) {
+        try {
+            return JSON.readValue(readString(buffer), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Object readJson(ByteBuffer buffer, Class<?> type) {
+        try {
+            return JSON.readValue(readString(buffer), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * 可扩容的写缓冲区，写入非空字段并返回该字段在mask中的位
+     */
+    private static final class Output {
+
+        ByteBuffer buffer;
+
+        Output(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        int putLong(int field, Long value) {
+            if (value == null) {
+                return 0;
+            }
+            ensure(8);
+            buffer.putLong(value);
+            return 1 << field;
+        }
+
+        int putInt(int field, Integer value) {
+            if (value == null) {
+                return 0;
+            }
+            ensure(4);
+            buffer.putInt(value);
+            return 1 << field;
+        }
+
+        int putString(int field, String value) {
+            if (value == null) {
+                return 0;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+            return 1 << field;
+        }
+
+        int putJson(int field, Object value) {
+            if (value == null) {
+                return 0;
+            }
+            try {
+                return putString(field, JSON.writeValueAsString(value));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        int putTime(int field, LocalDateTime value) {
+            if (value == null) {
+                return 0;
+            }
+            ensure(12);
+            buffer.putLong(value.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(value.getNano());
+            return 1 << field;
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.qdq.live;
+
+import com.qdq.entity.QuizQuestion;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 比赛实时状态存储
+ * 抢答队列、锁定、判定结果、场次状态、当前题目、倒计时与答题进度的读写入口，
+ * 按部署方式选择实现(quiz.live-store.type): redis(默认，多实例共享)、local(单实例，进程内)、hybrid(进程内读写，异步复制到Redis)
+ */
+public interface LiveStateStore {
+
+    /**
+     * 抢答记录
+     */
+    record BuzzEntry(String memberId, long serverTime) {
+    }
+
+    /** addBuzz 的返回值: 题目已锁定或未开放抢答，未记录 */
+    long BUZZ_LOCKED = 0;
+
+    /**
+     * 题目为当前开放抢答的题目且未锁定时记录抢答(同一成员重复抢答保留第一次的时间)
+     *
+     * @return 存储中该成员第一次抢答的时间(首次记录时即 serverTime)，已锁定或未开放时返回 BUZZ_LOCKED
+     */
+    long addBuzz(Long sessionId, Long questionId, String memberId, long serverTime);
+
+    /**
+     * 题目的全部抢答，按服务端时间升序(时间相同按成员ID)；只保留当前开放题目的抢答，其他题目为空
+     */
+    List<BuzzEntry> getBuzzQueue(Long sessionId, Long questionId);
+
+    /**
+     * 锁定抢答并返回抢答队列(判定时调用，队列为空时不锁定)
+     */
+    List<BuzzEntry> lockBuzzQueue(Long sessionId, Long questionId);
+
+    /**
+     * 题目是否已锁定(已判定或主持人关闭)
+     */
+    boolean isBuzzLocked(Long sessionId, Long questionId);
+
+    /**
+     * 锁定抢答
+     *
+     * @param closedByHost true主持人关闭 false判定时锁定
+     */
+    void lockBuzz(Long sessionId, Long questionId, boolean closedByHost);
+
+    /**
+     * 抢答判定结果，未判定时返回null
+     */
+    List<Map<String, Object>> getBuzzResult(Long sessionId, Long questionId);
+
+    void saveBuzzResult(Long sessionId, Long questionId, List<Map<String, Object>> results);
+
+    /**
+     * 开放题目的抢答: 清空抢答队列，清除该题目与上一道开放题目的锁定与判定结果，之后只接受该题目的抢答
+     */
+    void resetBuzz(Long sessionId, Long questionId);
+
+    /**
+     * 保存场次状态(整体覆盖)
+     */
+    void saveSessionState(Long sessionId, Map<String, Object> state);
+
+    /**
+     * 场次状态，不存在时返回空Map
+     */
+    Map<String, Object> getSessionState(Long sessionId);
+
+    void saveCurrentQuestion(Long sessionId, QuizQuestion question);
+
+    QuizQuestion getCurrentQuestion(Long sessionId);
+
+    void saveCountdown(Long sessionId, int countdownSeconds);
+
+    /**
+     * 倒计时秒数，未设置时返回null
+     */
+    Integer getCountdown(Long sessionId);
+
+    /**
+     * 保存用户答题进度
+     */
+    void saveAnswerProgress(Long sessionId, Long userId, Map<String, Object> progress);
+
+    /**
+     * 场次全部答题进度(用户ID字符串 -> 进度)
+     */
+    Map<Object, Object> getAnswerProgress(Long sessionId);
+
+    /**
+     * 清除场次的全部实时状态(比赛结束、修改或删除场次时)
+     */
+    void clearSession(Long sessionId);
+}
@@ -0,0 +1,189 @@
+package com.qdq.live;
+
+import com.qdq.entity.QuizQuestion;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 进程内实时状态存储(单实例部署)
+ * 按场次、题目分层的并发Map，抢答队列为按(服务端时间, 成员ID)排序的跳表，与Redis Sorted Set顺序一致；
+ * 只有开放抢答的题目接受抢答(与Redis实现一致，其他题目按已锁定拒绝)；
+ * 不设过期时间，上一题的抢答数据在开放新题时释放，场次数据在清除场次时释放
+ */
+public class LocalLiveStateStore implements LiveStateStore {
+
+    private static final Comparator<BuzzEntry> BUZZ_ORDER =
+            Comparator.comparingLong(BuzzEntry::serverTime).thenComparing(BuzzEntry::memberId);
+
+    private final Map<Long, SessionState> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public long addBuzz(Long sessionId, Long questionId, String memberId, long serverTime) {
+        SessionState session = session(sessionId);
+        QuestionState question;
+        synchronized (session) {
+            if (!questionId.equals(session.openQuestionId)) {
+                return BUZZ_LOCKED;
+            }
+            question = session.question(questionId);
+        }
+        return question.add(memberId, serverTime);
+    }
+
+    @Override
+    public List<BuzzEntry> getBuzzQueue(Long sessionId, Long questionId) {
+        QuestionState question = findQuestion(sessionId, questionId);
+        return question != null ? question.snapshot() : Collections.emptyList();
+    }
+
+    @Override
+    public List<BuzzEntry> lockBuzzQueue(Long sessionId, Long questionId) {
+        QuestionState question = findQuestion(sessionId, questionId);
+        return question != null ? question.lockAndSnapshot() : Collections.emptyList();
+    }
+
+    @Override
+    public boolean isBuzzLocked(Long sessionId, Long questionId) {
+        QuestionState question = findQuestion(sessionId, questionId);
+        return question != null && question.locked;
+    }
+
+    @Override
+    public void lockBuzz(Long sessionId, Long questionId, boolean closedByHost) {
+        session(sessionId).question(questionId).lock();
+    }
+
+    @Override
+    public List<Map<String, Object>> getBuzzResult(Long sessionId, Long questionId) {
+        QuestionState question = findQuestion(sessionId, questionId);
+        return question != null ? question.result : null;
+    }
+
+    @Override
+    public void saveBuzzResult(Long sessionId, Long questionId, List<Map<String, Object>> results) {
+        session(sessionId).question(questionId).result = results;
+    }
+
+    @Override
+    public void resetBuzz(Long sessionId, Long questionId) {
+        SessionState session = session(sessionId);
+        synchronized (session) {
+            if (session.openQuestionId != null) {
+                session.questions.remove(session.openQuestionId);
+            }
+            session.questions.remove(questionId);
+            session.openQuestionId = questionId;
+        }
+    }
+
+    @Override
+    public void saveSessionState(Long sessionId, Map<String, Object> state) {
+        session(sessionId).state = new HashMap<>(state);
+    }
+
+    @Override
+    public Map<String, Object> getSessionState(Long sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null && session.state != null ? new HashMap<>(session.state) : new HashMap<>();
+    }
+
+    @Override
+    public void saveCurrentQuestion(Long sessionId, QuizQuestion question) {
+        session(sessionId).currentQuestion = question;
+    }
+
+    @Override
+    public QuizQuestion getCurrentQuestion(Long sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? session.currentQuestion : null;
+    }
+
+    @Override
+    public void saveCountdown(Long sessionId, int countdownSeconds) {
+        session(sessionId).countdown = countdownSeconds;
+    }
+
+    @Override
+    public Integer getCountdown(Long sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? session.countdown : null;
+    }
+
+    @Override
+    public void saveAnswerProgress(Long sessionId, Long userId, Map<String, Object> progress) {
+        session(sessionId).progress.put(userId.toString(), progress);
+    }
+
+    @Override
+    public Map<Object, Object> getAnswerProgress(Long sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? new HashMap<>(session.progress) : new HashMap<>();
+    }
+
+    @Override
+    public void clearSession(Long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private SessionState session(Long sessionId) {
+        return sessions.computeIfAbsent(sessionId, k -> new SessionState());
+    }
+
+    private QuestionState findQuestion(Long sessionId, Long questionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? session.questions.get(questionId) : null;
+    }
+
+    private static final class SessionState {
+
+        final Map<Object, Object> progress = new ConcurrentHashMap<>();
+        final Map<Long, QuestionState> questions = new ConcurrentHashMap<>();
+        volatile Map<String, Object> state;
+        volatile QuizQuestion currentQuestion;
+        volatile Integer countdown;
+        /** 当前开放抢答的题目 */
+        Long openQuestionId;
+
+        QuestionState question(Long questionId) {
+            return questions.computeIfAbsent(questionId, k -> new QuestionState());
+        }
+    }
+
+    private static final class QuestionState {
+
+        /** 成员ID -> 抢答时间(重复抢答时保留第一次) */
+        final Map<String, Long> times = new HashMap<>();
+        final ConcurrentSkipListSet<BuzzEntry> queue = new ConcurrentSkipListSet<>(BUZZ_ORDER);
+        volatile boolean locked;
+        volatile List<Map<String, Object>> result;
+
+        synchronized long add(String memberId, long serverTime) {
+            if (locked) {
+                return BUZZ_LOCKED;
+            }
+            Long firstTime = times.putIfAbsent(memberId, serverTime);
+            if (firstTime != null) {
+                return firstTime;
+            }
+            queue.add(new BuzzEntry(memberId, serverTime));
+            return serverTime;
+        }
+
+        synchronized void lock() {
+            locked = true;
+        }
+
+        synchronized List<BuzzEntry> lockAndSnapshot() {
+            if (!queue.isEmpty()) {
+                locked = true;
+            }
+            return new ArrayList<>(queue);
+        }
+
+        synchronized List<BuzzEntry> snapshot() {
+            return new ArrayList<>(queue);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.qdq.live;
+
+import com.qdq.entity.QuizQuestion;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Redis实时状态存储(多实例共享)
+ * 每个场次三个键，键名带 {sessionId} 哈希标签(集群下落在同一槽位)：
+ * <ul>
+ *     <li>live:{sessionId} Hash: state(场次状态) question(当前题目) countdown(倒计时) buzz(当前开放抢答的题目ID)
+ *     lock:{questionId}(锁定) result:{questionId}(判定结果)</li>
+ *     <li>live:{sessionId}:progress Hash: 用户ID -> 答题进度</li>
+ *     <li>live:{sessionId}:buzz Sorted Set: 开放抢答题目的成员ID -> 服务端时间，开放下一题时清空</li>
+ * </ul>
+ * 抢答队列只属于 buzz 字段记录的题目，其他题目的抢答按已锁定拒绝、读取为空队列。
+ * 需要多步的操作(锁定检查+抢答、锁定+读取队列、开放新题、清除场次、写入+续期)为Lua脚本，一次往返，
+ * 脚本访问的键都通过KEYS传入；值由 LiveStateCodec 编码，删除使用UNLINK(后台释放内存，需Redis 4.0+)
+ */
+public class RedisLiveStateStore implements LiveStateStore {
+
+    private static final String KEY_PREFIX = "live:{";
+    private static final String STATE_FIELD = "state";
+    private static final String QUESTION_FIELD = "question";
+    private static final String COUNTDOWN_FIELD = "countdown";
+    private static final String LOCK_FIELD = "lock:";
+    private static final String RESULT_FIELD = "result:";
+    /** 场次Hash与答题进度的过期时间(秒)，比赛结束时主动清除 */
+    private static final long SESSION_TTL_SECONDS = 24 * 3600;
+    /** 抢答队列的过期时间(秒)，正常情况下开放下一题时已删除 */
+    private static final long BUZZ_TTL_SECONDS = 30 * 60;
+
+    /** 写入Hash字段并续期: KEYS[1]=Hash ARGV=[字段, 值, 过期秒数] */
+    private static final RedisScript<Long> HSET_EXPIRE = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[3]) "
+                    + "return 1", Long.class);
+
+    /**
+     * 题目开放且未锁定时记录抢答(NX: 重复抢答不覆盖第一次的时间)
+     * KEYS=[场次Hash, 抢答队列] ARGV=[题目ID, 锁定字段, 成员ID, 服务端时间, 过期秒数]，
+     * 返回队列中该成员第一次的时间，已锁定或题目未开放返回0
+     */
+    private static final RedisScript<Long> ADD_BUZZ = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'buzz') ~= ARGV[1] "
+                    + "or redis.call('HEXISTS', KEYS[1], ARGV[2]) == 1 then return 0 end "
+                    + "redis.call('ZADD', KEYS[2], 'NX', ARGV[4], ARGV[3]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[5]) "
+                    + "return tonumber(redis.call('ZSCORE', KEYS[2], ARGV[3]))", Long.class);
+
+    /** 读取开放题目的抢答队列(其他题目为空): KEYS=[场次Hash, 抢答队列] ARGV=[题目ID] */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GET_BUZZ_QUEUE = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'buzz') ~= ARGV[1] then return {} end "
+                    + "return redis.call('ZRANGE', KEYS[2], 0, -1, 'WITHSCORES')", List.class);
+
+    /** 锁定并读取抢答队列(队列为空或题目未开放时不锁定): KEYS=[场次Hash, 抢答队列] ARGV=[题目ID, 锁定字段] */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LOCK_BUZZ_QUEUE = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'buzz') ~= ARGV[1] then return {} end "
+                    + "local buzzes = redis.call('ZRANGE', KEYS[2], 0, -1, 'WITHSCORES') "
+                    + "if #buzzes > 0 then redis.call('HSET', KEYS[1], ARGV[2], 'locked') end "
+                    + "return buzzes", List.class);
+
+    /**
+     * 开放题目的抢答: 清空抢答队列，删除上一道开放题目与本题的锁定与结果，记录本题为当前开放题目
+     * KEYS=[场次Hash, 抢答队列] ARGV=[题目ID, 过期秒数]
+     */
+    private static final RedisScript<Long> OPEN_BUZZ = new DefaultRedisScript<>(
+            "local previous = redis.call('HGET', KEYS[1], 'buzz') "
+                    + "if previous and previous ~= ARGV[1] then "
+                    + "redis.call('HDEL', KEYS[1], 'lock:' .. previous, 'result:' .. previous) "
+                    + "end "
+                    + "redis.call('UNLINK', KEYS[2]) "
+                    + "redis.call('HDEL', KEYS[1], 'lock:' .. ARGV[1], 'result:' .. ARGV[1]) "
+                    + "redis.call('HSET', KEYS[1], 'buzz', ARGV[1]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    public RedisLiveStateStore(RedisTemplate<String, byte[]> binaryRedisTemplate) {
+        this.binaryRedisTemplate = binaryRedisTemplate;
+    }
+
+    @Override
+    public long addBuzz(Long sessionId, Long questionId, String memberId, long serverTime) {
+        Long firstTime = binaryRedisTemplate.execute(ADD_BUZZ, List.of(sessionKey(sessionId), buzzKey(sessionId)),
+                bytes(questionId), bytes(LOCK_FIELD + questionId), bytes(memberId), bytes(serverTime),
+                bytes(BUZZ_TTL_SECONDS));
+        return firstTime != null ? firstTime : BUZZ_LOCKED;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BuzzEntry> getBuzzQueue(Long sessionId, Long questionId) {
+        return toEntries(binaryRedisTemplate.execute(GET_BUZZ_QUEUE,
+                List.of(sessionKey(sessionId), buzzKey(sessionId)), bytes(questionId)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BuzzEntry> lockBuzzQueue(Long sessionId, Long questionId) {
+        return toEntries(binaryRedisTemplate.execute(LOCK_BUZZ_QUEUE,
+                List.of(sessionKey(sessionId), buzzKey(sessionId)), bytes(questionId), bytes(LOCK_FIELD + questionId)));
+    }
+
+    @Override
+    public boolean isBuzzLocked(Long sessionId, Long questionId) {
+        return Boolean.TRUE.equals(binaryRedisTemplate.opsForHash().hasKey(sessionKey(sessionId), LOCK_FIELD + questionId));
+    }
+
+    @Override
+    public void lockBuzz(Long sessionId, Long questionId, boolean closedByHost) {
+        putField(sessionKey(sessionId), LOCK_FIELD + questionId, bytes(closedByHost ? "closed" : "locked"));
+    }
+
+    @Override
+    public List<Map<String, Object>> getBuzzResult(Long sessionId, Long questionId) {
+        return LiveStateCodec.decodeBuzzResult(getField(sessionKey(sessionId), RESULT_FIELD + questionId));
+    }
+
+    @Override
+    public void saveBuzzResult(Long sessionId, Long questionId, List<Map<String, Object>> results) {
+        putField(sessionKey(sessionId), RESULT_FIELD + questionId, LiveStateCodec.encodeBuzzResult(results));
+    }
+
+    @Override
+    public void resetBuzz(Long sessionId, Long questionId) {
+        binaryRedisTemplate.execute(OPEN_BUZZ, List.of(sessionKey(sessionId), buzzKey(sessionId)),
+                bytes(questionId), bytes(SESSION_TTL_SECONDS));
+    }
+
+    @Override
+    public void saveSessionState(Long sessionId, Map<String, Object> state) {
+        putField(sessionKey(sessionId), STATE_FIELD, LiveStateCodec.encodeSessionState(state));
+    }
+
+    @Override
+    public Map<String, Object> getSessionState(Long sessionId) {
+        Map<String, Object> state = LiveStateCodec.decodeSessionState(getField(sessionKey(sessionId), STATE_FIELD));
+        return state != null ? state : new HashMap<>();
+    }
+
+    @Override
+    public void saveCurrentQuestion(Long sessionId, QuizQuestion question) {
+        putField(sessionKey(sessionId), QUESTION_FIELD, LiveStateCodec.encodeQuestion(question));
+    }
+
+    @Override
+    public QuizQuestion getCurrentQuestion(Long sessionId) {
+        return LiveStateCodec.decodeQuestion(getField(sessionKey(sessionId), QUESTION_FIELD));
+    }
+
+    @Override
+    public void saveCountdown(Long sessionId, int countdownSeconds) {
+        putField(sessionKey(sessionId), COUNTDOWN_FIELD, bytes(countdownSeconds));
+    }
+
+    @Override
+    public Integer getCountdown(Long sessionId) {
+        byte[] value = getField(sessionKey(sessionId), COUNTDOWN_FIELD);
+        return value != null ? Integer.valueOf(new String(value, StandardCharsets.US_ASCII)) : null;
+    }
+
+    @Override
+    public void saveAnswerProgress(Long sessionId, Long userId, Map<String, Object> progress) {
+        putField(progressKey(sessionId), userId.toString(), LiveStateCodec.encodeProgress(progress));
+    }
+
+    @Override
+    public Map<Object, Object> getAnswerProgress(Long sessionId) {
+        Map<String, byte[]> entries = binaryRedisTemplate.<String, byte[]>opsForHash().entries(progressKey(sessionId));
+        Map<Object, Object> progress = new HashMap<>(entries.size() * 2);
+        entries.forEach((userId, value) -> {
+            Map<String, Object> decoded = LiveStateCodec.decodeProgress(userId, value);
+            if (decoded != null) {
+                progress.put(userId, decoded);
+            }
+        });
+        return progress;
+    }
+
+    @Override
+    public void clearSession(Long sessionId) {
+        binaryRedisTemplate.unlink(List.of(sessionKey(sessionId), progressKey(sessionId), buzzKey(sessionId)));
+    }
+
+    private static List<BuzzEntry> toEntries(List<byte[]> flat) {
+        if (flat == null || flat.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // ZRANGE WITHSCORES 的结果为成员与分数交替
+        List<BuzzEntry> entries = new ArrayList<>(flat.size() / 2);
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            entries.add(new BuzzEntry(new String(flat.get(i), StandardCharsets.UTF_8),
+                    (long) Double.parseDouble(new String(flat.get(i + 1), StandardCharsets.US_ASCII))));
+        }
+        return entries;
+    }
+
+    private void putField(String key, String field, byte[] value) {
+        binaryRedisTemplate.execute(HSET_EXPIRE, List.of(key), bytes(field), value, bytes(SESSION_TTL_SECONDS));
+    }
+
+    private byte[] getField(String key, String field) {
+        return binaryRedisTemplate.<String, byte[]>opsForHash().get(key, field);
+    }
+
+    private static String sessionKey(Long sessionId) {
+        return KEY_PREFIX + sessionId + "}";
+    }
+
+    private static String progressKey(Long sessionId) {
+        return KEY_PREFIX + sessionId + "}:progress";
+    }
+
+    private static String buzzKey(Long sessionId) {
+        return KEY_PREFIX + sessionId + "}:buzz";
+    }
+
+    private static byte[] bytes(Object value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
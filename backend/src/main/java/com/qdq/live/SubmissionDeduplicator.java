@@ -0,0 +1,153 @@
+package com.qdq.live;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 抢答与答题提交去重(进程内)
+ * 客户端弱网重试时，同一参与者对当前题目的重复抢答、相同请求ID的重复答题直接按已记录的结果应答，
+ * 不再查询场次也不再写实时状态存储。每个场次只保留当前题目的记录：参与者在场次内分配固定槽位，
+ * 抢答记录为槽位位图加抢答时间数组，答题记录为请求ID到受理时间的小Map，开放下一题时整体替换
+ */
+@Component
+public class SubmissionDeduplicator {
+
+    /** 未记录抢答/答题 */
+    public static final long NOT_RECORDED = -1;
+    /** 每道题记录的答题请求ID上限，超出后的请求不再去重 */
+    private static final int MAX_REQUEST_IDS = 4096;
+
+    private final Map<Long, SessionSubmissions> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 开放题目(清除该场次上一题的记录)
+     */
+    public void open(Long sessionId, Long questionId) {
+        session(sessionId).open(questionId);
+    }
+
+    /**
+     * 参与者对题目已记录的抢答时间，未记录时返回 NOT_RECORDED
+     */
+    public long buzzTime(Long sessionId, Long questionId, String memberId) {
+        SessionSubmissions session = sessions.get(sessionId);
+        if (session == null) {
+            return NOT_RECORDED;
+        }
+        QuestionSubmissions question = session.current;
+        Integer slot = session.slots.get(memberId);
+        if (question == null || slot == null || !question.questionId.equals(questionId)) {
+            return NOT_RECORDED;
+        }
+        return question.buzzTime(slot);
+    }
+
+    /**
+     * 记录抢答受理(调用方已校验题目为场次当前题目，题目变化时替换上一题的记录)
+     * 只记录实时状态存储已确认的时间(LiveStateStore.addBuzz 的返回值)，去重记录不先于抢答队列出现
+     *
+     * @return 参与者已记录的抢答时间，首次记录时即本次时间
+     */
+    public long recordBuzz(Long sessionId, Long questionId, String memberId, long serverTime) {
+        SessionSubmissions session = session(sessionId);
+        return session.question(questionId).recordBuzz(session.slot(memberId), serverTime);
+    }
+
+    /**
+     * 记录答题请求的受理时间
+     *
+     * @return 同一题目已受理过该请求ID时返回第一次的受理时间，否则记录本次并返回 NOT_RECORDED
+     */
+    public long recordAnswer(Long sessionId, Long questionId, String requestId, long receivedAt) {
+        SessionSubmissions session = sessions.get(sessionId);
+        QuestionSubmissions question = session != null ? session.current : null;
+        if (question == null || !question.questionId.equals(questionId)) {
+            // 非当前题目的答题不改变当前题目的记录
+            return NOT_RECORDED;
+        }
+        return question.recordAnswer(requestId, receivedAt);
+    }
+
+    /**
+     * 清除场次的记录(比赛结束、修改或删除场次时)
+     */
+    public void clear(Long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private SessionSubmissions session(Long sessionId) {
+        return sessions.computeIfAbsent(sessionId, k -> new SessionSubmissions());
+    }
+
+    private static final class SessionSubmissions {
+
+        /** 成员ID -> 槽位，场次内不变 */
+        final Map<String, Integer> slots = new ConcurrentHashMap<>();
+        final AtomicInteger nextSlot = new AtomicInteger();
+        volatile QuestionSubmissions current;
+
+        int slot(String memberId) {
+            return slots.computeIfAbsent(memberId, k -> nextSlot.getAndIncrement());
+        }
+
+        synchronized void open(Long questionId) {
+            current = new QuestionSubmissions(questionId);
+        }
+
+        synchronized QuestionSubmissions question(Long questionId) {
+            QuestionSubmissions question = current;
+            if (question == null || !question.questionId.equals(questionId)) {
+                question = new QuestionSubmissions(questionId);
+                current = question;
+            }
+            return question;
+        }
+    }
+
+    private static final class QuestionSubmissions {
+
+        final Long questionId;
+        /** 已抢答的槽位 */
+        final BitSet buzzed = new BitSet();
+        long[] buzzTimes = new long[64];
+        /** 答题请求ID -> 受理时间 */
+        final Map<String, Long> answers = new HashMap<>();
+
+        QuestionSubmissions(Long questionId) {
+            this.questionId = questionId;
+        }
+
+        synchronized long buzzTime(int slot) {
+            return buzzed.get(slot) ? buzzTimes[slot] : NOT_RECORDED;
+        }
+
+        synchronized long recordBuzz(int slot, long serverTime) {
+            if (buzzed.get(slot)) {
+                return buzzTimes[slot];
+            }
+            if (slot >= buzzTimes.length) {
+                buzzTimes = Arrays.copyOf(buzzTimes, Math.max(buzzTimes.length * 2, slot + 1));
+            }
+            buzzTimes[slot] = serverTime;
+            buzzed.set(slot);
+            return serverTime;
+        }
+
+        synchronized long recordAnswer(String requestId, long receivedAt) {
+            Long recorded = answers.get(requestId);
+            if (recorded != null) {
+                return recorded;
+            }
+            if (answers.size() < MAX_REQUEST_IDS) {
+                answers.put(requestId, receivedAt);
+            }
+            return NOT_RECORDED;
+        }
+    }
+}
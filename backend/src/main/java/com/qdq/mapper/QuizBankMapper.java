@@ -3,10 +3,25 @@ package com.qdq.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.qdq.entity.QuizBank;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
 /**
  * 题库Mapper
  */
 @Mapper
 public interface QuizBankMapper extends BaseMapper<QuizBank> {
+
+    /**
+     * 原子增减题目数量
+     */
+    @Update("UPDATE quiz_bank SET total_questions = GREATEST(total_questions + #{delta}, 0) WHERE id = #{bankId}")
+    int adjustTotalQuestions(@Param("bankId") Long bankId, @Param("delta") int delta);
+
+    /**
+     * 校正题目数量(仅当当前值仍为expected时更新，避免覆盖并发的增减)
+     */
+    @Update("UPDATE quiz_bank SET total_questions = #{actual} WHERE id = #{bankId} AND total_questions = #{expected}")
+    int correctTotalQuestions(@Param("bankId") Long bankId, @Param("expected") int expected,
+                              @Param("actual") int actual);
 }
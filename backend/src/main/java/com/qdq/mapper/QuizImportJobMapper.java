@@ -0,0 +1,12 @@
+package com.qdq.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.qdq.entity.QuizImportJob;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 题目导入任务 Mapper 接口
+ */
+@Mapper
+public interface QuizImportJobMapper extends BaseMapper<QuizImportJob> {
+}
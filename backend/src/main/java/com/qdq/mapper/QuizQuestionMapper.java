@@ -3,10 +3,21 @@ package com.qdq.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.qdq.entity.QuizQuestion;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 题目 Mapper 接口
  */
 @Mapper
 public interface QuizQuestionMapper extends BaseMapper<QuizQuestion> {
+
+    /**
+     * 按题库统计题目数量(bankId, total)
+     */
+    @Select("SELECT bank_id AS bankId, COUNT(*) AS total FROM quiz_question " +
+            "WHERE deleted = 0 AND bank_id IS NOT NULL GROUP BY bank_id")
+    List<Map<String, Object>> countGroupByBank();
 }
@@ -0,0 +1,45 @@
+package com.qdq.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.qdq.entity.SysFileBlob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 物理文件Mapper
+ */
+@Mapper
+public interface SysFileBlobMapper extends BaseMapper<SysFileBlob> {
+
+    /**
+     * 登记按内容寻址的物理文件(已登记时不变，新登记的引用数为0)
+     */
+    @Insert("INSERT IGNORE INTO sys_file_blob (content_hash, file_path, ref_count) VALUES (#{contentHash}, #{filePath}, 0)")
+    int insertIfAbsent(@Param("contentHash") String contentHash, @Param("filePath") String filePath);
+
+    /**
+     * 按摘要查询并加行锁(同一内容的落盘、引用增减与回收跨节点互斥)
+     */
+    @Select("SELECT * FROM sys_file_blob WHERE content_hash = #{contentHash} FOR UPDATE")
+    SysFileBlob selectByHashForUpdate(@Param("contentHash") String contentHash);
+
+    @Select("SELECT * FROM sys_file_blob WHERE id = #{id} FOR UPDATE")
+    SysFileBlob selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 增减引用数(结果不能小于0)
+     */
+    @Update("UPDATE sys_file_blob SET ref_count = ref_count + #{delta} WHERE id = #{id} AND ref_count + #{delta} >= 0")
+    int adjustRefCount(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 引用数为0、待删除的物理文件
+     */
+    @Select("SELECT id FROM sys_file_blob WHERE ref_count = 0 ORDER BY id LIMIT #{limit}")
+    List<Long> selectUnreferencedIds(@Param("limit") int limit);
+}
@@ -0,0 +1,159 @@
+package com.qdq.metrics;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.Collector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低开销延迟直方图(每次抢答、每个接收连接都要记录的热点)
+ * 记录时只做一次位运算定位桶和两次LongAdder累加；桶按2的幂划分(约1us到1s)。
+ * Prometheus注册表下作为一个 histogram 输出 {name}_seconds_bucket{le=...}/_count/_sum，
+ * 可直接用 histogram_quantile 计算分位数；其他注册表(测试)只输出次数与总耗时
+ */
+public class LatencyHistogram extends Collector {
+
+    /** 最小桶上界: 1024ns */
+    private static final int MIN_SHIFT = 10;
+    /** 最大桶上界: 2^30ns(约1.07s)，更长的计入+Inf */
+    private static final int BUCKETS = 21;
+    private static final String[] UPPER_BOUNDS = new String[BUCKETS + 1];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS[i] = Collector.doubleToGoString((1L << (MIN_SHIFT + i)) / 1e9);
+        }
+        UPPER_BOUNDS[BUCKETS] = "+Inf";
+    }
+
+    private final String name;
+    private final String description;
+    private final List<String> labelNames = new ArrayList<>();
+    private final List<String> commonLabelValues = new ArrayList<>();
+    private final String labelName;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+
+    /**
+     * @param commonTags  注册表的公共标签(如 application)，自定义收集器不经过Micrometer的MeterFilter，需显式带上
+     * @param labelName   区分子序列的标签名
+     * @param labelValues 标签的全部取值(预先创建，记录时不查找)
+     */
+    public LatencyHistogram(MeterRegistry registry, String name, String description, Iterable<Tag> commonTags,
+                            String labelName, String... labelValues) {
+        this.name = name.replace('.', '_') + "_seconds";
+        this.description = description;
+        this.labelName = labelName;
+        for (Tag tag : commonTags) {
+            labelNames.add(tag.getKey());
+            commonLabelValues.add(tag.getValue());
+        }
+        if (labelName != null) {
+            labelNames.add(labelName);
+        }
+        for (String value : labelValues.length > 0 ? labelValues : new String[]{null}) {
+            recorders.put(value, new Recorder());
+        }
+        List<PrometheusMeterRegistry> prometheus = prometheusRegistries(registry);
+        if (!prometheus.isEmpty()) {
+            prometheus.forEach(target -> register(target.getPrometheusRegistry()));
+            return;
+        }
+        recorders.forEach((value, recorder) -> FunctionTimer.builder(name, recorder, Recorder::count,
+                        Recorder::totalNanos, TimeUnit.NANOSECONDS)
+                .description(description)
+                .tags(value != null ? Tags.of(labelName, value) : Tags.empty())
+                .register(registry));
+    }
+
+    /**
+     * 某个标签取值的记录器(无标签时传null)
+     */
+    public Recorder recorder(String labelValue) {
+        return recorders.get(labelValue);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        recorders.forEach((value, recorder) -> {
+            List<String> values = new ArrayList<>(commonLabelValues);
+            if (labelName != null) {
+                values.add(value);
+            }
+            List<String> bucketNames = new ArrayList<>(labelNames);
+            bucketNames.add("le");
+            // 同一次抓取内各桶、次数取自同一份快照，累计桶单调且+Inf等于次数
+            long cumulative = 0;
+            for (int i = 0; i <= BUCKETS; i++) {
+                cumulative += recorder.buckets[i].sum();
+                List<String> bucketValues = new ArrayList<>(values);
+                bucketValues.add(UPPER_BOUNDS[i]);
+                samples.add(new MetricFamilySamples.Sample(name + "_bucket", bucketNames, bucketValues, cumulative));
+            }
+            samples.add(new MetricFamilySamples.Sample(name + "_count", labelNames, values, cumulative));
+            samples.add(new MetricFamilySamples.Sample(name + "_sum", labelNames, values, recorder.totalNanos() / 1e9));
+        });
+        return Collections.singletonList(new MetricFamilySamples(name, Type.HISTOGRAM, description, samples));
+    }
+
+    private static List<PrometheusMeterRegistry> prometheusRegistries(MeterRegistry registry) {
+        if (registry instanceof PrometheusMeterRegistry prometheus) {
+            return List.of(prometheus);
+        }
+        List<PrometheusMeterRegistry> found = new ArrayList<>();
+        if (registry instanceof CompositeMeterRegistry composite) {
+            for (MeterRegistry child : composite.getRegistries()) {
+                found.addAll(prometheusRegistries(child));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 单个序列的桶计数
+     */
+    public static final class Recorder {
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Recorder() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * 记录一次耗时
+         */
+        public void record(long nanos) {
+            // nanos <= 2^(MIN_SHIFT+i) 落入第i个桶
+            int index = nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros((nanos - 1) >> MIN_SHIFT);
+            buckets[Math.min(index, BUCKETS)].increment();
+            totalNanos.add(nanos);
+        }
+
+        private long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        private double totalNanos() {
+            return totalNanos.sum();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.qdq.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 逐题延迟追踪
+ * 从主持人推题开始，记录推题广播、每个连接的发送完成、抢答到达、受理、判定窗口关闭、结果广播的单调时钟时间戳；
+ * 每道题一个定长环形缓冲区(基本类型数组，写满后覆盖最早的事件)，每个场次保留最近若干道题，按需导出为时间线
+ */
+@Component
+public class QuestionTracer {
+
+    /** 事件类型 */
+    public static final byte QUESTION_REQUEST = 1;
+    public static final byte QUESTION_READY = 2;
+    public static final byte BROADCAST_START = 3;
+    public static final byte SEND = 4;
+    public static final byte BROADCAST_END = 5;
+    public static final byte BUZZ_RECEIVED = 6;
+    public static final byte BUZZ_ADMITTED = 7;
+    public static final byte BUZZ_RESPONSE = 8;
+    public static final byte WINDOW_CLOSE = 9;
+
+    private static final String[] EVENT_NAMES = {null, "question_request", "question_ready", "broadcast_start",
+            "send", "broadcast_end", "buzz_received", "buzz_admitted", "buzz_response", "window_close"};
+
+    /** 需要记录逐连接发送的广播事件(其余广播不追踪，避免挤占缓冲区) */
+    private static final Set<String> TRACED_BROADCASTS = Set.of("question_push", "buzz_result");
+
+    @Value("${quiz.trace.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quiz.trace.events-per-question:16384}")
+    private int eventsPerQuestion;
+
+    @Value("${quiz.trace.questions-per-session:10}")
+    private int questionsPerSession;
+
+    @Value("${quiz.trace.max-sessions:8}")
+    private int maxSessions;
+
+    /** 场次ID -> 当前题目的追踪(热点路径只查这里) */
+    private final Map<Long, QuestionTrace> current = new ConcurrentHashMap<>();
+
+    /** 场次ID -> 最近的题目追踪(按场次最近推题时间排序) */
+    private final LinkedHashMap<Long, Deque<QuestionTrace>> history = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 开始追踪新题目
+     *
+     * @param requestNanos 推题请求到达时的 System.nanoTime()
+     */
+    public void begin(Long sessionId, Long questionId, long requestNanos) {
+        if (!enabled) {
+            return;
+        }
+        QuestionTrace trace = new QuestionTrace(questionId, requestNanos, Integer.highestOneBit(Math.max(eventsPerQuestion, 64)));
+        trace.record(QUESTION_REQUEST, requestNanos, 0, null);
+        trace.record(QUESTION_READY, trace.readyNanos, 0, null);
+        synchronized (history) {
+            Deque<QuestionTrace> traces = history.computeIfAbsent(sessionId, k -> new ArrayDeque<>());
+            traces.addLast(trace);
+            while (traces.size() > questionsPerSession) {
+                traces.removeFirst();
+            }
+            Iterator<Map.Entry<Long, Deque<QuestionTrace>>> iterator = history.entrySet().iterator();
+            while (history.size() > maxSessions && iterator.hasNext()) {
+                Long eldest = iterator.next().getKey();
+                iterator.remove();
+                current.remove(eldest);
+            }
+        }
+        current.put(sessionId, trace);
+    }
+
+    /**
+     * 记录当前题目的事件(题目不是当前题目时忽略)
+     *
+     * @param value 事件附加数值(用户/队伍ID、受理结果等)
+     * @param ref   事件关联对象(连接ID、成员ID、广播事件名)，只保存引用
+     */
+    public void record(Long sessionId, Long questionId, byte type, long nanos, long value, Object ref) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        QuestionTrace trace = current.get(sessionId);
+        if (trace != null && (questionId == null || trace.questionId.equals(questionId))) {
+            trace.record(type, nanos, value, ref);
+        }
+    }
+
+    /**
+     * 广播是否需要追踪(返回当前题目追踪，不需要时返回null，调用方按连接逐个记录)
+     */
+    public QuestionTrace broadcastTrace(Long sessionId, String event) {
+        if (!enabled || !TRACED_BROADCASTS.contains(event)) {
+            return null;
+        }
+        return current.get(sessionId);
+    }
+
+    /**
+     * 场次最近追踪的题目概要
+     */
+    public List<Map<String, Object>> list(Long sessionId) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (QuestionTrace trace : traces(sessionId)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("questionId", trace.questionId);
+            item.put("startTime", trace.startMillis);
+            item.put("events", Math.min(trace.cursor.get(), trace.types.length));
+            item.put("dropped", Math.max(0, trace.cursor.get() - trace.types.length));
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * 导出题目时间线(questionId为空时取最近一题)，时间为相对推题请求的微秒数
+     * 题目进行中导出时，正在写入的个别事件可能不完整
+     */
+    public Map<String, Object> timeline(Long sessionId, Long questionId) {
+        List<QuestionTrace> traces = traces(sessionId);
+        QuestionTrace trace = null;
+        for (QuestionTrace candidate : traces) {
+            if (questionId == null || candidate.questionId.equals(questionId)) {
+                trace = candidate;
+            }
+        }
+        if (trace == null) {
+            return null;
+        }
+
+        List<long[]> slots = trace.snapshot();
+        List<Map<String, Object>> events = new ArrayList<>(slots.size());
+        Map<String, Long> marks = new HashMap<>();
+        long firstSend = -1;
+        long lastSend = -1;
+        String currentBroadcast = null;
+        for (long[] slot : slots) {
+            int index = (int) slot[0];
+            byte type = trace.types[index];
+            long offsetMicros = (slot[1] - trace.startNanos) / 1000;
+            Object ref = trace.refs[index];
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("t", offsetMicros);
+            event.put("event", EVENT_NAMES[type]);
+            if (ref != null) {
+                event.put("ref", ref.toString());
+            }
+            if (trace.values[index] != 0) {
+                event.put("value", trace.values[index]);
+            }
+            events.add(event);
+
+            // 关键节点(同类事件取第一次)
+            if (type == BROADCAST_START) {
+                currentBroadcast = String.valueOf(ref);
+                marks.putIfAbsent(currentBroadcast + "_start", offsetMicros);
+            } else if (type == BROADCAST_END) {
+                marks.putIfAbsent(ref + "_end", offsetMicros);
+            } else if (type == SEND && "question_push".equals(currentBroadcast)) {
+                firstSend = firstSend < 0 ? offsetMicros : firstSend;
+                lastSend = offsetMicros;
+            } else if (type != SEND) {
+                marks.putIfAbsent(EVENT_NAMES[type], offsetMicros);
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("questionReadyUs", (trace.readyNanos - trace.startNanos) / 1000);
+        summary.put("pushStartUs", marks.get("question_push_start"));
+        summary.put("pushFirstSendUs", firstSend >= 0 ? firstSend : null);
+        summary.put("pushLastSendUs", lastSend >= 0 ? lastSend : null);
+        summary.put("firstBuzzReceivedUs", marks.get("buzz_received"));
+        summary.put("firstBuzzAdmittedUs", marks.get("buzz_admitted"));
+        summary.put("windowCloseUs", marks.get("window_close"));
+        summary.put("resultStartUs", marks.get("buzz_result_start"));
+        summary.put("resultEndUs", marks.get("buzz_result_end"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sessionId", sessionId);
+        result.put("questionId", trace.questionId);
+        result.put("startTime", trace.startMillis);
+        result.put("dropped", Math.max(0, trace.cursor.get() - trace.types.length));
+        result.put("summary", summary);
+        result.put("events", events);
+        return result;
+    }
+
+    private List<QuestionTrace> traces(Long sessionId) {
+        synchronized (history) {
+            Deque<QuestionTrace> traces = history.get(sessionId);
+            return traces != null ? new ArrayList<>(traces) : Collections.emptyList();
+        }
+    }
+
+    /**
+     * 单道题的事件环形缓冲区
+     * 写入只有一次原子自增，各字段按槽位写入，序号最后写入作为发布标记
+     */
+    public static final class QuestionTrace {
+
+        private final Long questionId;
+        private final long startNanos;
+        private final long startMillis;
+        /** 推题完成时间(单独保存，缓冲区写满后仍可计算各阶段耗时) */
+        private final long readyNanos;
+        private final int mask;
+        private final byte[] types;
+        private final long[] nanos;
+        private final long[] values;
+        private final Object[] refs;
+        private final int[] sequences;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        QuestionTrace(Long questionId, long startNanos, int capacity) {
+            this.questionId = questionId;
+            this.startNanos = startNanos;
+            this.readyNanos = System.nanoTime();
+            this.startMillis = System.currentTimeMillis() - (readyNanos - startNanos) / 1_000_000;
+            this.mask = capacity - 1;
+            this.types = new byte[capacity];
+            this.nanos = new long[capacity];
+            this.values = new long[capacity];
+            this.refs = new Object[capacity];
+            this.sequences = new int[capacity];
+        }
+
+        public void record(byte type, long timestamp, long value, Object ref) {
+            int sequence = cursor.getAndIncrement();
+            int index = sequence & mask;
+            types[index] = type;
+            nanos[index] = timestamp;
+            values[index] = value;
+            refs[index] = ref;
+            sequences[index] = sequence + 1;
+        }
+
+        /**
+         * 已发布的槽位 [槽位下标, 时间戳]，按时间排序
+         */
+        private List<long[]> snapshot() {
+            int end = cursor.get();
+            int start = Math.max(0, end - types.length);
+            List<long[]> slots = new ArrayList<>(end - start);
+            for (int sequence = start; sequence < end; sequence++) {
+                int index = sequence & mask;
+                if (sequences[index] == sequence + 1) {
+                    slots.add(new long[]{index, nanos[index]});
+                }
+            }
+            slots.sort(Comparator.comparingLong(slot -> slot[1]));
+            return slots;
+        }
+    }
+}
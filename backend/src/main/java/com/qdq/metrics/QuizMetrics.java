@@ -0,0 +1,168 @@
+package com.qdq.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 比赛热点路径指标(通过 /actuator/prometheus 暴露)
+ * 每次抢答、每个接收连接都要记录的热点使用 LatencyHistogram(几次LongAdder累加)，
+ * 每次广播/每道题一次的指标使用Micrometer计时器(直方图桶在 application.yml 的 management.metrics.distribution 中配置)；
+ * 记录器与计时器均预先创建，不在调用时查找注册表。
+ * 场次连接数只为确认存在且未结束的场次注册，订阅清空或比赛结束时移除，标签基数不超过进行中的场次数
+ */
+@Component
+public class QuizMetrics {
+
+    /** 允许作为标签的WebSocket事件(其余归为unknown，避免标签基数失控) */
+    private static final Set<String> KNOWN_EVENTS = Set.of(
+            "join_session", "leave_session", "client_buzz", "submit_answer", "ping");
+
+    private final MeterRegistry registry;
+
+    private final LatencyHistogram.Recorder buzzAccepted;
+    private final LatencyHistogram.Recorder buzzLocked;
+    private final LatencyHistogram.Recorder buzzRejected;
+    private final LatencyHistogram.Recorder buzzDuplicate;
+    private final LatencyHistogram.Recorder recipientSend;
+    private final Timer buzzResultLatency;
+    private final Map<String, Timer> broadcastTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> inboundCounters = new ConcurrentHashMap<>();
+    private final Map<Long, Gauge> sessionGauges = new ConcurrentHashMap<>();
+
+    /** 正在发送中的消息数(发送为同步调用，即出站排队深度) */
+    private final AtomicInteger outboundPending = new AtomicInteger();
+
+    public QuizMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge pending = Gauge.builder("quiz.ws.outbound.pending", outboundPending, AtomicInteger::get)
+                .description("正在发送中的出站消息数")
+                .register(registry);
+        // 该计量器自身没有标签，注册后带上的即注册表的公共标签
+        List<Tag> commonTags = pending.getId().getTags();
+        LatencyHistogram admission = new LatencyHistogram(registry, "quiz.buzz.admission", "抢答受理耗时",
+                commonTags, "outcome", "accepted", "locked", "rejected", "duplicate");
+        this.buzzAccepted = admission.recorder("accepted");
+        this.buzzLocked = admission.recorder("locked");
+        this.buzzRejected = admission.recorder("rejected");
+        this.buzzDuplicate = admission.recorder("duplicate");
+        this.recipientSend = new LatencyHistogram(registry, "quiz.ws.send", "单个连接的消息发送耗时",
+                commonTags, null).recorder(null);
+        this.buzzResultLatency = Timer.builder("quiz.buzz.result.latency")
+                .description("首个抢答到抢答结果广播完成的耗时")
+                .register(registry);
+        for (String event : KNOWN_EVENTS) {
+            inboundCounter(event);
+        }
+    }
+
+    /**
+     * 记录抢答受理耗时
+     *
+     * @param outcome accepted/locked/rejected/duplicate
+     * @return 结束时间(System.nanoTime，调用方复用于链路追踪，不再另读时钟)
+     */
+    public long recordBuzzAdmission(String outcome, long startNanos) {
+        LatencyHistogram.Recorder recorder = switch (outcome) {
+            case "accepted" -> buzzAccepted;
+            case "locked" -> buzzLocked;
+            case "duplicate" -> buzzDuplicate;
+            default -> buzzRejected;
+        };
+        long endNanos = System.nanoTime();
+        recorder.record(endNanos - startNanos);
+        return endNanos;
+    }
+
+    /**
+     * 记录首个抢答(服务端时间)到结果广播完成的耗时
+     */
+    public void recordBuzzResult(long firstBuzzMillis) {
+        buzzResultLatency.record(Math.max(0, System.currentTimeMillis() - firstBuzzMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次广播扇出耗时
+     */
+    public void recordBroadcast(String event, long startNanos) {
+        broadcastTimers.computeIfAbsent(event, e -> Timer.builder("quiz.ws.broadcast")
+                        .description("向场次全部连接扇出一条消息的耗时")
+                        .tag("event", e)
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 单个连接发送开始(返回开始时间)
+     */
+    public long sendStarted() {
+        outboundPending.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 单个连接发送结束
+     *
+     * @return 结束时间(System.nanoTime)
+     */
+    public long sendFinished(long startNanos) {
+        outboundPending.decrementAndGet();
+        long endNanos = System.nanoTime();
+        recipientSend.record(endNanos - startNanos);
+        return endNanos;
+    }
+
+    /**
+     * 入站事件计数
+     */
+    public void countInbound(String event) {
+        inboundCounter(event != null && KNOWN_EVENTS.contains(event) ? event : "unknown").increment();
+    }
+
+    /**
+     * 注册全部连接数
+     */
+    public void registerConnections(Map<String, ?> sessions) {
+        Gauge.builder("quiz.ws.connections", sessions, Map::size)
+                .description("当前WebSocket连接数")
+                .register(registry);
+    }
+
+    /**
+     * 注册场次订阅连接数(订阅集合创建时调用，调用方须已确认场次存在且未结束)
+     */
+    public void registerSessionConnections(Long quizSessionId, Collection<?> subscribers) {
+        sessionGauges.computeIfAbsent(quizSessionId, id -> Gauge.builder("quiz.ws.session.connections", subscribers, Collection::size)
+                .description("场次订阅的连接数")
+                .tag("sessionId", String.valueOf(id))
+                .register(registry));
+    }
+
+    /**
+     * 移除场次订阅连接数(订阅集合清空或比赛结束时调用)
+     */
+    public void removeSessionConnections(Long quizSessionId) {
+        Gauge gauge = sessionGauges.remove(quizSessionId);
+        if (gauge != null) {
+            registry.remove(gauge);
+        }
+    }
+
+    private Counter inboundCounter(String event) {
+        return inboundCounters.computeIfAbsent(event, e -> Counter.builder("quiz.ws.inbound")
+                .description("收到的WebSocket事件数")
+                .tag("event", e)
+                .register(registry));
+    }
+}
@@ -0,0 +1,374 @@
+package com.qdq.service;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import com.qdq.util.MappedBufferUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * 抢答/答题审计日志
+ * 热点路径只把事件放入有界队列(队列满时丢弃并计数，不阻塞抢答)；
+ * 单个后台线程批量编码为二进制记录，追加写入按日滚动的 audit-yyyyMMdd.bin，定期刷盘
+ * <p>
+ * 文件格式: 文件头 magic(int "QDQA") + version(short)；
+ * 每条记录 length(short，记录体字节数) crc32(int，记录体) | type(byte) outcome(byte) time(long) sessionId(long)
+ * questionId(long) userId(long) teamId(long) textLength(short) text(UTF-8)，均为大端序，缺省ID记为0。
+ * 打开已有文件续写前截掉最后一条有效记录之后的内容(上次写入中断留下的半条记录)
+ */
+@Slf4j
+@Service
+public class AuditLogService {
+
+    public static final byte BUZZ = 1;
+    public static final byte ANSWER = 2;
+
+    /** 抢答受理结果 */
+    public static final byte OUTCOME_ACCEPTED = 1;
+    public static final byte OUTCOME_LOCKED = 2;
+    public static final byte OUTCOME_REJECTED = 3;
+    /** 重复抢答(客户端重试)，按已记录的抢答应答 */
+    public static final byte OUTCOME_DUPLICATE = 4;
+
+    private static final int MAGIC = 0x51445141;
+    private static final short VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 6;
+    private static final int RECORD_PREFIX_SIZE = 6;
+    private static final int RECORD_BODY_HEADER_SIZE = 44;
+    private static final int MAX_TEXT_BYTES = 4096;
+    private static final int BATCH_SIZE = 1024;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Value("${quiz.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quiz.audit.path:./audit}")
+    private String auditPath;
+
+    @Value("${quiz.audit.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${quiz.audit.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private BlockingQueue<AuditEvent> queue;
+    private ExecutorService writer;
+    private volatile boolean running;
+    private final LongAdder dropped = new LongAdder();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private LocalDate channelDate;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = Executors.newSingleThreadExecutor(ThreadUtil.newNamedThreadFactory("audit-writer-", true));
+        writer.execute(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // 不中断写线程(中断会关闭FileChannel)，等它写完队列后退出
+        running = false;
+        writer.shutdown();
+        writer.awaitTermination(flushIntervalMs + TimeUnit.SECONDS.toMillis(5), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录抢答受理
+     *
+     * @param outcome OUTCOME_ACCEPTED/OUTCOME_LOCKED/OUTCOME_REJECTED/OUTCOME_DUPLICATE
+     */
+    public void buzz(Long sessionId, Long questionId, Long userId, Long teamId, byte outcome, long serverTime) {
+        append(new AuditEvent(BUZZ, outcome, serverTime, id(sessionId), id(questionId), id(userId), id(teamId), null));
+    }
+
+    /**
+     * 记录答案提交
+     */
+    public void answer(Long sessionId, Long questionId, Long userId, Long teamId, String answer) {
+        append(new AuditEvent(ANSWER, (byte) 0, System.currentTimeMillis(), id(sessionId), id(questionId),
+                id(userId), id(teamId), answer));
+    }
+
+    /**
+     * 读取某日的审计记录(按场次、题目过滤，最多limit条)
+     */
+    public List<Map<String, Object>> read(LocalDate date, Long sessionId, Long questionId, int limit) {
+        Path file = filePath(date);
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> events = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.remaining() < FILE_HEADER_SIZE || data.getInt() != MAGIC || data.getShort() != VERSION) {
+                throw new IOException("不是审计日志文件: " + file);
+            }
+            CRC32 checksum = new CRC32();
+            int length;
+            while (events.size() < limit && (length = recordLength(data, checksum)) > 0) {
+                int next = data.position() + RECORD_PREFIX_SIZE + length;
+                data.position(data.position() + RECORD_PREFIX_SIZE);
+                byte type = data.get();
+                byte outcome = data.get();
+                long time = data.getLong();
+                long recordSessionId = data.getLong();
+                long recordQuestionId = data.getLong();
+                long userId = data.getLong();
+                long teamId = data.getLong();
+                byte[] text = new byte[Short.toUnsignedInt(data.getShort())];
+                data.get(text);
+                data.position(next);
+                if ((sessionId != null && recordSessionId != sessionId)
+                        || (questionId != null && recordQuestionId != questionId)) {
+                    continue;
+                }
+                Map<String, Object> event = new LinkedHashMap<>();
+                event.put("type", type == BUZZ ? "buzz" : "answer");
+                event.put("time", time);
+                event.put("sessionId", recordSessionId);
+                event.put("questionId", recordQuestionId);
+                if (userId != 0) {
+                    event.put("userId", userId);
+                }
+                if (teamId != 0) {
+                    event.put("teamId", teamId);
+                }
+                if (type == BUZZ) {
+                    event.put("outcome", switch (outcome) {
+                        case OUTCOME_ACCEPTED -> "accepted";
+                        case OUTCOME_LOCKED -> "locked";
+                        case OUTCOME_DUPLICATE -> "duplicate";
+                        default -> "rejected";
+                    });
+                } else {
+                    event.put("answer", new String(text, StandardCharsets.UTF_8));
+                }
+                events.add(event);
+            }
+        } catch (IOException e) {
+            log.warn("读取审计日志失败: {}, {}", file, e.getMessage());
+        }
+        return events;
+    }
+
+    private void append(AuditEvent event) {
+        if (queue != null && !queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 后台写入: 批量取出事件，编码后写入文件，按间隔刷盘
+     */
+    private void writeLoop() {
+        List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+        long lastForce = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastForce >= flushIntervalMs) {
+                    force();
+                    lastForce = now;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                log.error("审计日志写入失败，丢弃{}条", batch.size(), e);
+                batch.clear();
+                buffer.clear();
+                closeChannel();
+            }
+        }
+        try {
+            force();
+        } catch (IOException e) {
+            log.warn("审计日志刷盘失败: {}", e.getMessage());
+        }
+        closeChannel();
+    }
+
+    private void write(List<AuditEvent> batch) throws IOException {
+        for (AuditEvent event : batch) {
+            LocalDate date = LocalDate.now();
+            if (channel == null || !date.equals(channelDate)) {
+                flushBuffer();
+                open(date);
+            }
+            byte[] text = encodeText(event.text());
+            int bodyLength = RECORD_BODY_HEADER_SIZE + text.length;
+            if (buffer.remaining() < RECORD_PREFIX_SIZE + bodyLength) {
+                flushBuffer();
+            }
+            int start = buffer.position();
+            buffer.position(start + RECORD_PREFIX_SIZE);
+            buffer.put(event.type());
+            buffer.put(event.outcome());
+            buffer.putLong(event.time());
+            buffer.putLong(event.sessionId());
+            buffer.putLong(event.questionId());
+            buffer.putLong(event.userId());
+            buffer.putLong(event.teamId());
+            buffer.putShort((short) text.length);
+            buffer.put(text);
+            crc.reset();
+            crc.update(buffer.slice(start + RECORD_PREFIX_SIZE, bodyLength));
+            buffer.putShort(start, (short) bodyLength);
+            buffer.putInt(start + 2, (int) crc.getValue());
+        }
+        flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            log.warn("审计队列已满，丢弃{}条事件", lost);
+        }
+    }
+
+    private void open(LocalDate date) throws IOException {
+        closeChannel();
+        Path file = filePath(date);
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channelDate = date;
+        long validEnd = validEnd(file);
+        if (validEnd < channel.size()) {
+            log.warn("审计日志末尾有不完整记录，截断: {}, {} -> {}字节", file, channel.size(), validEnd);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        if (validEnd == 0) {
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+        }
+    }
+
+    /**
+     * 已有文件中最后一条有效记录的结束位置(文件头无效时为0，整个文件重写)
+     */
+    private long validEnd(Path file) throws IOException {
+        MappedByteBuffer data = null;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() < FILE_HEADER_SIZE) {
+                return 0;
+            }
+            data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.getInt() != MAGIC || data.getShort() != VERSION) {
+                Path moved = file.resolveSibling(file.getFileName() + "." + System.currentTimeMillis());
+                log.warn("审计日志文件头无效，移到 {}", moved);
+                Files.copy(file, moved);
+                return 0;
+            }
+            int length;
+            while ((length = recordLength(data, crc)) > 0) {
+                data.position(data.position() + RECORD_PREFIX_SIZE + length);
+            }
+            return data.position();
+        } finally {
+            MappedBufferUtil.unmap(data);
+        }
+    }
+
+    /**
+     * 当前位置记录的记录体长度(不完整或校验失败时返回-1，不移动位置)
+     */
+    private static int recordLength(ByteBuffer data, CRC32 checksum) {
+        if (data.remaining() < RECORD_PREFIX_SIZE) {
+            return -1;
+        }
+        int start = data.position();
+        int length = Short.toUnsignedInt(data.getShort(start));
+        if (length < RECORD_BODY_HEADER_SIZE || data.remaining() < RECORD_PREFIX_SIZE + length) {
+            return -1;
+        }
+        checksum.reset();
+        checksum.update(data.slice(start + RECORD_PREFIX_SIZE, length));
+        return (int) checksum.getValue() == data.getInt(start + 2) ? length : -1;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭审计日志失败: {}", e.getMessage());
+        }
+        channel = null;
+    }
+
+    private Path filePath(LocalDate date) {
+        return Paths.get(auditPath, "audit-" + FILE_DATE.format(date) + ".bin");
+    }
+
+    private byte[] encodeText(String text) {
+        if (StrUtil.isEmpty(text)) {
+            return new byte[0];
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_TEXT_BYTES ? bytes : Arrays.copyOf(bytes, MAX_TEXT_BYTES);
+    }
+
+    private static long id(Long value) {
+        return value != null ? value : 0;
+    }
+
+    private record AuditEvent(byte type, byte outcome, long time, long sessionId, long questionId,
+                              long userId, long teamId, String text) {
+    }
+}
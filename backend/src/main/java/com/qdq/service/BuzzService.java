@@ -3,44 +3,60 @@ package com.qdq.service;
 import com.qdq.entity.QuizBuzzLog;
 import com.qdq.entity.QuizSession;
 import com.qdq.exception.BusinessException;
+import com.qdq.live.LiveStateStore;
+import com.qdq.live.SubmissionDeduplicator;
 import com.qdq.mapper.QuizBuzzLogMapper;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.metrics.QuizMetrics;
 import com.qdq.websocket.WebSocketMessageService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 抢答服务
- * 使用Redis Sorted Set实现低延迟(<100ms)的抢答判定
+ * 按服务端时间排序的抢答队列实现低延迟(<100ms)的抢答判定，状态存取见 LiveStateStore
  */
 @Slf4j
 @Service
 public class BuzzService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final LiveStateStore liveStateStore;
     private final QuizBuzzLogMapper buzzLogMapper;
     private final SessionService sessionService;
     private final WebSocketMessageService wsMessageService;
+    private final QuizMetrics quizMetrics;
+    private final QuestionTracer questionTracer;
+    private final AuditLogService auditLogService;
+    private final SessionEventLog sessionEventLog;
+    private final SubmissionDeduplicator submissionDeduplicator;
 
-    private static final String BUZZ_QUEUE_KEY = "buzz:queue:";
-    private static final String BUZZ_LOCK_KEY = "buzz:lock:";
-    private static final String BUZZ_RESULT_KEY = "buzz:result:";
     private static final long BUZZ_TIMEOUT_MS = 100; // 抢答判定窗口100ms
+    /** 抢答关闭原因(事件日志) */
+    public static final int CLOSE_BY_PROCESS = 1;
+    public static final int CLOSE_BY_HOST = 2;
 
-    public BuzzService(RedisTemplate<String, Object> redisTemplate,
+    public BuzzService(LiveStateStore liveStateStore,
                        QuizBuzzLogMapper buzzLogMapper,
                        SessionService sessionService,
-                       WebSocketMessageService wsMessageService) {
-        this.redisTemplate = redisTemplate;
+                       WebSocketMessageService wsMessageService,
+                       QuizMetrics quizMetrics,
+                       QuestionTracer questionTracer,
+                       AuditLogService auditLogService,
+                       SessionEventLog sessionEventLog,
+                       SubmissionDeduplicator submissionDeduplicator) {
+        this.liveStateStore = liveStateStore;
         this.buzzLogMapper = buzzLogMapper;
         this.sessionService = sessionService;
         this.wsMessageService = wsMessageService;
+        this.quizMetrics = quizMetrics;
+        this.questionTracer = questionTracer;
+        this.auditLogService = auditLogService;
+        this.sessionEventLog = sessionEventLog;
+        this.submissionDeduplicator = submissionDeduplicator;
     }
 
     /**
@@ -50,50 +66,70 @@ public class BuzzService {
      * @param questionId 题目ID
      * @param userId 用户ID
      * @param teamId 队伍ID（团队赛）
+     * @param receivedNanos 收到抢答消息的时间(System.nanoTime，接收时已为链路追踪读取，这里复用作受理耗时的起点)
      * @return 抢答结果
      */
-    public Map<String, Object> buzz(Long sessionId, Long questionId, Long userId, Long teamId) {
+    public Map<String, Object> buzz(Long sessionId, Long questionId, Long userId, Long teamId, long receivedNanos) {
         long serverTime = System.currentTimeMillis();
+        String outcome = "rejected";
+        String memberId = (teamId != null ? "team:" + teamId : "user:" + userId);
+        try {
+            // 客户端重试: 已受理过的抢答直接按记录的时间应答，不再校验场次、不再写抢答队列
+            long recordedTime = submissionDeduplicator.buzzTime(sessionId, questionId, memberId);
+            if (recordedTime != SubmissionDeduplicator.NOT_RECORDED) {
+                outcome = "duplicate";
+                return buildBuzzResult(true, "抢答已提交", memberId, recordedTime);
+            }
+
+            // 1. 验证场次状态
+            QuizSession session = sessionService.getById(sessionId);
+            if (session == null) {
+                throw new BusinessException("场次不存在");
+            }
+            if (session.getStatus() != 2) {
+                throw new BusinessException("比赛未在进行中");
+            }
         
-        // 1. 验证场次状态
-        QuizSession session = sessionService.getById(sessionId);
-        if (session == null) {
-            throw new BusinessException("场次不存在");
-        }
-        if (session.getStatus() != 2) {
-            throw new BusinessException("比赛未在进行中");
-        }
-        
-        // 2. 验证当前题目
-        if (session.getCurrentQuestionIndex() < 0) {
-            throw new BusinessException("当前没有进行中的题目");
-        }
-        Long currentQuestionId = session.getQuestionIds().get(session.getCurrentQuestionIndex());
-        if (!currentQuestionId.equals(questionId)) {
-            throw new BusinessException("题目已过期");
-        }
+            // 2. 验证当前题目
+            if (session.getCurrentQuestionIndex() < 0) {
+                throw new BusinessException("当前没有进行中的题目");
+            }
+            Long currentQuestionId = session.getQuestionIds().get(session.getCurrentQuestionIndex());
+            if (!currentQuestionId.equals(questionId)) {
+                throw new BusinessException("题目已过期");
+            }
         
-        String queueKey = BUZZ_QUEUE_KEY + sessionId + ":" + questionId;
-        String lockKey = BUZZ_LOCK_KEY + sessionId + ":" + questionId;
+            // 3. 未锁定时记录抢答时间到抢答队列（锁定检查与记录为一次原子操作），返回队列中参与者第一次的抢答时间
+            long firstTime = liveStateStore.addBuzz(sessionId, questionId, memberId, serverTime);
+            if (firstTime == LiveStateStore.BUZZ_LOCKED) {
+                // 已经有人抢答成功，返回失败
+                outcome = "locked";
+                return buildBuzzResult(false, "抢答失败，已有人抢答成功", null, serverTime);
+            }
+            // 4. 抢答队列确认后再写入去重记录，重试只会读到已入队的时间
+            submissionDeduplicator.recordBuzz(sessionId, questionId, memberId, firstTime);
+            if (firstTime != serverTime) {
+                outcome = "duplicate";
+                return buildBuzzResult(true, "抢答已提交", memberId, firstTime);
+            }
+            sessionEventLog.appendBuzz(sessionId, questionId, memberId, serverTime);
         
-        // 3. 检查是否已经有抢答结果（锁定状态）
-        Boolean locked = redisTemplate.hasKey(lockKey);
-        if (Boolean.TRUE.equals(locked)) {
-            // 已经有人抢答成功，返回失败
-            return buildBuzzResult(false, "抢答失败，已有人抢答成功", null, serverTime);
+            // 5. 等待抢答窗口结束后处理结果
+            // 这里采用延迟处理策略，由定时任务或第一个请求触发判定
+            outcome = "accepted";
+            return buildBuzzResult(true, "抢答已提交", memberId, serverTime);
+        } finally {
+            long endNanos = quizMetrics.recordBuzzAdmission(outcome, receivedNanos);
+            questionTracer.record(sessionId, questionId, QuestionTracer.BUZZ_ADMITTED, endNanos,
+                    teamId != null ? teamId : (userId != null ? userId : 0), outcome);
+            // 抢答明细写入审计日志(后台线程写文件)，不再逐条同步打印日志
+            auditLogService.buzz(sessionId, questionId, userId, teamId, switch (outcome) {
+                case "accepted" -> AuditLogService.OUTCOME_ACCEPTED;
+                case "locked" -> AuditLogService.OUTCOME_LOCKED;
+                case "duplicate" -> AuditLogService.OUTCOME_DUPLICATE;
+                default -> AuditLogService.OUTCOME_REJECTED;
+            }, serverTime);
         }
-        
-        // 4. 记录抢答时间到Redis Sorted Set
-        String memberId = (teamId != null ? "team:" + teamId : "user:" + userId);
-        redisTemplate.opsForZSet().add(queueKey, memberId, serverTime);
-        redisTemplate.expire(queueKey, 5, TimeUnit.MINUTES);
-        
-        log.info("收到抢答请求: sessionId={}, questionId={}, userId={}, teamId={}, serverTime={}", 
-                sessionId, questionId, userId, teamId, serverTime);
-        
-        // 5. 等待抢答窗口结束后处理结果
-        // 这里采用延迟处理策略，由定时任务或第一个请求触发判定
-        return buildBuzzResult(true, "抢答已提交", memberId, serverTime);
     }
 
     /**
@@ -101,67 +137,59 @@ public class BuzzService {
      */
     @Transactional(rollbackFor = Exception.class)
     public List<Map<String, Object>> processBuzzResult(Long sessionId, Long questionId) {
-        String queueKey = BUZZ_QUEUE_KEY + sessionId + ":" + questionId;
-        String lockKey = BUZZ_LOCK_KEY + sessionId + ":" + questionId;
-        String resultKey = BUZZ_RESULT_KEY + sessionId + ":" + questionId;
-        
         // 检查是否已处理
-        Boolean hasResult = redisTemplate.hasKey(resultKey);
-        if (Boolean.TRUE.equals(hasResult)) {
+        List<Map<String, Object>> cached = liveStateStore.getBuzzResult(sessionId, questionId);
+        if (cached != null) {
             // 返回已有结果
-            Object cached = redisTemplate.opsForValue().get(resultKey);
-            if (cached instanceof List) {
-                return (List<Map<String, Object>>) cached;
-            }
-            return Collections.emptyList();
+            return cached;
         }
         
-        // 获取所有抢答记录，按时间排序
-        Set<ZSetOperations.TypedTuple<Object>> buzzSet = 
-                redisTemplate.opsForZSet().rangeWithScores(queueKey, 0, -1);
+        // 设置锁定防止后续抢答，同时获取所有抢答记录，按时间排序
+        List<LiveStateStore.BuzzEntry> buzzes = liveStateStore.lockBuzzQueue(sessionId, questionId);
         
-        if (buzzSet == null || buzzSet.isEmpty()) {
+        if (buzzes.isEmpty()) {
             return Collections.emptyList();
         }
-        
-        // 设置锁定，防止后续抢答
-        redisTemplate.opsForValue().set(lockKey, "locked", 5, TimeUnit.MINUTES);
+        questionTracer.record(sessionId, questionId, QuestionTracer.WINDOW_CLOSE, System.nanoTime(), 0, "process");
+        sessionEventLog.appendBuzzEvent(sessionId, questionId, SessionEventLog.BUZZ_CLOSE, CLOSE_BY_PROCESS);
         
         List<Map<String, Object>> results = new ArrayList<>();
         int rank = 1;
         Long firstMemberServerTime = null;
         
-        for (ZSetOperations.TypedTuple<Object> tuple : buzzSet) {
-            String memberId = tuple.getValue().toString();
-            Double score = tuple.getScore();
+        for (LiveStateStore.BuzzEntry buzz : buzzes) {
+            String memberId = buzz.memberId();
+            long serverTime = buzz.serverTime();
             
             if (firstMemberServerTime == null) {
-                firstMemberServerTime = score.longValue();
+                firstMemberServerTime = serverTime;
             }
             
             // 只接受在窗口期内的抢答
-            if (score - firstMemberServerTime > BUZZ_TIMEOUT_MS) {
+            if (serverTime - firstMemberServerTime > BUZZ_TIMEOUT_MS) {
                 break;
             }
             
             Map<String, Object> result = new HashMap<>();
             result.put("rank", rank);
             result.put("memberId", memberId);
-            result.put("serverTime", score.longValue());
+            result.put("serverTime", serverTime);
             result.put("isFirst", rank == 1);
             results.add(result);
             
             // 保存到数据库
-            saveBuzzLog(sessionId, questionId, memberId, score.longValue(), rank == 1, rank);
+            saveBuzzLog(sessionId, questionId, memberId, serverTime, rank == 1, rank);
             
             rank++;
         }
         
         // 缓存结果
-        redisTemplate.opsForValue().set(resultKey, results, 30, TimeUnit.MINUTES);
+        liveStateStore.saveBuzzResult(sessionId, questionId, results);
+        sessionEventLog.appendBuzzResult(sessionId, questionId, results);
         
         // 广播抢答结果
         wsMessageService.broadcastBuzzResult(sessionId, questionId, results);
+        quizMetrics.recordBuzzResult(firstMemberServerTime);
         
         log.info("抢答判定完成: sessionId={}, questionId={}, 有效抢答数={}", 
                 sessionId, questionId, results.size());
@@ -173,14 +201,10 @@ public class BuzzService {
      * 开放抢答（新题目时调用）
      */
     public void openBuzz(Long sessionId, Long questionId) {
-        String queueKey = BUZZ_QUEUE_KEY + sessionId + ":" + questionId;
-        String lockKey = BUZZ_LOCK_KEY + sessionId + ":" + questionId;
-        String resultKey = BUZZ_RESULT_KEY + sessionId + ":" + questionId;
-        
         // 清除之前的数据
-        redisTemplate.delete(queueKey);
-        redisTemplate.delete(lockKey);
-        redisTemplate.delete(resultKey);
+        liveStateStore.resetBuzz(sessionId, questionId);
+        submissionDeduplicator.open(sessionId, questionId);
+        sessionEventLog.appendBuzzEvent(sessionId, questionId, SessionEventLog.BUZZ_OPEN, 0);
         
         log.info("开放抢答: sessionId={}, questionId={}", sessionId, questionId);
     }
@@ -189,21 +213,54 @@ public class BuzzService {
      * 关闭抢答
      */
     public void closeBuzz(Long sessionId, Long questionId) {
-        String lockKey = BUZZ_LOCK_KEY + sessionId + ":" + questionId;
-        redisTemplate.opsForValue().set(lockKey, "closed", 30, TimeUnit.MINUTES);
+        liveStateStore.lockBuzz(sessionId, questionId, true);
+        questionTracer.record(sessionId, questionId, QuestionTracer.WINDOW_CLOSE, System.nanoTime(), 0, "close");
+        sessionEventLog.appendBuzzEvent(sessionId, questionId, SessionEventLog.BUZZ_CLOSE, CLOSE_BY_HOST);
         log.info("关闭抢答: sessionId={}, questionId={}", sessionId, questionId);
     }
 
+    /**
+     * 按事件日志恢复题目的抢答状态(启动时由 SessionRecoveryService 调用)
+     *
+     * @param buzzes      成员ID -> 服务端时间
+     * @param closeReason 0未关闭 CLOSE_BY_PROCESS/CLOSE_BY_HOST
+     * @param results     判定结果(按名次的 [成员ID, 服务端时间])，未判定为null
+     */
+    public void restoreBuzzState(Long sessionId, Long questionId, Map<String, Long> buzzes, int closeReason,
+                                 List<Map.Entry<String, Long>> results) {
+        liveStateStore.resetBuzz(sessionId, questionId);
+        submissionDeduplicator.open(sessionId, questionId);
+        buzzes.forEach((memberId, serverTime) -> {
+            long firstTime = liveStateStore.addBuzz(sessionId, questionId, memberId, serverTime);
+            if (firstTime != LiveStateStore.BUZZ_LOCKED) {
+                submissionDeduplicator.recordBuzz(sessionId, questionId, memberId, firstTime);
+            }
+        });
+        if (closeReason != 0) {
+            liveStateStore.lockBuzz(sessionId, questionId, closeReason == CLOSE_BY_HOST);
+        }
+        if (results != null) {
+            List<Map<String, Object>> restored = new ArrayList<>();
+            int rank = 1;
+            for (Map.Entry<String, Long> entry : results) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("rank", rank);
+                result.put("memberId", entry.getKey());
+                result.put("serverTime", entry.getValue());
+                result.put("isFirst", rank == 1);
+                restored.add(result);
+                rank++;
+            }
+            liveStateStore.saveBuzzResult(sessionId, questionId, restored);
+        }
+    }
+
     /**
      * 获取抢答结果
      */
     public List<Map<String, Object>> getBuzzResult(Long sessionId, Long questionId) {
-        String resultKey = BUZZ_RESULT_KEY + sessionId + ":" + questionId;
-        Object cached = redisTemplate.opsForValue().get(resultKey);
-        if (cached instanceof List) {
-            return (List<Map<String, Object>>) cached;
-        }
-        return Collections.emptyList();
+        List<Map<String, Object>> cached = liveStateStore.getBuzzResult(sessionId, questionId);
+        return cached != null ? cached : Collections.emptyList();
     }
 
     /**
@@ -0,0 +1,426 @@
+package com.qdq.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.qdq.dto.ChunkUploadRequest;
+import com.qdq.dto.ChunkUploadStatus;
+import com.qdq.entity.SysFile;
+import com.qdq.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分片断点续传服务
+ * 初始化时按文件大小预分配数据文件，各分片按偏移量用FileChannel定位写入(可并行上传、任意顺序)；
+ * 已接收分片记录在位图文件中，服务重启后仍可续传；
+ * 完成时数据文件即为最终文件，计算摘要后直接移入内容地址，无需再合并分片
+ */
+@Slf4j
+@Service
+public class ChunkUploadService {
+
+    private static final String CHUNK_DIR = "chunks";
+    private static final String DATA_SUFFIX = ".part";
+    private static final String BITMAP_SUFFIX = ".map";
+    private static final String META_SUFFIX = ".json";
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+
+    @Value("${quiz.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${quiz.upload.chunk.max-file-size:1073741824}")
+    private long maxFileSize;
+
+    @Value("${quiz.upload.chunk.default-chunk-size:5242880}")
+    private int defaultChunkSize;
+
+    @Value("${quiz.upload.chunk.max-chunk-size:33554432}")
+    private int maxChunkSize;
+
+    @Value("${quiz.upload.chunk.expire-hours:24}")
+    private int expireHours;
+
+    /** 上传ID -> 进行中的上传 */
+    private final Map<String, ChunkUpload> uploads = new ConcurrentHashMap<>();
+
+    public ChunkUploadService(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploads.values().forEach(ChunkUpload::close);
+    }
+
+    /**
+     * 初始化上传
+     */
+    public ChunkUploadStatus init(ChunkUploadRequest request) {
+        if (!fileStorageService.isValidFileType(request.getFileType())) {
+            throw new BusinessException("不支持的文件类型");
+        }
+        if (request.getFileSize() > maxFileSize) {
+            throw new BusinessException("文件大小不能超过" + maxFileSize / 1024 / 1024 + "MB");
+        }
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize <= 0 || chunkSize > maxChunkSize) {
+            throw new BusinessException("分片大小必须在1到" + maxChunkSize + "字节之间");
+        }
+
+        UploadMeta meta = new UploadMeta();
+        meta.setFileName(request.getFileName());
+        meta.setFileType(request.getFileType());
+        meta.setMimeType(request.getMimeType());
+        meta.setFileSize(request.getFileSize());
+        meta.setChunkSize(chunkSize);
+        meta.setSha256(StrUtil.isBlank(request.getSha256()) ? null : request.getSha256().toLowerCase());
+        meta.setUploadedBy(StpUtil.getLoginIdAsLong());
+        meta.setCreatedAt(System.currentTimeMillis());
+
+        String uploadId = IdUtil.simpleUUID();
+        try {
+            Path dir = Files.createDirectories(chunkDir());
+            // 预分配数据文件(稀疏文件，不实际写零)
+            try (RandomAccessFile file = new RandomAccessFile(dir.resolve(uploadId + DATA_SUFFIX).toFile(), "rw")) {
+                file.setLength(meta.getFileSize());
+            }
+            try (RandomAccessFile file = new RandomAccessFile(dir.resolve(uploadId + BITMAP_SUFFIX).toFile(), "rw")) {
+                file.setLength(meta.totalChunks());
+            }
+            Files.writeString(dir.resolve(uploadId + META_SUFFIX), JSONUtil.toJsonStr(meta), StandardCharsets.UTF_8);
+
+            ChunkUpload upload = new ChunkUpload(uploadId, meta, new BitSet(meta.totalChunks()));
+            uploads.put(uploadId, upload);
+            log.info("分片上传初始化: uploadId={}, 文件={}, 大小={}, 分片数={}",
+                    uploadId, meta.getFileName(), meta.getFileSize(), meta.totalChunks());
+            return upload.toStatus();
+        } catch (IOException e) {
+            deleteFiles(uploadId);
+            log.error("分片上传初始化失败", e);
+            throw new BusinessException("分片上传初始化失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询上传状态(用于续传)
+     */
+    public ChunkUploadStatus getStatus(String uploadId) {
+        return getUpload(uploadId).toStatus();
+    }
+
+    /**
+     * 写入分片
+     *
+     * @param offset   分片在文件中的偏移量(必须是分片大小的整数倍)
+     * @param checksum 分片内容的SHA-256(十六进制)
+     */
+    public ChunkUploadStatus writeChunk(String uploadId, long offset, String checksum, InputStream in) {
+        if (StrUtil.isBlank(checksum)) {
+            throw new BusinessException("分片校验值不能为空");
+        }
+        ChunkUpload upload = getUpload(uploadId);
+        UploadMeta meta = upload.getMeta();
+        if (offset < 0 || offset >= meta.getFileSize() || offset % meta.getChunkSize() != 0) {
+            throw new BusinessException("分片偏移量无效");
+        }
+        int index = (int) (offset / meta.getChunkSize());
+        long expected = Math.min(meta.getChunkSize(), meta.getFileSize() - offset);
+
+        try {
+            FileChannel channel = upload.dataChannel(chunkDir());
+            MessageDigest digest = DigestUtil.digester(DigestAlgorithm.SHA256).getDigest();
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            long written = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (written + read > expected) {
+                    throw new BusinessException("分片大小与偏移量不符");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                // 定位写入不改变通道位置，多个分片可并发写同一通道
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer, offset + written + byteBuffer.position());
+                }
+                written += read;
+            }
+            if (written != expected) {
+                throw new BusinessException("分片数据不完整: 期望" + expected + "字节，实际" + written + "字节");
+            }
+            if (!HexUtil.encodeHexStr(digest.digest()).equalsIgnoreCase(checksum.trim())) {
+                throw new BusinessException("分片校验失败，请重新上传");
+            }
+            upload.markReceived(index, chunkDir());
+            return upload.toStatus();
+        } catch (IOException e) {
+            log.warn("分片写入失败: uploadId={}, offset={}, {}", uploadId, offset, e.getMessage());
+            throw new BusinessException("分片写入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 完成上传: 校验分片齐全与整体摘要，数据文件直接移入内容地址并生成文件记录
+     */
+    public SysFile complete(String uploadId) {
+        ChunkUpload upload = getUpload(uploadId);
+        UploadMeta meta = upload.getMeta();
+        synchronized (upload) {
+            int received = upload.getReceived().cardinality();
+            if (received < meta.totalChunks()) {
+                throw new BusinessException("还有" + (meta.totalChunks() - received) + "个分片未上传");
+            }
+            upload.close();
+            Path dataPath = chunkDir().resolve(uploadId + DATA_SUFFIX);
+            try {
+                String contentHash = hashFile(dataPath);
+                if (meta.getSha256() != null && !meta.getSha256().equals(contentHash)) {
+                    abort(uploadId);
+                    throw new BusinessException("文件校验失败，请重新上传");
+                }
+
+                SysFile sysFile = new SysFile();
+                sysFile.setFileName(meta.getFileName());
+                sysFile.setFileType(meta.getFileType());
+                sysFile.setFileSize(meta.getFileSize());
+                sysFile.setMimeType(meta.getMimeType());
+                sysFile.setUploadedBy(meta.getUploadedBy());
+                fileStorageService.storeContent(dataPath, contentHash, sysFile);
+
+                uploads.remove(uploadId);
+                deleteFiles(uploadId);
+                log.info("分片上传完成: uploadId={}, fileId={}, hash={}", uploadId, sysFile.getId(), contentHash);
+                return sysFile;
+            } catch (IOException e) {
+                // 丢弃已关闭的内存状态，下次访问时从磁盘恢复
+                uploads.remove(uploadId);
+                log.error("分片上传完成失败: uploadId={}", uploadId, e);
+                throw new BusinessException("文件保存失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 取消上传
+     */
+    public void abort(String uploadId) {
+        ChunkUpload upload = uploads.remove(uploadId);
+        if (upload != null) {
+            upload.close();
+        }
+        deleteFiles(uploadId);
+    }
+
+    /**
+     * 清理过期未完成的上传(包括服务重启前遗留的)
+     */
+    @Scheduled(fixedDelayString = "${quiz.upload.chunk.clean-interval-ms:3600000}")
+    public void cleanExpired() {
+        Path dir = chunkDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - expireHours * 3600_000L;
+        int cleaned = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + META_SUFFIX)) {
+            for (Path metaPath : stream) {
+                if (Files.getLastModifiedTime(metaPath).toMillis() > deadline) {
+                    continue;
+                }
+                String fileName = metaPath.getFileName().toString();
+                ChunkUpload upload = uploads.get(fileName.substring(0, fileName.length() - META_SUFFIX.length()));
+                // 仍在持续接收分片的上传不清理
+                if (upload != null && upload.getLastActiveAt() > deadline) {
+                    continue;
+                }
+                abort(fileName.substring(0, fileName.length() - META_SUFFIX.length()));
+                cleaned++;
+            }
+        } catch (IOException e) {
+            log.warn("清理过期分片上传失败: {}", e.getMessage());
+        }
+        if (cleaned > 0) {
+            log.info("清理过期分片上传: {}个", cleaned);
+        }
+    }
+
+    /**
+     * 获取上传(内存中没有时从磁盘恢复)
+     */
+    private ChunkUpload getUpload(String uploadId) {
+        if (uploadId == null || !uploadId.matches("[0-9a-f]{32}")) {
+            throw new BusinessException("上传不存在");
+        }
+        ChunkUpload upload = uploads.computeIfAbsent(uploadId, this::restore);
+        if (upload == null) {
+            throw new BusinessException("上传不存在或已过期");
+        }
+        return upload;
+    }
+
+    private ChunkUpload restore(String uploadId) {
+        Path dir = chunkDir();
+        Path metaPath = dir.resolve(uploadId + META_SUFFIX);
+        if (!Files.exists(metaPath)) {
+            return null;
+        }
+        try {
+            UploadMeta meta = JSONUtil.toBean(Files.readString(metaPath, StandardCharsets.UTF_8), UploadMeta.class);
+            byte[] flags = Files.readAllBytes(dir.resolve(uploadId + BITMAP_SUFFIX));
+            BitSet received = new BitSet(meta.totalChunks());
+            for (int i = 0; i < flags.length && i < meta.totalChunks(); i++) {
+                if (flags[i] != 0) {
+                    received.set(i);
+                }
+            }
+            log.info("恢复分片上传: uploadId={}, 已接收{}/{}", uploadId, received.cardinality(), meta.totalChunks());
+            return new ChunkUpload(uploadId, meta, received);
+        } catch (IOException | RuntimeException e) {
+            log.warn("恢复分片上传失败: uploadId={}, {}", uploadId, e.getMessage());
+            return null;
+        }
+    }
+
+    private String hashFile(Path path) throws IOException {
+        MessageDigest digest = DigestUtil.digester(DigestAlgorithm.SHA256).getDigest();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexUtil.encodeHexStr(digest.digest());
+    }
+
+    private void deleteFiles(String uploadId) {
+        Path dir = chunkDir();
+        for (String suffix : List.of(DATA_SUFFIX, BITMAP_SUFFIX, META_SUFFIX)) {
+            try {
+                Files.deleteIfExists(dir.resolve(uploadId + suffix));
+            } catch (IOException e) {
+                log.warn("分片上传文件删除失败: {}{}", uploadId, suffix);
+            }
+        }
+    }
+
+    private Path chunkDir() {
+        return Paths.get(uploadPath, CHUNK_DIR);
+    }
+
+    /**
+     * 上传元数据(持久化为json)
+     */
+    @Data
+    public static class UploadMeta {
+        private String fileName;
+        private String fileType;
+        private String mimeType;
+        private Long fileSize;
+        private Integer chunkSize;
+        private String sha256;
+        private Long uploadedBy;
+        private Long createdAt;
+
+        int totalChunks() {
+            return (int) ((fileSize + chunkSize - 1) / chunkSize);
+        }
+    }
+
+    /**
+     * 进行中的上传
+     */
+    @Getter
+    private static class ChunkUpload {
+        private final String uploadId;
+        private final UploadMeta meta;
+        private final BitSet received;
+        private FileChannel data;
+        private FileChannel bitmap;
+        private boolean closed;
+        private volatile long lastActiveAt = System.currentTimeMillis();
+
+        ChunkUpload(String uploadId, UploadMeta meta, BitSet received) {
+            this.uploadId = uploadId;
+            this.meta = meta;
+            this.received = received;
+        }
+
+        synchronized FileChannel dataChannel(Path dir) throws IOException {
+            if (closed) {
+                throw new BusinessException("上传已结束");
+            }
+            if (data == null) {
+                data = FileChannel.open(dir.resolve(uploadId + DATA_SUFFIX), StandardOpenOption.WRITE);
+            }
+            lastActiveAt = System.currentTimeMillis();
+            return data;
+        }
+
+        synchronized void markReceived(int index, Path dir) throws IOException {
+            if (closed) {
+                throw new BusinessException("上传已结束");
+            }
+            if (bitmap == null) {
+                bitmap = FileChannel.open(dir.resolve(uploadId + BITMAP_SUFFIX), StandardOpenOption.WRITE);
+            }
+            bitmap.write(ByteBuffer.wrap(new byte[]{1}), index);
+            received.set(index);
+            lastActiveAt = System.currentTimeMillis();
+        }
+
+        synchronized ChunkUploadStatus toStatus() {
+            ChunkUploadStatus status = new ChunkUploadStatus();
+            status.setUploadId(uploadId);
+            status.setFileSize(meta.getFileSize());
+            status.setChunkSize(meta.getChunkSize());
+            status.setTotalChunks(meta.totalChunks());
+            status.setReceivedChunks(received.stream().boxed().toList());
+            return status;
+        }
+
+        synchronized void close() {
+            closed = true;
+            closeQuietly(data);
+            closeQuietly(bitmap);
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭分片上传文件失败: {}", e.getMessage());
+            }
+        }
+    }
+}
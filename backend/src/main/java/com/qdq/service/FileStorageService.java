@@ -1,19 +1,36 @@
 package com.qdq.service;
 
 import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.qdq.entity.SysFile;
+import com.qdq.entity.SysFileBlob;
 import com.qdq.exception.BusinessException;
+import com.qdq.mapper.SysFileBlobMapper;
 import com.qdq.mapper.SysFileMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 文件存储服务
@@ -23,18 +40,60 @@ import java.util.UUID;
 public class FileStorageService {
 
     private final SysFileMapper fileMapper;
+    private final SysFileBlobMapper blobMapper;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${quiz.upload.path:./uploads}")
     private String uploadPath;
 
-    public FileStorageService(SysFileMapper fileMapper) {
+    @Value("${quiz.upload.info-cache-size:1024}")
+    private int infoCacheSize;
+
+    /** 内容寻址文件目录 */
+    private static final String BLOB_DIR = "blobs";
+
+    /** 上传临时文件目录 */
+    private static final String TEMP_DIR = "tmp";
+
+    /** 文件信息缓存(媒体下载高并发时避免逐请求查询sys_file) */
+    private Cache<Long, SysFile> fileInfoCache;
+
+    /** 回收未引用物理文件的间隔(秒) */
+    private static final long RECLAIM_INTERVAL_SECONDS = 60;
+
+    /** 每轮回收的物理文件数上限 */
+    private static final int RECLAIM_BATCH_SIZE = 100;
+
+    /** 登记的物理文件在锁定前被回收时重新登记的次数 */
+    private static final int STORE_ATTEMPTS = 3;
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    public FileStorageService(SysFileMapper fileMapper, SysFileBlobMapper blobMapper,
+                              ImageVariantService imageVariantService, TransactionTemplate transactionTemplate) {
         this.fileMapper = fileMapper;
+        this.blobMapper = blobMapper;
+        this.imageVariantService = imageVariantService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        fileInfoCache = CacheUtil.newLRUCache(infoCacheSize);
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("file-cleanup-", true));
+        cleanupExecutor.scheduleWithFixedDelay(this::reclaimUnreferenced, RECLAIM_INTERVAL_SECONDS,
+                RECLAIM_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdownNow();
     }
 
     /**
-     * 上传文件
+     * 上传文件(按内容SHA-256寻址，相同内容只保存一份物理文件，每次上传仍各自生成一条记录)
      */
-    @Transactional(rollbackFor = Exception.class)
     public SysFile uploadFile(MultipartFile file, String fileType) {
         if (file == null || file.isEmpty()) {
             throw new BusinessException("文件不能为空");
@@ -51,62 +110,109 @@ public class FileStorageService {
             throw new BusinessException("文件大小不能超过100MB");
         }
 
+        Path tempFile = null;
         try {
-            // 创建上传目录
-            String filePath = uploadPath + File.separator + fileType;
-            File dir = new File(filePath);
-            if (!dir.exists()) {
-                dir.mkdirs();
+            // 边写临时文件边计算摘要，只读一遍上传流
+            Path tempDir = Files.createDirectories(Paths.get(uploadPath, TEMP_DIR));
+            tempFile = Files.createTempFile(tempDir, "upload-", ".tmp");
+            MessageDigest digest = DigestUtil.digester(DigestAlgorithm.SHA256).getDigest();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
             }
+            String contentHash = HexUtil.encodeHexStr(digest.digest());
 
-            // 生成唯一文件名
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFileName);
-            String storedFileName = UUID.randomUUID() + "." + fileExtension;
-            String fullFilePath = filePath + File.separator + storedFileName;
-
-            // 保存文件
-            file.transferTo(new File(fullFilePath));
-
-            // 记录文件信息到数据库
             SysFile sysFile = new SysFile();
-            sysFile.setFileName(originalFileName);
-            sysFile.setFilePath(fullFilePath);
+            sysFile.setFileName(file.getOriginalFilename());
             sysFile.setFileType(fileType);
-            sysFile.setFileSize(file.getSize());
+            sysFile.setFileSize(Files.size(tempFile));
             sysFile.setMimeType(file.getContentType());
             sysFile.setUploadedBy(StpUtil.getLoginIdAsLong());
-            fileMapper.insert(sysFile);
+            storeContent(tempFile, contentHash, sysFile);
 
-            log.info("文件上传成功: {}", originalFileName);
+            log.info("文件上传成功: {}, hash={}", sysFile.getFileName(), contentHash);
             return sysFile;
 
         } catch (IOException e) {
             log.error("文件上传失败", e);
             throw new BusinessException("文件上传失败: " + e.getMessage());
+        } finally {
+            deleteQuietly(tempFile);
         }
     }
 
+    /**
+     * 将已计算摘要的临时文件落到内容地址并写入文件记录
+     * 物理文件已存在时直接复用(临时文件由调用方清理)。落盘前先登记物理文件(单独提交)，
+     * 再在一个事务内锁定登记行、落盘、插入文件记录并增加引用数：与其他节点的删除、回收互斥，
+     * 插入失败或进程中途退出时物理文件的引用数仍为0，由后台回收
+     */
+    public void storeContent(Path tempFile, String contentHash, SysFile sysFile) throws IOException {
+        Path blobPath = blobPath(contentHash);
+        for (int attempt = 0; attempt < STORE_ATTEMPTS; attempt++) {
+            blobMapper.insertIfAbsent(contentHash, blobPath.toString());
+            try {
+                Boolean stored = transactionTemplate.execute(status -> {
+                    SysFileBlob blob = blobMapper.selectByHashForUpdate(contentHash);
+                    if (blob == null) {
+                        // 登记后、锁定前被回收(引用数为0)，重新登记
+                        return false;
+                    }
+                    moveIfAbsent(tempFile, blobPath);
+                    sysFile.setFilePath(blobPath.toString());
+                    sysFile.setContentHash(contentHash);
+                    fileMapper.insert(sysFile);
+                    blobMapper.adjustRefCount(blob.getId(), 1);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(stored)) {
+                    return;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        throw new BusinessException("文件保存失败，请重试");
+    }
+
     /**
      * 删除文件
+     * 按内容寻址的文件锁定物理文件记录后逻辑删除并减少引用数，最后一个引用删除时才删除物理文件
      */
-    @Transactional(rollbackFor = Exception.class)
     public void deleteFile(Long fileId) {
         SysFile sysFile = fileMapper.selectById(fileId);
         if (sysFile == null) {
             throw new BusinessException("文件不存在");
         }
 
-        // 删除物理文件
-        File file = new File(sysFile.getFilePath());
-        if (file.exists()) {
-            if (!file.delete()) {
-                log.warn("物理文件删除失败: {}", sysFile.getFilePath());
+        if (sysFile.getContentHash() == null) {
+            // 历史文件独占物理文件，删除失败时登记为待删除
+            File file = new File(sysFile.getFilePath());
+            if (file.exists() && !file.delete()) {
+                log.warn("物理文件删除失败，稍后重试: {}", sysFile.getFilePath());
+                SysFileBlob pending = new SysFileBlob();
+                pending.setFilePath(sysFile.getFilePath());
+                pending.setRefCount(0);
+                blobMapper.insert(pending);
+            }
+            imageVariantService.deleteVariants(sysFile);
+            fileMapper.deleteById(fileId);
+        } else {
+            Long unreferencedBlobId = transactionTemplate.execute(status -> {
+                SysFileBlob blob = blobMapper.selectByHashForUpdate(sysFile.getContentHash());
+                // 逻辑删除数据库记录(已被并发删除时不再减少引用数)
+                if (fileMapper.deleteById(fileId) == 0 || blob == null) {
+                    return null;
+                }
+                blobMapper.adjustRefCount(blob.getId(), -1);
+                log.debug("物理文件引用数: hash={}, 引用数={}", sysFile.getContentHash(), blob.getRefCount() - 1);
+                return blob.getRefCount() <= 1 ? blob.getId() : null;
+            });
+            if (unreferencedBlobId != null) {
+                reclaim(unreferencedBlobId);
             }
         }
 
-        // 逻辑删除数据库记录
-        fileMapper.deleteById(fileId);
+        fileInfoCache.remove(fileId);
         log.info("文件删除成功: {}", sysFile.getFileName());
     }
 
@@ -114,28 +220,99 @@ public class FileStorageService {
      * 获取文件信息
      */
     public SysFile getFileInfo(Long fileId) {
-        SysFile sysFile = fileMapper.selectById(fileId);
+        SysFile sysFile = fileInfoCache.get(fileId);
+        if (sysFile != null) {
+            return sysFile;
+        }
+        sysFile = fileMapper.selectById(fileId);
         if (sysFile == null) {
             throw new BusinessException("文件不存在");
         }
+        fileInfoCache.put(fileId, sysFile);
         return sysFile;
     }
 
     /**
-     * 验证文件类型
+     * 内容地址: blobs/摘要前两位/摘要
      */
-    private boolean isValidFileType(String fileType) {
-        return fileType != null && (fileType.equals("audio") || fileType.equals("video") || fileType.equals("image"));
+    private Path blobPath(String contentHash) {
+        return Paths.get(uploadPath, BLOB_DIR, contentHash.substring(0, 2), contentHash);
+    }
+
+    /**
+     * 临时文件移到内容地址(已存在时复用)，调用方持有物理文件记录的行锁
+     */
+    private void moveIfAbsent(Path tempFile, Path blobPath) {
+        if (Files.exists(blobPath)) {
+            return;
+        }
+        try {
+            Files.createDirectories(blobPath.getParent());
+            try {
+                Files.move(tempFile, blobPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, blobPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 定期回收引用数为0的物理文件(删除失败、上传中途失败、其他节点未及时回收的都在这里重试)
+     */
+    private void reclaimUnreferenced() {
+        try {
+            List<Long> blobIds = blobMapper.selectUnreferencedIds(RECLAIM_BATCH_SIZE);
+            for (Long blobId : blobIds) {
+                reclaim(blobId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("回收物理文件失败: {}", e.getMessage());
+        }
     }
 
     /**
-     * 获取文件扩展名
+     * 锁定物理文件记录，再次确认无引用后删除物理文件与衍生图；
+     * 文件仍被占用(Windows下仍被映射或打开)时保留记录，下一轮重试
      */
-    private String getFileExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return "bin";
+    private void reclaim(Long blobId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            SysFileBlob blob = blobMapper.selectByIdForUpdate(blobId);
+            if (blob == null || blob.getRefCount() > 0) {
+                return;
+            }
+            File file = new File(blob.getFilePath());
+            if (file.exists() && !file.delete()) {
+                log.warn("物理文件删除失败，稍后重试: {}", blob.getFilePath());
+                return;
+            }
+            if (blob.getContentHash() != null) {
+                SysFile content = new SysFile();
+                content.setContentHash(blob.getContentHash());
+                imageVariantService.deleteVariants(content);
+            }
+            blobMapper.deleteById(blobId);
+            log.info("物理文件已回收: {}", blob.getFilePath());
+        });
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("临时文件删除失败: {}", path);
         }
-        return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+    }
+
+    /**
+     * 验证文件类型
+     */
+    public boolean isValidFileType(String fileType) {
+        return fileType != null && (fileType.equals("audio") || fileType.equals("video") || fileType.equals("image"));
     }
 
     /**
@@ -0,0 +1,316 @@
+package com.qdq.service;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.qdq.entity.SysFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 图片衍生图服务
+ * 按宽度档位生成并缓存缩放重编码后的图片(不透明图片转JPEG，带透明通道的保留PNG)；
+ * 上传时异步预生成，首次请求未生成时提交生成并短暂等待，超时或队列已满则先返回原图；
+ * 衍生图按内容摘要存放，相同内容的图片共用
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private static final String VARIANT_DIR = "variants";
+
+    @Value("${quiz.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${quiz.image.widths:320,640,1280}")
+    private List<Integer> widths;
+
+    @Value("${quiz.image.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${quiz.image.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${quiz.image.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${quiz.image.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${quiz.image.wait-ms:2000}")
+    private long waitMs;
+
+    private ThreadPoolExecutor executor;
+
+    /** 生成中的衍生图(同一衍生图只生成一次) */
+    private final Map<String, CompletableFuture<Path>> pending = new ConcurrentHashMap<>();
+
+    /** 不需要衍生图的组合(原图不超过档位宽度或无法解码) */
+    private Cache<String, Boolean> passthrough;
+
+    @PostConstruct
+    public void init() {
+        widths = widths.stream().filter(w -> w > 0).distinct().sorted().toList();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ThreadUtil.newNamedThreadFactory("image-variant-", true),
+                new ThreadPoolExecutor.AbortPolicy());
+        passthrough = CacheUtil.newLRUCache(4096);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 上传后异步预生成全部档位
+     */
+    public void pregenerate(SysFile sysFile) {
+        if (!isImage(sysFile)) {
+            return;
+        }
+        for (Integer width : widths) {
+            submit(sysFile, width);
+        }
+    }
+
+    /**
+     * 按请求宽度选择衍生图(取不小于请求宽度的最小档位)
+     *
+     * @return 衍生图文件信息(路径、大小、类型已替换)，无需或暂无衍生图时返回原文件
+     */
+    public SysFile resolve(SysFile sysFile, Integer requestedWidth) {
+        if (requestedWidth == null || requestedWidth <= 0 || !isImage(sysFile)) {
+            return sysFile;
+        }
+        Integer bucket = widths.stream().filter(w -> w >= requestedWidth).findFirst().orElse(null);
+        if (bucket == null) {
+            return sysFile;
+        }
+        String key = variantKey(sysFile) + ":" + bucket;
+        if (passthrough.containsKey(key)) {
+            return sysFile;
+        }
+
+        Path variant = findVariant(sysFile, bucket);
+        if (variant == null) {
+            Future<Path> future = submit(sysFile, bucket);
+            if (future == null) {
+                return sysFile;
+            }
+            try {
+                variant = future.get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return sysFile;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return sysFile;
+            } catch (ExecutionException e) {
+                log.warn("衍生图生成失败: fileId={}, width={}, {}", sysFile.getId(), bucket, e.getCause().getMessage());
+                return sysFile;
+            }
+            if (variant == null) {
+                return sysFile;
+            }
+        }
+
+        SysFile result = BeanUtil.copyProperties(sysFile, SysFile.class);
+        String fileName = variant.getFileName().toString();
+        result.setFilePath(variant.toString());
+        result.setFileName(FileUtil.mainName(sysFile.getFileName()) + "_" + bucket + "." + FileUtil.extName(fileName));
+        result.setMimeType(fileName.endsWith(".png") ? "image/png" : "image/jpeg");
+        try {
+            result.setFileSize(Files.size(variant));
+        } catch (IOException e) {
+            return sysFile;
+        }
+        return result;
+    }
+
+    /**
+     * 删除内容对应的全部衍生图(物理文件删除时调用)
+     */
+    public void deleteVariants(SysFile sysFile) {
+        FileUtil.del(variantDir(sysFile).toFile());
+        for (Integer width : widths) {
+            passthrough.remove(variantKey(sysFile) + ":" + width);
+        }
+    }
+
+    /**
+     * 提交生成任务(已在生成中则复用，队列已满返回null)
+     */
+    private Future<Path> submit(SysFile sysFile, int width) {
+        String key = variantKey(sysFile) + ":" + width;
+        if (passthrough.containsKey(key) || findVariant(sysFile, width) != null) {
+            return CompletableFuture.completedFuture(findVariant(sysFile, width));
+        }
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = pending.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(generate(sysFile, width, key));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    pending.remove(key, future);
+                }
+            });
+            return future;
+        } catch (RejectedExecutionException e) {
+            pending.remove(key, future);
+            log.debug("衍生图队列已满，暂用原图: fileId={}, width={}", sysFile.getId(), width);
+            return null;
+        }
+    }
+
+    /**
+     * 生成衍生图(原图不超过档位宽度时返回null)
+     */
+    private Path generate(SysFile sysFile, int width, String key) throws IOException {
+        Path existing = findVariant(sysFile, width);
+        if (existing != null) {
+            return existing;
+        }
+        long startTime = System.currentTimeMillis();
+        Path source = Paths.get(sysFile.getFilePath());
+
+        // 先只读取尺寸，避免解码不需要缩放或过大的图片
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                passthrough.put(key, true);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if (sourceWidth <= width || (long) sourceWidth * sourceHeight > maxSourcePixels) {
+                    passthrough.put(key, true);
+                    return null;
+                }
+                BufferedImage image = reader.read(0);
+                int height = Math.max(1, (int) Math.round((double) sourceHeight * width / sourceWidth));
+                boolean alpha = image.getColorModel().hasAlpha();
+                BufferedImage scaled = scale(image, width, height, alpha);
+
+                Path target = variantDir(sysFile).resolve(width + (alpha ? ".png" : ".jpg"));
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), width + "-", ".tmp");
+                try {
+                    if (alpha) {
+                        ImageIO.write(scaled, "png", temp.toFile());
+                    } else {
+                        writeJpeg(scaled, temp);
+                    }
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                log.debug("衍生图生成: fileId={}, {}x{} -> {}x{}, 耗时={}ms", sysFile.getId(),
+                        sourceWidth, sourceHeight, width, height, System.currentTimeMillis() - startTime);
+                return target;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 双线性缩放(大比例缩小时分步减半，避免锯齿)
+     */
+    private BufferedImage scale(BufferedImage image, int width, int height, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    // JPEG没有透明通道，透明区域填白
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, currentWidth, currentHeight);
+                }
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path findVariant(SysFile sysFile, int width) {
+        Path dir = variantDir(sysFile);
+        for (String ext : List.of(".jpg", ".png")) {
+            Path path = dir.resolve(width + ext);
+            if (Files.exists(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private Path variantDir(SysFile sysFile) {
+        String key = variantKey(sysFile);
+        return Paths.get(uploadPath, VARIANT_DIR, key.substring(0, 2), key);
+    }
+
+    /**
+     * 衍生图按内容摘要归属，历史文件按文件ID
+     */
+    private String variantKey(SysFile sysFile) {
+        return sysFile.getContentHash() != null ? sysFile.getContentHash() : "id" + sysFile.getId();
+    }
+
+    private boolean isImage(SysFile sysFile) {
+        return "image".equals(sysFile.getFileType());
+    }
+}
@@ -1,20 +1,25 @@
 package com.qdq.service;
 
-import cn.dev33.satoken.stp.StpUtil;
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.support.ExcelTypeEnum;
 import com.alibaba.excel.write.metadata.WriteSheet;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.dto.ImportResult;
 import com.qdq.dto.QuestionImportDTO;
 import com.qdq.entity.QuizQuestion;
 import com.qdq.exception.BusinessException;
+import com.qdq.listener.QuestionImportListener;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -25,101 +30,220 @@ import java.util.stream.Collectors;
 public class ImportExportService {
 
     private final QuestionService questionService;
-    private final QuizBankService bankService;
+    private final QuestionDedupService dedupService;
 
-    public ImportExportService(QuestionService questionService, QuizBankService bankService) {
+    @Value("${quiz.import.batch-size:500}")
+    private int importBatchSize;
+
+    @Value("${quiz.export.page-size:1000}")
+    private int exportPageSize;
+
+    public ImportExportService(QuestionService questionService,
+                               QuestionDedupService dedupService) {
         this.questionService = questionService;
-        this.bankService = bankService;
+        this.dedupService = dedupService;
     }
 
     /**
-     * 导入题目(从Excel文件)
+     * 导入题目(从Excel文件流)
+     * 流式读取，逐行校验(含题库内及文件内查重)，按批次写入；result.lastRowNum不为0时从断点之后继续
+     *
+     * @param batchWriter      批量写入(每批一个事务，提交后同步内存索引)
+     * @param progressCallback 每批写入后的进度回调
      */
-    @Transactional(rollbackFor = Exception.class)
-    public List<QuizQuestion> importQuestions(MultipartFile file, Long bankId) {
-        if (file == null || file.isEmpty()) {
-            throw new BusinessException("文件不能为空");
-        }
+    public ImportResult importQuestions(InputStream inputStream, Long bankId, Long operatorId, ImportResult result,
+                                        Consumer<List<QuizQuestion>> batchWriter,
+                                        Consumer<ImportResult> progressCallback) {
+        long startTime = System.currentTimeMillis();
+        result.setBankId(bankId);
 
-        List<QuizQuestion> questions = new ArrayList<>();
-        try {
-            List<QuestionImportDTO> dtoList = EasyExcel.read(file.getInputStream(), QuestionImportDTO.class, null)
-                    .sheet()
-                    .doReadSync();
+        // 本次文件内已出现的指纹
+        Set<String> fileFingerprints = new HashSet<>();
 
-            // 验证题库
-            if (bankId != null) {
-                bankService.getDetail(bankId);
-            }
+        QuestionImportListener listener = new QuestionImportListener(
+                importBatchSize,
+                dto -> {
+                    QuizQuestion question = toQuestion(dto, bankId, operatorId);
+                    checkDuplicate(question, fileFingerprints);
+                    return question;
+                },
+                batchWriter,
+                progressCallback,
+                result);
 
-            for (QuestionImportDTO dto : dtoList) {
-                if (StrUtil.isBlank(dto.getTitle())) {
-                    continue; // 跳过标题为空的行
-                }
+        EasyExcel.read(inputStream, QuestionImportDTO.class, listener)
+                .sheet()
+                .doRead();
 
-                QuizQuestion question = new QuizQuestion();
-                question.setTitle(dto.getTitle());
-                question.setContent(dto.getContent());
-                question.setScore(dto.getScore() != null ? dto.getScore() : 10);
-                question.setAnalysis(dto.getAnalysis());
-                question.setBankId(bankId);
-                question.setStatus(1); // 默认已发布
-                question.setIsDisabled(0); // 默认未禁用
-                question.setCreatedBy(StpUtil.getLoginIdAsLong());
-                question.setUpdatedBy(StpUtil.getLoginIdAsLong());
-
-                // 处理题型
-                if (StrUtil.isNotBlank(dto.getType())) {
-                    question.setType(parseQuestionType(dto.getType()));
-                }
+        result.setCostMs(System.currentTimeMillis() - startTime);
+        log.info("导入题目完成: 总行数={}, 成功={}, 失败={}, 耗时={}ms",
+                result.getTotalRows(), result.getSuccessCount(), result.getFailedCount(), result.getCostMs());
+        return result;
+    }
 
-                // 处理难度
-                if (StrUtil.isNotBlank(dto.getDifficulty())) {
-                    question.setDifficulty(parseDifficulty(dto.getDifficulty()));
-                }
+    /**
+     * 获取导入批次大小
+     */
+    public int getImportBatchSize() {
+        return importBatchSize;
+    }
 
-                // 处理选项(JSON字符串转List)
-                if (StrUtil.isNotBlank(dto.getOptions())) {
-                    question.setOptions(parseOptions(dto.getOptions()));
-                }
+    /**
+     * 校验导入行并转换为题目
+     */
+    private QuizQuestion toQuestion(QuestionImportDTO dto, Long bankId, Long operatorId) {
+        if (StrUtil.isBlank(dto.getTitle())) {
+            throw new BusinessException("题目标题不能为空");
+        }
+        if (dto.getTitle().length() > 500) {
+            throw new BusinessException("题目标题不能超过500个字符");
+        }
+        if (dto.getScore() != null && dto.getScore() < 1) {
+            throw new BusinessException("分值必须大于0");
+        }
 
-                // 处理答案
-                if (StrUtil.isNotBlank(dto.getAnswer())) {
-                    question.setAnswer(dto.getAnswer());
-                }
+        QuizQuestion question = new QuizQuestion();
+        question.setTitle(dto.getTitle());
+        question.setContent(dto.getContent());
+        question.setScore(dto.getScore() != null ? dto.getScore() : 10);
+        question.setAnalysis(dto.getAnalysis());
+        question.setBankId(bankId);
+        question.setStatus(1); // 默认已发布
+        question.setIsDisabled(0); // 默认未禁用
+        question.setCreatedBy(operatorId);
+        question.setUpdatedBy(operatorId);
 
-                // 处理标签
-                if (StrUtil.isNotBlank(dto.getTags())) {
-                    question.setTags(Arrays.asList(dto.getTags().split(",")));
-                }
+        // 处理题型
+        if (StrUtil.isNotBlank(dto.getType())) {
+            question.setType(parseQuestionType(dto.getType()));
+        } else {
+            question.setType(1);
+        }
 
-                questionService.save(question);
-                questions.add(question);
-            }
+        // 处理难度
+        if (StrUtil.isNotBlank(dto.getDifficulty())) {
+            question.setDifficulty(parseDifficulty(dto.getDifficulty()));
+        }
 
-            // 更新题库中的题目数量
-            if (bankId != null) {
-                bankService.updateQuestionCount(bankId);
-            }
+        // 处理选项(JSON字符串转List)
+        if (StrUtil.isNotBlank(dto.getOptions())) {
+            question.setOptions(parseOptions(dto.getOptions()));
+        }
+
+        // 处理答案
+        if (StrUtil.isNotBlank(dto.getAnswer())) {
+            question.setAnswer(dto.getAnswer());
+        }
 
-            log.info("导入题目成功: {}道", questions.size());
-            return questions;
+        // 处理标签
+        if (StrUtil.isNotBlank(dto.getTags())) {
+            question.setTags(Arrays.asList(dto.getTags().split(",")));
+        }
+
+        return question;
+    }
 
-        } catch (IOException e) {
-            log.error("导入题目失败", e);
-            throw new BusinessException("导入失败: " + e.getMessage());
+    /**
+     * 导入查重
+     */
+    private void checkDuplicate(QuizQuestion question, Set<String> fileFingerprints) {
+        String fingerprint = dedupService.fingerprint(question);
+        Long duplicateId = dedupService.findDuplicate(question.getBankId(), fingerprint);
+        if (duplicateId != null) {
+            throw new BusinessException("与题库中已有题目重复(ID=" + duplicateId + ")");
+        }
+        if (!fileFingerprints.add(fingerprint)) {
+            throw new BusinessException("与文件中前面的题目重复");
         }
     }
 
     /**
      * 导出题目模板
      */
-    public void exportTemplate(String filePath) {
-        List<QuestionImportDTO> templateList = createTemplate();
-        EasyExcel.write(filePath, QuestionImportDTO.class)
+    public void exportTemplate(OutputStream outputStream) {
+        EasyExcel.write(outputStream, QuestionImportDTO.class)
+                .autoCloseStream(false)
                 .sheet("题目模板")
-                .doWrite(templateList);
-        log.info("导出题目模板成功: {}", filePath);
+                .doWrite(createTemplate());
+    }
+
+    /**
+     * 流式导出题目
+     * 按ID做键集分页逐页查询并增量写入输出流，内存占用与总题数无关
+     */
+    public long exportQuestions(OutputStream outputStream, ExcelTypeEnum excelType, Long bankId, Long categoryId,
+                                Integer type, Integer difficulty, Integer status) {
+        long startTime = System.currentTimeMillis();
+        long total = 0;
+        Long lastId = 0L;
+
+        ExcelWriter excelWriter = EasyExcel.write(outputStream, QuestionImportDTO.class)
+                .excelType(excelType)
+                .autoCloseStream(false)
+                .build();
+        try {
+            WriteSheet writeSheet = EasyExcel.writerSheet("题目").build();
+            while (true) {
+                LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
+                wrapper.select(QuizQuestion::getId, QuizQuestion::getType, QuizQuestion::getTitle,
+                        QuizQuestion::getContent, QuizQuestion::getOptions, QuizQuestion::getAnswer,
+                        QuizQuestion::getAnalysis, QuizQuestion::getScore, QuizQuestion::getDifficulty,
+                        QuizQuestion::getTags);
+                wrapper.eq(bankId != null, QuizQuestion::getBankId, bankId);
+                wrapper.eq(categoryId != null, QuizQuestion::getCategoryId, categoryId);
+                wrapper.eq(type != null, QuizQuestion::getType, type);
+                wrapper.eq(difficulty != null, QuizQuestion::getDifficulty, difficulty);
+                wrapper.eq(status != null, QuizQuestion::getStatus, status);
+                wrapper.gt(QuizQuestion::getId, lastId);
+                wrapper.orderByAsc(QuizQuestion::getId);
+
+                List<QuizQuestion> questions = questionService.page(new Page<>(1, exportPageSize, false), wrapper)
+                        .getRecords();
+                if (questions.isEmpty()) {
+                    break;
+                }
+
+                List<QuestionImportDTO> rows = new ArrayList<>(questions.size());
+                for (QuizQuestion question : questions) {
+                    rows.add(toExportRow(question));
+                }
+                excelWriter.write(rows, writeSheet);
+
+                total += questions.size();
+                lastId = questions.get(questions.size() - 1).getId();
+                if (questions.size() < exportPageSize) {
+                    break;
+                }
+            }
+        } finally {
+            excelWriter.finish();
+        }
+
+        log.info("导出题目完成: {}道, 耗时={}ms", total, System.currentTimeMillis() - startTime);
+        return total;
+    }
+
+    /**
+     * 题目转换为导出行(与导入模板格式一致)
+     */
+    private QuestionImportDTO toExportRow(QuizQuestion question) {
+        QuestionImportDTO row = new QuestionImportDTO();
+        row.setTitle(question.getTitle());
+        row.setType(formatQuestionType(question.getType()));
+        row.setDifficulty(formatDifficulty(question.getDifficulty()));
+        row.setScore(question.getScore());
+        row.setContent(question.getContent());
+        row.setOptions(formatOptions(question.getOptions()));
+        if (question.getAnswer() instanceof Collection<?> answers) {
+            row.setAnswer(answers.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } else if (question.getAnswer() != null) {
+            row.setAnswer(question.getAnswer().toString());
+        }
+        row.setAnalysis(question.getAnalysis());
+        if (question.getTags() != null) {
+            row.setTags(String.join(",", question.getTags()));
+        }
+        return row;
     }
 
     /**
@@ -173,6 +297,52 @@ public class ImportExportService {
         };
     }
 
+    /**
+     * 格式化题型
+     */
+    private String formatQuestionType(Integer type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case 1 -> "单选";
+            case 2 -> "多选";
+            case 3 -> "判断";
+            case 4 -> "填空";
+            case 5 -> "主观";
+            case 6 -> "音频";
+            case 7 -> "视频";
+            default -> null;
+        };
+    }
+
+    /**
+     * 格式化难度
+     */
+    private String formatDifficulty(Integer difficulty) {
+        if (difficulty == null) {
+            return null;
+        }
+        return switch (difficulty) {
+            case 1 -> "简单";
+            case 2 -> "中等";
+            case 3 -> "困难";
+            default -> null;
+        };
+    }
+
+    /**
+     * 格式化选项 (格式: A:选项1,B:选项2)
+     */
+    private String formatOptions(List<Map<String, Object>> options) {
+        if (options == null || options.isEmpty()) {
+            return null;
+        }
+        return options.stream()
+                .map(option -> option.get("label") + ":" + option.get("value"))
+                .collect(Collectors.joining(","));
+    }
+
     /**
      * 解析选项 (格式: A:选项1,B:选项2)
      */
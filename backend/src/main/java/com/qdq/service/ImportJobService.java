@@ -0,0 +1,284 @@
+package com.qdq.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.qdq.dto.ImportResult;
+import com.qdq.entity.QuizImportJob;
+import com.qdq.exception.BusinessException;
+import com.qdq.mapper.QuizImportJobMapper;
+import com.qdq.websocket.WebSocketMessageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 题目导入任务服务
+ * 上传文件先落盘并立即返回任务ID，由后台线程池分批导入；
+ * 每批题目与断点在同一事务内提交，服务重启后从最后提交的批次继续
+ */
+@Slf4j
+@Service
+public class ImportJobService extends ServiceImpl<QuizImportJobMapper, QuizImportJob> {
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_COMPLETED = 2;
+    public static final int STATUS_FAILED = 3;
+
+    private final ImportExportService importExportService;
+    private final QuestionService questionService;
+    private final QuizBankService bankService;
+    private final WebSocketMessageService wsMessageService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${quiz.import.spool-path:./uploads/import}")
+    private String spoolPath;
+
+    @Value("${quiz.import.worker-threads:2}")
+    private int workerThreads;
+
+    private ExecutorService executor;
+
+    public ImportJobService(ImportExportService importExportService,
+                            QuestionService questionService,
+                            QuizBankService bankService,
+                            WebSocketMessageService wsMessageService,
+                            TransactionTemplate transactionTemplate) {
+        this.importExportService = importExportService;
+        this.questionService = questionService;
+        this.bankService = bankService;
+        this.wsMessageService = wsMessageService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(workerThreads, ThreadUtil.newNamedThreadFactory("import-job-", false));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 提交导入任务
+     */
+    public QuizImportJob submit(MultipartFile file, Long bankId) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("文件不能为空");
+        }
+
+        // 验证题库
+        if (bankId != null) {
+            bankService.getDetail(bankId);
+        }
+
+        // 暂存上传文件
+        File dir = new File(spoolPath);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File spoolFile = new File(dir, UUID.randomUUID() + ".xlsx");
+        try {
+            file.transferTo(spoolFile.getAbsoluteFile());
+        } catch (IOException e) {
+            log.error("暂存导入文件失败", e);
+            throw new BusinessException("上传文件失败: " + e.getMessage());
+        }
+
+        QuizImportJob job = new QuizImportJob();
+        job.setBankId(bankId);
+        job.setFileName(file.getOriginalFilename());
+        job.setFilePath(spoolFile.getAbsolutePath());
+        job.setStatus(STATUS_PENDING);
+        job.setTotalRows(0);
+        job.setSuccessCount(0);
+        job.setFailedCount(0);
+        job.setLastRowNum(0);
+        job.setCreatedBy(StpUtil.getLoginIdAsLong());
+        this.save(job);
+
+        executor.submit(() -> runJob(job.getId()));
+        log.info("导入任务已提交: jobId={}, file={}", job.getId(), job.getFileName());
+        return job;
+    }
+
+    /**
+     * 获取任务进度
+     */
+    public QuizImportJob getDetail(Long jobId) {
+        QuizImportJob job = this.getById(jobId);
+        if (job == null) {
+            throw new BusinessException("导入任务不存在");
+        }
+        job.setThroughput(computeThroughput(job));
+        return job;
+    }
+
+    /**
+     * 启动后恢复未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<QuizImportJob> jobs = this.list(new LambdaQueryWrapper<QuizImportJob>()
+                .in(QuizImportJob::getStatus, STATUS_PENDING, STATUS_RUNNING)
+                .orderByAsc(QuizImportJob::getId));
+        for (QuizImportJob job : jobs) {
+            log.info("恢复导入任务: jobId={}, 断点行={}", job.getId(), job.getLastRowNum());
+            executor.submit(() -> runJob(job.getId()));
+        }
+    }
+
+    /**
+     * 执行导入任务
+     */
+    private void runJob(Long jobId) {
+        QuizImportJob job = this.getById(jobId);
+        if (job == null || job.getStatus() == STATUS_COMPLETED || job.getStatus() == STATUS_FAILED) {
+            return;
+        }
+
+        job.setStatus(STATUS_RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        this.updateById(job);
+
+        ImportResult result = restoreResult(job);
+        int batchSize = importExportService.getImportBatchSize();
+
+        try (InputStream in = new FileInputStream(job.getFilePath())) {
+            importExportService.importQuestions(in, job.getBankId(), job.getCreatedBy(), result,
+                    batch -> transactionTemplate.executeWithoutResult(status -> {
+                        // 题目与断点同一事务提交，崩溃后不会重复导入
+                        questionService.saveImported(batch, batchSize);
+                        ImportResult committed = BeanUtil.copyProperties(result, ImportResult.class);
+                        committed.setSuccessCount(result.getSuccessCount() + batch.size());
+                        saveCheckpoint(jobId, committed, null);
+                    }),
+                    progress -> {
+                        saveCheckpoint(jobId, progress, null);
+                        pushProgress(job, progress, STATUS_RUNNING);
+                    });
+
+            saveCheckpoint(jobId, result, STATUS_COMPLETED);
+            pushProgress(job, result, STATUS_COMPLETED);
+            deleteSpoolFile(job);
+            log.info("导入任务完成: jobId={}, 成功={}, 失败={}", jobId, result.getSuccessCount(), result.getFailedCount());
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                // 服务停止导致中断，保留运行状态，重启后从断点继续
+                log.warn("导入任务被中断，等待重启后恢复: jobId={}", jobId);
+                return;
+            }
+            log.error("导入任务失败: jobId={}", jobId, e);
+            QuizImportJob failed = new QuizImportJob();
+            failed.setId(jobId);
+            failed.setStatus(STATUS_FAILED);
+            failed.setErrorMessage(StrUtil.maxLength(e.getMessage(), 490));
+            failed.setFinishedAt(LocalDateTime.now());
+            this.updateById(failed);
+            pushProgress(job, result, STATUS_FAILED);
+            deleteSpoolFile(job);
+        }
+    }
+
+    /**
+     * 从任务记录恢复导入结果(断点续传)
+     */
+    private ImportResult restoreResult(QuizImportJob job) {
+        ImportResult result = new ImportResult();
+        result.setBankId(job.getBankId());
+        result.setTotalRows(job.getTotalRows() != null ? job.getTotalRows() : 0);
+        result.setSuccessCount(job.getSuccessCount() != null ? job.getSuccessCount() : 0);
+        result.setFailedCount(job.getFailedCount() != null ? job.getFailedCount() : 0);
+        result.setLastRowNum(job.getLastRowNum() != null ? job.getLastRowNum() : 0);
+        if (job.getErrors() != null) {
+            for (Map<String, Object> error : job.getErrors()) {
+                result.getErrors().add(BeanUtil.toBean(error, ImportResult.RowError.class));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 保存断点
+     */
+    private void saveCheckpoint(Long jobId, ImportResult result, Integer status) {
+        QuizImportJob checkpoint = new QuizImportJob();
+        checkpoint.setId(jobId);
+        checkpoint.setTotalRows(result.getTotalRows());
+        checkpoint.setSuccessCount(result.getSuccessCount());
+        checkpoint.setFailedCount(result.getFailedCount());
+        checkpoint.setLastRowNum(result.getLastRowNum());
+        List<Map<String, Object>> errors = new ArrayList<>(result.getErrors().size());
+        for (ImportResult.RowError error : result.getErrors()) {
+            errors.add(BeanUtil.beanToMap(error));
+        }
+        checkpoint.setErrors(errors);
+        if (status != null) {
+            checkpoint.setStatus(status);
+            checkpoint.setFinishedAt(LocalDateTime.now());
+        }
+        this.updateById(checkpoint);
+    }
+
+    /**
+     * 推送导入进度
+     */
+    private void pushProgress(QuizImportJob job, ImportResult progress, int status) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("jobId", job.getId());
+        data.put("bankId", job.getBankId());
+        data.put("status", status);
+        data.put("processed", progress.getTotalRows());
+        data.put("successCount", progress.getSuccessCount());
+        data.put("failedCount", progress.getFailedCount());
+        wsMessageService.sendToUser(job.getCreatedBy(), "import_progress", data);
+    }
+
+    /**
+     * 计算吞吐量(行/秒)
+     */
+    private Double computeThroughput(QuizImportJob job) {
+        if (job.getStartedAt() == null || job.getTotalRows() == null) {
+            return null;
+        }
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        long millis = Math.max(Duration.between(job.getStartedAt(), end).toMillis(), 1);
+        return job.getTotalRows() * 1000.0 / millis;
+    }
+
+    /**
+     * 删除暂存文件
+     */
+    private void deleteSpoolFile(QuizImportJob job) {
+        File file = new File(job.getFilePath());
+        if (file.exists() && !file.delete()) {
+            log.warn("暂存文件删除失败: {}", job.getFilePath());
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.qdq.service;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ReUtil;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.entity.SysFile;
+import com.qdq.exception.BusinessException;
+import com.qdq.util.MappedBufferUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 比赛媒体预热缓存服务
+ * 比赛开始前把场次题目附件以只读内存映射方式载入(堆外，按总字节数LRU淘汰)，
+ * 推题瞬间的大量并发下载直接从内存输出，不再争抢磁盘。
+ * 按物理文件路径缓存(内容相同的文件共用一个映射)；条目带引用计数，淘汰后等正在输出的请求结束即解除映射
+ */
+@Slf4j
+@Service
+public class MediaCacheService {
+
+    private final QuestionService questionService;
+    private final FileStorageService fileStorageService;
+
+    @Value("${quiz.media-cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${quiz.media-cache.max-file-bytes:134217728}")
+    private long maxFileBytes;
+
+    @Value("${quiz.media-cache.prefetch-count:3}")
+    private int prefetchCount;
+
+    @Value("${quiz.media-cache.warmup-threads:2}")
+    private int warmupThreads;
+
+    /** 物理文件路径 -> 缓存条目(访问顺序，最久未访问的在前) */
+    private final LinkedHashMap<String, CachedMedia> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalBytes = 0;
+
+    /** 场次ID -> 该场次预热的物理文件路径 */
+    private final Map<Long, Set<String>> sessionFiles = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    public MediaCacheService(QuestionService questionService, FileStorageService fileStorageService) {
+        this.questionService = questionService;
+        this.fileStorageService = fileStorageService;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(warmupThreads, ThreadUtil.newNamedThreadFactory("media-warmup-", true));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取缓存的媒体并增加引用(未命中返回null)，使用完毕必须调用 CachedMedia.release
+     */
+    public CachedMedia acquire(SysFile sysFile) {
+        synchronized (entries) {
+            CachedMedia media = entries.get(sysFile.getFilePath());
+            return media != null && media.retain() ? media : null;
+        }
+    }
+
+    /**
+     * 异步预热场次全部题目的附件(按题目顺序，预热总量不超过缓存容量)
+     */
+    public void warmUpSession(Long sessionId, List<Long> questionIds) {
+        if (questionIds == null || questionIds.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            Set<String> files = sessionFiles.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet());
+            long warmedBytes = 0;
+            for (Long fileId : resolveFileIds(questionIds)) {
+                SysFile sysFile = findFile(fileId);
+                if (sysFile == null || sysFile.getFileSize() == null || sysFile.getFileSize() > maxFileBytes
+                        || files.contains(sysFile.getFilePath())) {
+                    continue;
+                }
+                // 只预热前面能放下的部分，避免后面的题目把前面的挤出缓存
+                if (warmedBytes + sysFile.getFileSize() > maxBytes) {
+                    break;
+                }
+                if (load(sysFile)) {
+                    files.add(sysFile.getFilePath());
+                    warmedBytes += sysFile.getFileSize();
+                }
+            }
+            log.info("场次媒体预热完成: sessionId={}, 文件数={}, 大小={}KB, 耗时={}ms",
+                    sessionId, files.size(), warmedBytes / 1024, System.currentTimeMillis() - startTime);
+        });
+    }
+
+    /**
+     * 获取接下来的题目媒体(供客户端预取)，并异步确保其已进入缓存
+     *
+     * @param currentIndex 当前题目索引(未开始为-1)
+     */
+    public List<Map<String, Object>> prepareUpcoming(Long sessionId, List<Long> questionIds, int currentIndex) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        if (questionIds == null) {
+            return items;
+        }
+        int from = Math.max(currentIndex + 1, 0);
+        int to = Math.min(from + prefetchCount, questionIds.size());
+        if (from >= to) {
+            return items;
+        }
+
+        List<Long> upcomingIds = questionIds.subList(from, to);
+        Map<Long, QuizQuestion> questions = new HashMap<>();
+        for (QuizQuestion question : questionService.getByIds(upcomingIds)) {
+            questions.put(question.getId(), question);
+        }
+
+        List<SysFile> toLoad = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            QuizQuestion question = questions.get(questionIds.get(i));
+            if (question == null || question.getAttachments() == null) {
+                continue;
+            }
+            for (Map<String, String> attachment : question.getAttachments()) {
+                Long fileId = resolveFileId(attachment);
+                SysFile sysFile = fileId != null ? findFile(fileId) : null;
+                if (sysFile == null) {
+                    continue;
+                }
+                Map<String, Object> item = new HashMap<>();
+                item.put("questionIndex", i);
+                item.put("fileId", fileId);
+                item.put("url", "/api/files/" + fileId + "/stream");
+                item.put("mimeType", sysFile.getMimeType());
+                item.put("fileSize", sysFile.getFileSize());
+                items.add(item);
+                toLoad.add(sysFile);
+            }
+        }
+
+        if (!toLoad.isEmpty()) {
+            executor.execute(() -> {
+                Set<String> files = sessionFiles.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet());
+                for (SysFile sysFile : toLoad) {
+                    if (sysFile.getFileSize() != null && sysFile.getFileSize() <= maxFileBytes && load(sysFile)) {
+                        files.add(sysFile.getFilePath());
+                    }
+                }
+            });
+        }
+        return items;
+    }
+
+    /**
+     * 释放场次预热的媒体(仍被其他场次使用的保留)
+     */
+    public void releaseSession(Long sessionId) {
+        Set<String> files = sessionFiles.remove(sessionId);
+        if (files == null) {
+            return;
+        }
+        Set<String> inUse = new HashSet<>();
+        sessionFiles.values().forEach(inUse::addAll);
+        synchronized (entries) {
+            for (String filePath : files) {
+                if (!inUse.contains(filePath)) {
+                    remove(filePath);
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除物理文件的缓存并解除映射(删除物理文件之前调用；仍在输出的请求结束后才解除)
+     */
+    public void evict(String filePath) {
+        synchronized (entries) {
+            remove(filePath);
+        }
+    }
+
+    private void remove(String filePath) {
+        CachedMedia removed = entries.remove(filePath);
+        if (removed != null) {
+            totalBytes -= removed.length();
+            removed.release();
+        }
+    }
+
+    /**
+     * 映射并载入文件页，超出容量时淘汰最久未访问的条目
+     */
+    private boolean load(SysFile sysFile) {
+        synchronized (entries) {
+            if (entries.containsKey(sysFile.getFilePath())) {
+                return true;
+            }
+        }
+        Path path = Paths.get(sysFile.getFilePath());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > maxFileBytes || length > maxBytes) {
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            // 预先触发缺页，把内容读入内存
+            buffer.load();
+            long lastModified = Files.getLastModifiedTime(path).toMillis() / 1000 * 1000;
+            CachedMedia media = new CachedMedia(buffer, length, lastModified, sysFile.getFilePath());
+
+            synchronized (entries) {
+                CachedMedia previous = entries.put(sysFile.getFilePath(), media);
+                if (previous != null) {
+                    totalBytes -= previous.length();
+                    previous.release();
+                }
+                totalBytes += length;
+                Iterator<Map.Entry<String, CachedMedia>> iterator = entries.entrySet().iterator();
+                while (totalBytes > maxBytes && iterator.hasNext()) {
+                    Map.Entry<String, CachedMedia> eldest = iterator.next();
+                    if (eldest.getKey().equals(sysFile.getFilePath())) {
+                        continue;
+                    }
+                    totalBytes -= eldest.getValue().length();
+                    eldest.getValue().release();
+                    iterator.remove();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("媒体预热失败: fileId={}, {}", sysFile.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private SysFile findFile(Long fileId) {
+        try {
+            return fileStorageService.getFileInfo(fileId);
+        } catch (BusinessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按题目顺序解析附件文件ID(去重)
+     */
+    private List<Long> resolveFileIds(List<Long> questionIds) {
+        Map<Long, QuizQuestion> questions = new HashMap<>();
+        for (QuizQuestion question : questionService.getByIds(questionIds)) {
+            questions.put(question.getId(), question);
+        }
+        Set<Long> fileIds = new LinkedHashSet<>();
+        for (Long questionId : questionIds) {
+            QuizQuestion question = questions.get(questionId);
+            if (question == null || question.getAttachments() == null) {
+                continue;
+            }
+            for (Map<String, String> attachment : question.getAttachments()) {
+                Long fileId = resolveFileId(attachment);
+                if (fileId != null) {
+                    fileIds.add(fileId);
+                }
+            }
+        }
+        return new ArrayList<>(fileIds);
+    }
+
+    /**
+     * 从附件中解析文件ID(fileId字段，或 /api/files/{id}/... 形式的url)
+     */
+    private Long resolveFileId(Map<String, ?> attachment) {
+        // JSON反序列化时数值字段可能不是字符串，统一按Object读取
+        Object rawId = attachment.get("fileId");
+        Object url = attachment.get("url");
+        String fileId = rawId != null ? rawId.toString() : null;
+        if (fileId == null && url != null) {
+            fileId = ReUtil.get("/api/files/(\\d+)", url.toString(), 1);
+        }
+        try {
+            return fileId != null ? Long.valueOf(fileId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 缓存条目(只读缓冲区，使用时需duplicate)
+     * 引用数: 缓存本身持有1个，每个正在输出的请求各持有1个，归零时解除映射
+     */
+    public static final class CachedMedia {
+
+        private final MappedByteBuffer mapped;
+        private final ByteBuffer buffer;
+        private final long length;
+        private final long lastModified;
+        private final String filePath;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        CachedMedia(MappedByteBuffer mapped, long length, long lastModified, String filePath) {
+            this.mapped = mapped;
+            this.buffer = mapped.asReadOnlyBuffer();
+            this.length = length;
+            this.lastModified = lastModified;
+            this.filePath = filePath;
+        }
+
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        public String filePath() {
+            return filePath;
+        }
+
+        boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                MappedBufferUtil.unmap(mapped);
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.qdq.service;
+
+import com.qdq.entity.SysFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 媒体文件流式输出服务
+ * 支持单段/多段Range、强ETag与Last-Modified条件请求；
+ * 预热过的媒体从内存映射缓存输出；其余整文件和单段输出优先使用Tomcat sendfile零拷贝，
+ * 不支持时使用FileChannel.transferTo
+ */
+@Slf4j
+@Service
+public class MediaStreamService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String MULTIPART_BOUNDARY = "QDQ_MEDIA_BOUNDARY";
+
+    /** 合并后多段Range的段数上限，超过时按整文件返回 */
+    private static final int MAX_RANGE_PARTS = 16;
+
+    private final MediaCacheService mediaCacheService;
+
+    @Value("${quiz.upload.cache-max-age:86400}")
+    private long cacheMaxAge;
+
+    public MediaStreamService(MediaCacheService mediaCacheService) {
+        this.mediaCacheService = mediaCacheService;
+    }
+
+    /**
+     * 输出文件
+     *
+     * @param attachment true以附件下载，false内联播放
+     */
+    public void stream(SysFile sysFile, boolean attachment, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        // 预热过的媒体直接从内存输出，连文件元数据都不再访问磁盘；输出期间持有引用，缓存淘汰后不会提前解除映射
+        MediaCacheService.CachedMedia cached = mediaCacheService.acquire(sysFile);
+        try {
+            stream(sysFile, cached, attachment, request, response);
+        } finally {
+            if (cached != null) {
+                cached.release();
+            }
+        }
+    }
+
+    private void stream(SysFile sysFile, MediaCacheService.CachedMedia cached, boolean attachment,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = Paths.get(sysFile.getFilePath());
+        long length;
+        long lastModified;
+        if (cached != null) {
+            length = cached.length();
+            lastModified = cached.lastModified();
+        } else {
+            if (!Files.isRegularFile(path)) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            length = Files.size(path);
+            // HTTP日期只精确到秒
+            lastModified = Files.getLastModifiedTime(path).toMillis() / 1000 * 1000;
+        }
+        MediaSource source = new MediaSource(path, cached);
+        String etag = "\"" + Long.toHexString(sysFile.getId()) + "-" + Long.toHexString(length)
+                + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "max-age=" + cacheMaxAge);
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String mimeType = sysFile.getMimeType() != null ? sysFile.getMimeType() : "application/octet-stream";
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.builder(attachment ? "attachment" : "inline")
+                        .filename(sysFile.getFileName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+
+        List<Segment> ranges;
+        try {
+            ranges = mergeRanges(resolveRanges(request, etag, lastModified), length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        try {
+            if (ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(mimeType);
+                response.setContentLengthLong(length);
+                if (!head) {
+                    send(source, 0, length, request, response);
+                }
+            } else if (ranges.size() == 1) {
+                long start = ranges.get(0).start();
+                long end = ranges.get(0).end();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(mimeType);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                response.setContentLengthLong(end - start + 1);
+                if (!head) {
+                    send(source, start, end - start + 1, request, response);
+                }
+            } else {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+                if (!head) {
+                    sendMultipart(source, length, mimeType, ranges, response);
+                }
+            }
+        } catch (IOException e) {
+            // 播放器拖动进度时会主动断开连接，属于正常情况
+            log.debug("媒体输出中断: fileId={}, {}", sysFile.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 条件请求判断(If-None-Match优先于If-Modified-Since)
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = parseDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * 解析Range，If-Range不匹配时按整文件返回
+     */
+    private List<HttpRange> resolveRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return Collections.emptyList();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean matched = ifRange.startsWith("\"")
+                    ? ifRange.equals(etag)
+                    : parseDateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+            if (!matched) {
+                return Collections.emptyList();
+            }
+        }
+        return HttpRange.parseRanges(rangeHeader);
+    }
+
+    /**
+     * 校验并合并区间: 按起点排序，重叠或相邻的区间合并为一段
+     * 多段请求的总长度超过文件长度时拒绝(如 bytes=0-,0-,0- 重复请求整文件)，合并后段数过多时按整文件返回
+     */
+    private List<Segment> mergeRanges(List<HttpRange> ranges, long length) {
+        List<Segment> segments = new ArrayList<>(ranges.size());
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || end < start) {
+                throw new IllegalArgumentException("Range越界");
+            }
+            segments.add(new Segment(start, end));
+            requested += end - start + 1;
+        }
+        if (segments.size() > 1 && requested > length) {
+            throw new IllegalArgumentException("Range总长度超过文件长度");
+        }
+        segments.sort(Comparator.comparingLong(Segment::start));
+        List<Segment> merged = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            Segment last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && segment.start() <= last.end() + 1) {
+                merged.set(merged.size() - 1, new Segment(last.start(), Math.max(last.end(), segment.end())));
+            } else {
+                merged.add(segment);
+            }
+        }
+        if (merged.size() > MAX_RANGE_PARTS) {
+            return Collections.emptyList();
+        }
+        return merged;
+    }
+
+    private boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long parseDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 输出文件区间: 容器支持时交给sendfile，否则使用transferTo
+     */
+    private void send(MediaSource source, long start, long count, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (source.cached() == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, source.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        transfer(source, start, count, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * 输出多段区间(multipart/byteranges)
+     */
+    private void sendMultipart(MediaSource source, long length, String mimeType, List<Segment> ranges,
+                               HttpServletResponse response) throws IOException {
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        for (Segment range : ranges) {
+            long start = range.start();
+            long end = range.end();
+            String partHeader = "\r\n--" + MULTIPART_BOUNDARY + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + mimeType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            transfer(source, start, end - start + 1, channel);
+        }
+        out.write(("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private void transfer(MediaSource source, long start, long count, WritableByteChannel target)
+            throws IOException {
+        if (source.cached() != null) {
+            ByteBuffer slice = source.cached().buffer().duplicate();
+            slice.position((int) start).limit((int) (start + count));
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(source.path(), StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * 合并后的区间(闭区间)
+     */
+    private record Segment(long start, long end) {
+    }
+
+    /**
+     * 输出来源: 磁盘文件或内存缓存
+     */
+    private record MediaSource(Path path, MediaCacheService.CachedMedia cached) {
+    }
+}
@@ -0,0 +1,425 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.dto.DuplicateReport;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import com.qdq.util.TextFingerprintUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 题目去重索引服务
+ * 按题库在内存中维护题目指纹索引(首次访问时从数据库加载)，
+ * 精确重复通过指纹哈希O(1)判定，近似重复通过MinHash + LSH分段查找
+ */
+@Slf4j
+@Service
+public class QuestionDedupService {
+
+    /** 未归属题库的题目使用的索引键 */
+    private static final long NO_BANK = 0L;
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final QuizQuestionMapper questionMapper;
+
+    /** 题库ID -> 题库索引 */
+    private final Map<Long, BankIndex> bankIndexes = new ConcurrentHashMap<>();
+
+    /** 题库ID -> 正在加载的题库索引 */
+    private final Map<Long, LoadingIndex> loadingIndexes = new ConcurrentHashMap<>();
+
+    /** 题目ID -> 题库索引键 */
+    private final Map<Long, Long> questionBanks = new ConcurrentHashMap<>();
+
+    @Value("${quiz.dedup.near-threshold:0.8}")
+    private double nearThreshold;
+
+    public QuestionDedupService(QuizQuestionMapper questionMapper) {
+        this.questionMapper = questionMapper;
+    }
+
+    /**
+     * 计算题目指纹
+     */
+    public String fingerprint(QuizQuestion question) {
+        return TextFingerprintUtil.fingerprint(TextFingerprintUtil.normalizedText(question));
+    }
+
+    /**
+     * 查找题库内完全重复的题目
+     *
+     * @return 重复题目ID，无重复返回null
+     */
+    public Long findDuplicate(Long bankId, String fingerprint) {
+        return getIndex(bankId).findExact(fingerprint, null);
+    }
+
+    /**
+     * 查找题库内完全重复的题目(排除自身)
+     */
+    public Long findDuplicate(Long bankId, String fingerprint, Long excludeId) {
+        return getIndex(bankId).findExact(fingerprint, excludeId);
+    }
+
+    /**
+     * 登记题目(新增或更新提交后调用)
+     */
+    public void register(QuizQuestion question) {
+        Long questionId = question.getId();
+        long bankKey = bankKey(question.getBankId());
+        detach(questionId, bankKey);
+
+        String normalizedText = TextFingerprintUtil.normalizedText(question);
+        boolean applied = update(bankKey, index -> {
+            index.add(questionId, normalizedText);
+            questionBanks.put(questionId, bankKey);
+        });
+        if (!applied) {
+            // 索引未加载时无需登记，首次访问会从数据库完整加载
+            questionBanks.remove(questionId);
+        }
+    }
+
+    /**
+     * 批量登记题目
+     */
+    public void registerAll(Collection<QuizQuestion> questions) {
+        for (QuizQuestion question : questions) {
+            register(question);
+        }
+    }
+
+    /**
+     * 移除题目
+     */
+    public void remove(Long questionId) {
+        detach(questionId, null);
+    }
+
+    /**
+     * 批量移除题目
+     */
+    public void removeAll(Collection<Long> questionIds) {
+        for (Long questionId : questionIds) {
+            remove(questionId);
+        }
+    }
+
+    /**
+     * 丢弃题库索引(题库删除时调用)
+     */
+    public void dropBank(Long bankId) {
+        long bankKey = bankKey(bankId);
+        LoadingIndex loading = loadingIndexes.get(bankKey);
+        if (loading != null) {
+            // 正在加载的索引加载完成后不再发布
+            loading.drop();
+        }
+        BankIndex index = bankIndexes.remove(bankKey);
+        if (index != null) {
+            index.questionIds().forEach(questionBanks::remove);
+        }
+    }
+
+    /**
+     * 生成题库重复报告
+     */
+    public DuplicateReport buildReport(Long bankId) {
+        BankIndex index = getIndex(bankId);
+        DuplicateReport report = new DuplicateReport();
+        report.setBankId(bankId);
+        index.fillReport(report, nearThreshold);
+        return report;
+    }
+
+    /**
+     * 从题目当前所在的题库索引中移除(keepBankKey 为题目新的题库，由调用方随后重新登记)
+     * 正在加载的题库可能已读到该题目的旧记录，同样记下移除，加载完成后重放
+     */
+    private void detach(Long questionId, Long keepBankKey) {
+        Long oldBank = questionBanks.get(questionId);
+        if (oldBank != null && !oldBank.equals(keepBankKey)) {
+            BankIndex oldIndex = bankIndexes.get(oldBank);
+            if (oldIndex != null) {
+                oldIndex.remove(questionId);
+            }
+            questionBanks.remove(questionId, oldBank);
+        }
+        loadingIndexes.forEach((bankKey, loading) -> {
+            if (!bankKey.equals(keepBankKey)) {
+                update(bankKey, index -> {
+                    index.remove(questionId);
+                    questionBanks.remove(questionId, bankKey);
+                });
+            }
+        });
+    }
+
+    /**
+     * 修改题库索引: 正在加载时记下修改，加载完成后按顺序重放；已加载时直接修改
+     *
+     * @return 索引既未加载也不在加载中时返回false(之后的加载会从数据库读到最新数据)
+     */
+    private boolean update(long bankKey, Consumer<BankIndex> change) {
+        LoadingIndex loading = loadingIndexes.get(bankKey);
+        if (loading != null && loading.defer(change)) {
+            return true;
+        }
+        BankIndex index = bankIndexes.get(bankKey);
+        if (index == null) {
+            return false;
+        }
+        change.accept(index);
+        return true;
+    }
+
+    /**
+     * 获取题库索引(不存在时从数据库加载)
+     * 加载在映射锁之外进行，同一题库只有一个线程加载，其余线程等待加载结果
+     */
+    private BankIndex getIndex(Long bankId) {
+        long bankKey = bankKey(bankId);
+        BankIndex index = bankIndexes.get(bankKey);
+        if (index != null) {
+            return index;
+        }
+        LoadingIndex loading = new LoadingIndex();
+        LoadingIndex existing = loadingIndexes.putIfAbsent(bankKey, loading);
+        if (existing != null) {
+            return existing.await();
+        }
+        try {
+            // 取得加载权之前可能已有其他线程加载完成
+            index = bankIndexes.get(bankKey);
+            boolean published = index != null;
+            if (!published) {
+                index = loadIndex(bankKey);
+            }
+            publish(bankKey, index, loading, published);
+            loading.future.complete(index);
+            return index;
+        } catch (RuntimeException e) {
+            loading.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingIndexes.remove(bankKey, loading);
+        }
+    }
+
+    /**
+     * 重放加载期间的修改并发布索引
+     */
+    private void publish(long bankKey, BankIndex index, LoadingIndex loading, boolean published) {
+        synchronized (loading) {
+            if (!loading.dropped) {
+                if (!published) {
+                    index.questionIds().forEach(id -> questionBanks.put(id, bankKey));
+                }
+                loading.pending.forEach(change -> change.accept(index));
+                bankIndexes.putIfAbsent(bankKey, index);
+            }
+            loading.done = true;
+        }
+    }
+
+    /**
+     * 从数据库加载题库索引(按ID键集分页)
+     */
+    private BankIndex loadIndex(long bankKey) {
+        long startTime = System.currentTimeMillis();
+        BankIndex index = new BankIndex();
+        Long lastId = 0L;
+        while (true) {
+            LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(QuizQuestion::getId, QuizQuestion::getTitle,
+                    QuizQuestion::getContent, QuizQuestion::getOptions);
+            if (bankKey == NO_BANK) {
+                wrapper.isNull(QuizQuestion::getBankId);
+            } else {
+                wrapper.eq(QuizQuestion::getBankId, bankKey);
+            }
+            wrapper.gt(QuizQuestion::getId, lastId);
+            wrapper.orderByAsc(QuizQuestion::getId);
+
+            List<QuizQuestion> questions = questionMapper.selectPage(new Page<>(1, LOAD_PAGE_SIZE, false), wrapper)
+                    .getRecords();
+            for (QuizQuestion question : questions) {
+                index.add(question.getId(), TextFingerprintUtil.normalizedText(question));
+            }
+            if (questions.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+            lastId = questions.get(questions.size() - 1).getId();
+        }
+        log.info("加载题目去重索引: bankId={}, 题目数={}, 耗时={}ms",
+                bankKey, index.size(), System.currentTimeMillis() - startTime);
+        return index;
+    }
+
+    private long bankKey(Long bankId) {
+        return bankId != null ? bankId : NO_BANK;
+    }
+
+    /**
+     * 单个题库的指纹索引
+     */
+    private static class BankIndex {
+
+        /** 精确指纹 -> 题目ID集合 */
+        private final Map<String, Set<Long>> exact = new HashMap<>();
+
+        /** 题目ID -> 指纹条目 */
+        private final Map<Long, Entry> entries = new HashMap<>();
+
+        /** LSH分段: 每段 分段键 -> 题目ID集合 */
+        private final List<Map<Long, Set<Long>>> bands = new ArrayList<>(TextFingerprintUtil.LSH_BANDS);
+
+        BankIndex() {
+            for (int i = 0; i < TextFingerprintUtil.LSH_BANDS; i++) {
+                bands.add(new HashMap<>());
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized List<Long> questionIds() {
+            return new ArrayList<>(entries.keySet());
+        }
+
+        synchronized Long findExact(String fingerprint, Long excludeId) {
+            Set<Long> ids = exact.get(fingerprint);
+            if (ids == null) {
+                return null;
+            }
+            for (Long id : ids) {
+                if (!id.equals(excludeId)) {
+                    return id;
+                }
+            }
+            return null;
+        }
+
+        synchronized void add(Long questionId, String normalizedText) {
+            remove(questionId);
+            Entry entry = new Entry(TextFingerprintUtil.fingerprint(normalizedText),
+                    TextFingerprintUtil.minHash(normalizedText));
+            entries.put(questionId, entry);
+            exact.computeIfAbsent(entry.fingerprint, k -> new HashSet<>(2)).add(questionId);
+            for (int band = 0; band < bands.size(); band++) {
+                bands.get(band).computeIfAbsent(TextFingerprintUtil.bandKey(entry.signature, band),
+                        k -> new HashSet<>(2)).add(questionId);
+            }
+        }
+
+        synchronized void remove(Long questionId) {
+            Entry entry = entries.remove(questionId);
+            if (entry == null) {
+                return;
+            }
+            removeFrom(exact, entry.fingerprint, questionId);
+            for (int band = 0; band < bands.size(); band++) {
+                removeFrom(bands.get(band), TextFingerprintUtil.bandKey(entry.signature, band), questionId);
+            }
+        }
+
+        synchronized void fillReport(DuplicateReport report, double threshold) {
+            report.setQuestionCount(entries.size());
+
+            for (Set<Long> ids : exact.values()) {
+                if (ids.size() > 1) {
+                    List<Long> group = new ArrayList<>(ids);
+                    Collections.sort(group);
+                    report.getExactGroups().add(group);
+                }
+            }
+
+            for (Map.Entry<Long, Entry> item : entries.entrySet()) {
+                Long questionId = item.getKey();
+                Entry entry = item.getValue();
+                Set<Long> checked = new HashSet<>();
+                for (int band = 0; band < bands.size(); band++) {
+                    Set<Long> candidates = bands.get(band).get(TextFingerprintUtil.bandKey(entry.signature, band));
+                    for (Long candidateId : candidates) {
+                        // 每对只比较一次，完全重复已在上面分组
+                        if (candidateId <= questionId || !checked.add(candidateId)) {
+                            continue;
+                        }
+                        Entry candidate = entries.get(candidateId);
+                        if (candidate.fingerprint.equals(entry.fingerprint)) {
+                            continue;
+                        }
+                        double similarity = TextFingerprintUtil.similarity(entry.signature, candidate.signature);
+                        if (similarity >= threshold) {
+                            report.getNearDuplicates().add(
+                                    new DuplicateReport.NearDuplicate(questionId, candidateId, similarity));
+                        }
+                    }
+                }
+            }
+            report.getNearDuplicates().sort(Comparator.comparingDouble(DuplicateReport.NearDuplicate::getSimilarity)
+                    .reversed());
+        }
+
+        private static <K> void removeFrom(Map<K, Set<Long>> map, K key, Long questionId) {
+            Set<Long> ids = map.get(key);
+            if (ids != null) {
+                ids.remove(questionId);
+                if (ids.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 正在加载的题库索引: 加载期间的登记与移除记录在此，加载完成后重放
+     */
+    private static class LoadingIndex {
+
+        private final CompletableFuture<BankIndex> future = new CompletableFuture<>();
+        private final List<Consumer<BankIndex>> pending = new ArrayList<>();
+        private boolean dropped;
+        private boolean done;
+
+        /**
+         * 记下修改(已发布时返回false，由调用方直接修改已发布的索引)
+         */
+        synchronized boolean defer(Consumer<BankIndex> change) {
+            if (done) {
+                return false;
+            }
+            pending.add(change);
+            return true;
+        }
+
+        synchronized void drop() {
+            dropped = true;
+        }
+
+        BankIndex await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+    }
+
+    /**
+     * 指纹条目
+     */
+    private record Entry(String fingerprint, int[] signature) {
+    }
+}
@@ -0,0 +1,328 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 随机抽题服务
+ * 按(分类, 题型, 难度)分桶在内存中维护可抽取(已发布且未禁用)的题目ID，
+ * 使用Floyd算法做不放回均匀抽样，复杂度O(count)，不再依赖ORDER BY RAND()
+ */
+@Slf4j
+@Service
+public class QuestionSamplerService {
+
+    private static final int LOAD_PAGE_SIZE = 2000;
+
+    private final QuizQuestionMapper questionMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private BucketIndex index = new BucketIndex();
+
+    private volatile boolean loaded = false;
+
+    /** 重建期间的增量修改，构建完成后在新索引上按顺序重放(由写锁保护，未在重建时为null) */
+    private List<Consumer<BucketIndex>> pendingChanges;
+
+    public QuestionSamplerService(QuizQuestionMapper questionMapper) {
+        this.questionMapper = questionMapper;
+    }
+
+    /**
+     * 不放回均匀抽取题目ID(筛选条件为null表示不限)
+     */
+    public List<Long> sample(Long categoryId, Integer type, Integer difficulty, int count) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<IdBucket> matched = new ArrayList<>();
+            int total = 0;
+            for (Map.Entry<BucketKey, IdBucket> entry : index.buckets.entrySet()) {
+                if (entry.getKey().matches(categoryId, type, difficulty) && entry.getValue().size > 0) {
+                    matched.add(entry.getValue());
+                    total += entry.getValue().size;
+                }
+            }
+            return sampleFrom(matched, total, Math.min(count, total));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按难度分层抽取题目ID
+     *
+     * @param strata 难度 -> 抽取数量(按插入顺序输出)
+     */
+    public List<Long> sampleStratified(Long categoryId, Integer type, Map<Integer, Integer> strata) {
+        List<Long> result = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> stratum : strata.entrySet()) {
+            result.addAll(sample(categoryId, type, stratum.getKey(), stratum.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 题目新增或更新后同步(不可抽取的题目会被移出，批量时只加一次写锁)
+     */
+    public void onSavedAll(Collection<QuizQuestion> questions) {
+        if (questions.isEmpty()) {
+            return;
+        }
+        update(target -> {
+            for (QuizQuestion question : questions) {
+                target.remove(question.getId());
+                if (isEligible(question)) {
+                    target.add(question);
+                }
+            }
+        });
+    }
+
+    /**
+     * 题目删除后同步
+     */
+    public void onRemoved(Collection<Long> questionIds) {
+        update(target -> {
+            for (Long questionId : questionIds) {
+                target.remove(questionId);
+            }
+        });
+    }
+
+    /**
+     * 标记失效，下次抽题时重新加载(批量条件删除等无法逐条同步的场景)
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    /**
+     * 定期全量重建，修正可能的漂移
+     */
+    @Scheduled(fixedDelayString = "${quiz.sampler.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (loaded) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从数据库全量重建(按ID键集分页，只查询分桶所需列)
+     * 扫描期间提交的修改可能没有被读到，先记下，替换前在新索引上重放
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        BucketIndex newIndex;
+        try {
+            newIndex = scan();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = pendingChanges.size();
+            pendingChanges.forEach(change -> change.accept(newIndex));
+            pendingChanges = null;
+            index = newIndex;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("重建随机抽题索引: 题目数={}, 分桶数={}, 重放修改={}, 耗时={}ms",
+                newIndex.questionBuckets.size(), newIndex.buckets.size(), replayed, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 修改索引: 已加载时直接修改，正在重建时同时记下修改；两者都不是时忽略(之后的加载会从数据库读到最新数据)
+     */
+    private void update(Consumer<BucketIndex> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (loaded) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private BucketIndex scan() {
+        BucketIndex newIndex = new BucketIndex();
+        Long lastId = 0L;
+        while (true) {
+            LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(QuizQuestion::getId, QuizQuestion::getCategoryId,
+                    QuizQuestion::getType, QuizQuestion::getDifficulty);
+            wrapper.eq(QuizQuestion::getStatus, 1);
+            wrapper.eq(QuizQuestion::getIsDisabled, 0);
+            wrapper.gt(QuizQuestion::getId, lastId);
+            wrapper.orderByAsc(QuizQuestion::getId);
+
+            List<QuizQuestion> questions = questionMapper.selectPage(new Page<>(1, LOAD_PAGE_SIZE, false), wrapper)
+                    .getRecords();
+            for (QuizQuestion question : questions) {
+                newIndex.add(question);
+            }
+            if (questions.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+            lastId = questions.get(questions.size() - 1).getId();
+        }
+        return newIndex;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    /**
+     * Floyd算法在[0, total)中抽取count个不重复位置，再按前缀和映射到各桶
+     */
+    private List<Long> sampleFrom(List<IdBucket> matched, int total, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> picked = new LinkedHashSet<>(count * 2);
+        for (int j = total - count; j < total; j++) {
+            int position = random.nextInt(j + 1);
+            if (!picked.add(position)) {
+                picked.add(j);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int position : picked) {
+            for (IdBucket bucket : matched) {
+                if (position < bucket.size) {
+                    ids.add(bucket.ids[position]);
+                    break;
+                }
+                position -= bucket.size;
+            }
+        }
+        // Floyd算法保证集合均匀，但插入顺序偏向靠后位置，打乱输出顺序
+        Collections.shuffle(ids, random);
+        return ids;
+    }
+
+    private boolean isEligible(QuizQuestion question) {
+        return Integer.valueOf(1).equals(question.getStatus())
+                && !Integer.valueOf(1).equals(question.getIsDisabled());
+    }
+
+    /**
+     * 分桶索引(由外层读写锁保护)
+     */
+    private static class BucketIndex {
+
+        /** 桶键 -> 题目ID桶 */
+        private final Map<BucketKey, IdBucket> buckets = new HashMap<>();
+
+        /** 题目ID -> 所在桶键 */
+        private final Map<Long, BucketKey> questionBuckets = new HashMap<>();
+
+        void add(QuizQuestion question) {
+            BucketKey key = BucketKey.of(question);
+            buckets.computeIfAbsent(key, k -> new IdBucket()).add(question.getId());
+            questionBuckets.put(question.getId(), key);
+        }
+
+        void remove(Long questionId) {
+            BucketKey key = questionBuckets.remove(questionId);
+            if (key == null) {
+                return;
+            }
+            IdBucket bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(questionId);
+            }
+        }
+    }
+
+    /**
+     * 分桶键
+     */
+    private record BucketKey(Long categoryId, Integer type, Integer difficulty) {
+
+        static BucketKey of(QuizQuestion question) {
+            return new BucketKey(question.getCategoryId(), question.getType(), question.getDifficulty());
+        }
+
+        boolean matches(Long categoryId, Integer type, Integer difficulty) {
+            return (categoryId == null || categoryId.equals(this.categoryId))
+                    && (type == null || type.equals(this.type))
+                    && (difficulty == null || difficulty.equals(this.difficulty));
+        }
+    }
+
+    /**
+     * 题目ID桶: 紧凑数组 + 位置索引，增删均为O(1)(删除时末尾元素补位)
+     */
+    private static class IdBucket {
+
+        private long[] ids = new long[16];
+        private int size;
+        private final Map<Long, Integer> positions = new HashMap<>();
+
+        void add(long id) {
+            if (positions.containsKey(id)) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size] = id;
+            positions.put(id, size);
+            size++;
+        }
+
+        void remove(long id) {
+            Integer position = positions.remove(id);
+            if (position == null) {
+                return;
+            }
+            size--;
+            if (position != size) {
+                long last = ids[size];
+                ids[position] = last;
+                positions.put(last, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import com.qdq.util.NgramTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 题目全文检索服务
+ * 在内存中维护标题、内容、标签、选项的倒排索引(汉字二元组分词，字母数字词按前缀索引)，
+ * 题目增删改时增量更新，检索结果按BM25打分排序
+ */
+@Slf4j
+@Service
+public class QuestionSearchService {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    /** 字段权重 */
+    private static final int WEIGHT_TITLE = 3;
+    private static final int WEIGHT_TAGS = 2;
+    private static final int WEIGHT_OPTIONS = 1;
+    private static final int WEIGHT_CONTENT = 1;
+
+    /** BM25参数 */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final QuizQuestionMapper questionMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private InvertedIndex index = new InvertedIndex();
+
+    private volatile boolean loaded = false;
+
+    /** 重建期间的增量修改，构建完成后在新索引上按顺序重放(由写锁保护，未在重建时为null) */
+    private List<Consumer<InvertedIndex>> pendingChanges;
+
+    public QuestionSearchService(QuizQuestionMapper questionMapper) {
+        this.questionMapper = questionMapper;
+    }
+
+    /**
+     * 检索题目ID(筛选条件为null表示不限)
+     *
+     * @return 按相关度排序的题目ID
+     */
+    public List<Long> search(String keyword, Long bankId, Long categoryId, Integer type,
+                             Integer difficulty, Integer status) {
+        ensureLoaded();
+        Set<String> distinctTerms = new LinkedHashSet<>();
+        for (String token : NgramTokenizer.tokenize(keyword)) {
+            distinctTerms.add(NgramTokenizer.queryTerm(token));
+        }
+        List<String> terms = new ArrayList<>(distinctTerms);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            return index.search(terms, bankId, categoryId, type, difficulty, status);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 题目新增或更新后同步
+     */
+    public void onSaved(Collection<QuizQuestion> questions) {
+        update(target -> {
+            for (QuizQuestion question : questions) {
+                target.remove(question.getId());
+                target.add(question);
+            }
+        });
+    }
+
+    /**
+     * 题目删除后同步
+     */
+    public void onRemoved(Collection<Long> questionIds) {
+        update(target -> {
+            for (Long questionId : questionIds) {
+                target.remove(questionId);
+            }
+        });
+    }
+
+    /**
+     * 标记失效，下次检索时重新加载
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    /**
+     * 定期全量重建，修正可能的漂移
+     */
+    @Scheduled(fixedDelayString = "${quiz.search.rebuild-interval-ms:1800000}")
+    public void scheduledRebuild() {
+        if (loaded) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从数据库全量重建(按ID键集分页，构建完成后整体替换)
+     * 扫描期间提交的修改可能没有被读到，先记下，替换前在新索引上重放
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        InvertedIndex newIndex;
+        try {
+            newIndex = scan();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = pendingChanges.size();
+            pendingChanges.forEach(change -> change.accept(newIndex));
+            pendingChanges = null;
+            index = newIndex;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("重建题目检索索引: 题目数={}, 词项数={}, 重放修改={}, 耗时={}ms",
+                newIndex.docs.size(), newIndex.postings.size(), replayed, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 修改索引: 已加载时直接修改，正在重建时同时记下修改；两者都不是时忽略(之后的加载会从数据库读到最新数据)
+     */
+    private void update(Consumer<InvertedIndex> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (loaded) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private InvertedIndex scan() {
+        InvertedIndex newIndex = new InvertedIndex();
+        Long lastId = 0L;
+        while (true) {
+            LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(QuizQuestion::getId, QuizQuestion::getBankId, QuizQuestion::getCategoryId,
+                    QuizQuestion::getType, QuizQuestion::getDifficulty, QuizQuestion::getStatus,
+                    QuizQuestion::getTitle, QuizQuestion::getContent, QuizQuestion::getTags,
+                    QuizQuestion::getOptions);
+            wrapper.gt(QuizQuestion::getId, lastId);
+            wrapper.orderByAsc(QuizQuestion::getId);
+
+            List<QuizQuestion> questions = questionMapper.selectPage(new Page<>(1, LOAD_PAGE_SIZE, false), wrapper)
+                    .getRecords();
+            for (QuizQuestion question : questions) {
+                newIndex.add(question);
+            }
+            if (questions.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+            lastId = questions.get(questions.size() - 1).getId();
+        }
+        return newIndex;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    /**
+     * 倒排索引(由外层读写锁保护)
+     */
+    private static class InvertedIndex {
+
+        /** 词项 -> (题目ID -> 加权词频) */
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+        /** 汉字 -> 包含该字的汉字词项(单字检索时只合并这些词项的倒排表) */
+        private final Map<Character, Set<String>> hanTerms = new HashMap<>();
+
+        /** 题目ID -> 文档信息 */
+        private final Map<Long, DocMeta> docs = new HashMap<>();
+
+        private long totalLength = 0;
+
+        /**
+         * 检索并按BM25得分降序排列(所有词项都需命中)
+         */
+        List<Long> search(List<String> terms, Long bankId, Long categoryId, Integer type,
+                          Integer difficulty, Integer status) {
+            // 按文档频率升序排列词项，用最稀有的词项圈定候选集
+            List<Map<Long, Integer>> termPostings = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Integer> termDocs = lookup(term);
+                if (termDocs.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                termPostings.add(termDocs);
+            }
+            termPostings.sort(Comparator.comparingInt(Map::size));
+
+            int docCount = docs.size();
+            double avgLength = docCount > 0 ? (double) totalLength / docCount : 1;
+            List<ScoredDoc> scored = new ArrayList<>();
+
+            for (Long questionId : termPostings.get(0).keySet()) {
+                DocMeta meta = docs.get(questionId);
+                if (meta == null || !meta.matches(bankId, categoryId, type, difficulty, status)) {
+                    continue;
+                }
+
+                double score = 0;
+                boolean matchedAll = true;
+                for (Map<Long, Integer> termDocs : termPostings) {
+                    Integer tf = termDocs.get(questionId);
+                    if (tf == null) {
+                        matchedAll = false;
+                        break;
+                    }
+                    double idf = Math.log(1 + (docCount - termDocs.size() + 0.5) / (termDocs.size() + 0.5));
+                    score += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * meta.length / avgLength));
+                }
+                if (matchedAll) {
+                    scored.add(new ScoredDoc(questionId, score));
+                }
+            }
+
+            scored.sort(Comparator.comparingDouble(ScoredDoc::score).reversed()
+                    .thenComparing(ScoredDoc::questionId, Comparator.reverseOrder()));
+            List<Long> ids = new ArrayList<>(scored.size());
+            for (ScoredDoc doc : scored) {
+                ids.add(doc.questionId());
+            }
+            return ids;
+        }
+
+        /**
+         * 查询词项的倒排表，单个汉字匹配所有包含该字的二元组
+         */
+        Map<Long, Integer> lookup(String term) {
+            if (term.length() == 1 && NgramTokenizer.isHan(term.charAt(0))) {
+                Set<String> terms = hanTerms.get(term.charAt(0));
+                if (terms == null) {
+                    return Collections.emptyMap();
+                }
+                Map<Long, Integer> merged = new HashMap<>();
+                for (String hanTerm : terms) {
+                    postings.get(hanTerm).forEach((id, tf) -> merged.merge(id, tf, Integer::sum));
+                }
+                return merged;
+            }
+            Map<Long, Integer> termDocs = postings.get(term);
+            return termDocs != null ? termDocs : Collections.emptyMap();
+        }
+
+        void add(QuizQuestion question) {
+            Map<String, Integer> termFreqs = new HashMap<>();
+            int length = addField(termFreqs, question.getTitle(), WEIGHT_TITLE);
+            length += addField(termFreqs, question.getContent(), WEIGHT_CONTENT);
+            if (question.getTags() != null) {
+                for (String tag : question.getTags()) {
+                    length += addField(termFreqs, tag, WEIGHT_TAGS);
+                }
+            }
+            if (question.getOptions() != null) {
+                for (Map<String, Object> option : question.getOptions()) {
+                    Object value = option.get("value");
+                    length += addField(termFreqs, value != null ? value.toString() : null, WEIGHT_OPTIONS);
+                }
+            }
+
+            for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+                Map<Long, Integer> termDocs = postings.get(entry.getKey());
+                if (termDocs == null) {
+                    termDocs = new HashMap<>();
+                    postings.put(entry.getKey(), termDocs);
+                    indexHanTerm(entry.getKey());
+                }
+                termDocs.put(question.getId(), entry.getValue());
+            }
+            docs.put(question.getId(), new DocMeta(question.getBankId(), question.getCategoryId(), question.getType(),
+                    question.getDifficulty(), question.getStatus(), length, termFreqs.keySet().toArray(new String[0])));
+            totalLength += length;
+        }
+
+        void remove(Long questionId) {
+            DocMeta meta = docs.remove(questionId);
+            if (meta == null) {
+                return;
+            }
+            for (String term : meta.terms) {
+                Map<Long, Integer> termDocs = postings.get(term);
+                if (termDocs != null) {
+                    termDocs.remove(questionId);
+                    if (termDocs.isEmpty()) {
+                        postings.remove(term);
+                        unindexHanTerm(term);
+                    }
+                }
+            }
+            totalLength -= meta.length;
+        }
+
+        /**
+         * 累加字段词频(字母数字词同时累加其前缀)
+         *
+         * @return 字段长度(只计整词，前缀不计入BM25的文档长度)
+         */
+        private int addField(Map<String, Integer> termFreqs, String text, int weight) {
+            int length = 0;
+            for (String token : NgramTokenizer.tokenize(text)) {
+                List<String> prefixes = NgramTokenizer.prefixes(token);
+                if (prefixes.isEmpty()) {
+                    termFreqs.merge(token, weight, Integer::sum);
+                } else {
+                    for (String prefix : prefixes) {
+                        termFreqs.merge(prefix, weight, Integer::sum);
+                    }
+                }
+                length += weight;
+            }
+            return length;
+        }
+
+        private void indexHanTerm(String term) {
+            if (NgramTokenizer.isHan(term.charAt(0))) {
+                for (int i = 0; i < term.length(); i++) {
+                    hanTerms.computeIfAbsent(term.charAt(i), c -> new HashSet<>()).add(term);
+                }
+            }
+        }
+
+        private void unindexHanTerm(String term) {
+            if (NgramTokenizer.isHan(term.charAt(0))) {
+                for (int i = 0; i < term.length(); i++) {
+                    Set<String> terms = hanTerms.get(term.charAt(i));
+                    if (terms != null) {
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            hanTerms.remove(term.charAt(i));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 文档信息(筛选字段 + 长度 + 词项列表，用于删除)
+     */
+    private record DocMeta(Long bankId, Long categoryId, Integer type, Integer difficulty, Integer status,
+                           int length, String[] terms) {
+
+        boolean matches(Long bankId, Long categoryId, Integer type, Integer difficulty, Integer status) {
+            return (bankId == null || bankId.equals(this.bankId))
+                    && (categoryId == null || categoryId.equals(this.categoryId))
+                    && (type == null || type.equals(this.type))
+                    && (difficulty == null || difficulty.equals(this.difficulty))
+                    && (status == null || status.equals(this.status));
+        }
+    }
+
+    private record ScoredDoc(Long questionId, double score) {
+    }
+}
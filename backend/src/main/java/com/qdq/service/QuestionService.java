@@ -2,19 +2,33 @@ package com.qdq.service;
 
 import cn.dev33.satoken.stp.StpUtil;
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.qdq.common.PageRequest;
+import com.qdq.dto.BatchResult;
 import com.qdq.dto.QuestionRequest;
 import com.qdq.entity.QuizQuestion;
 import com.qdq.exception.BusinessException;
+import com.qdq.mapper.QuizBankMapper;
 import com.qdq.mapper.QuizQuestionMapper;
+import com.qdq.util.PageUtil;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 题目服务
@@ -22,22 +36,53 @@ import java.util.List;
 @Service
 public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestion> {
 
+    /** 批量操作每条SQL的ID数上限 */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
+    private final QuestionDedupService dedupService;
+    private final QuestionSamplerService samplerService;
+    private final QuestionSearchService searchService;
+    private final QuizBankMapper bankMapper;
+
+    public QuestionService(QuestionDedupService dedupService, QuestionSamplerService samplerService,
+                           QuestionSearchService searchService, QuizBankMapper bankMapper) {
+        this.dedupService = dedupService;
+        this.samplerService = samplerService;
+        this.searchService = searchService;
+        this.bankMapper = bankMapper;
+    }
+
     /**
-     * 分页查询题目
+     * 分页查询题目(有关键字时走全文检索索引，按相关度排序)
      */
-    public Page<QuizQuestion> page(PageRequest pageRequest, Long categoryId, Integer type, 
+    public Page<QuizQuestion> page(PageRequest pageRequest, Long bankId, Long categoryId, Integer type,
                                     Integer difficulty, Integer status, String keyword) {
-        Page<QuizQuestion> page = new Page<>(pageRequest.getPage(), pageRequest.getPageSize());
-        
+        if (StrUtil.isNotBlank(keyword)) {
+            return search(pageRequest, bankId, categoryId, type, difficulty, status, keyword);
+        }
+
         LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(bankId != null, QuizQuestion::getBankId, bankId);
         wrapper.eq(categoryId != null, QuizQuestion::getCategoryId, categoryId);
         wrapper.eq(type != null, QuizQuestion::getType, type);
         wrapper.eq(difficulty != null, QuizQuestion::getDifficulty, difficulty);
         wrapper.eq(status != null, QuizQuestion::getStatus, status);
-        wrapper.like(StrUtil.isNotBlank(keyword), QuizQuestion::getTitle, keyword);
-        wrapper.orderByDesc(QuizQuestion::getCreatedAt);
         
-        return this.page(page, wrapper);
+        return PageUtil.pageByCreatedAt(baseMapper, pageRequest, wrapper,
+                QuizQuestion::getCreatedAt, QuizQuestion::getId);
+    }
+
+    /**
+     * 全文检索题目(标题、内容、标签、选项)
+     */
+    public Page<QuizQuestion> search(PageRequest pageRequest, Long bankId, Long categoryId, Integer type,
+                                      Integer difficulty, Integer status, String keyword) {
+        List<Long> ids = searchService.search(keyword, bankId, categoryId, type, difficulty, status);
+        Page<QuizQuestion> page = new Page<>(pageRequest.getPage(), pageRequest.getPageSize(), ids.size());
+        int from = (int) Math.min((long) pageRequest.getOffset(), ids.size());
+        int to = Math.min(from + pageRequest.getPageSize(), ids.size());
+        page.setRecords(loadInOrder(ids.subList(from, to)));
+        return page;
     }
 
     /**
@@ -58,12 +103,30 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
     public QuizQuestion create(QuestionRequest request) {
         QuizQuestion question = new QuizQuestion();
         BeanUtil.copyProperties(request, question, "id");
+        checkDuplicate(question, null);
         question.setCreatedBy(StpUtil.getLoginIdAsLong());
         question.setUpdatedBy(StpUtil.getLoginIdAsLong());
         this.save(question);
+        adjustBankCount(question.getBankId(), 1);
+        afterSaved(List.of(question));
         return question;
     }
 
+    /**
+     * 批量保存导入的题目(同步增加题库题目数，调用方负责事务，提交后同步内存索引)
+     */
+    public void saveImported(List<QuizQuestion> questions, int batchSize) {
+        this.saveBatch(questions, batchSize);
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (QuizQuestion question : questions) {
+            if (question.getBankId() != null) {
+                deltas.merge(question.getBankId(), 1, Integer::sum);
+            }
+        }
+        deltas.forEach(this::adjustBankCount);
+        afterSaved(questions);
+    }
+
     /**
      * 更新题目
      */
@@ -74,9 +137,16 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
             throw new BusinessException("题目不存在");
         }
         
+        Long oldBankId = question.getBankId();
         BeanUtil.copyProperties(request, question, "id", "createdBy", "createdAt");
+        checkDuplicate(question, id);
         question.setUpdatedBy(StpUtil.getLoginIdAsLong());
         this.updateById(question);
+        if (!Objects.equals(oldBankId, question.getBankId())) {
+            adjustBankCount(oldBankId, -1);
+            adjustBankCount(question.getBankId(), 1);
+        }
+        afterSaved(List.of(question));
         return question;
     }
 
@@ -90,6 +160,8 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
             throw new BusinessException("题目不存在");
         }
         this.removeById(id);
+        adjustBankCount(question.getBankId(), -1);
+        afterRemoved(List.of(id));
     }
 
     /**
@@ -97,7 +169,52 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
      */
     @Transactional(rollbackFor = Exception.class)
     public void deleteBatch(List<Long> ids) {
-        this.removeByIds(ids);
+        List<Long> removedIds = new ArrayList<>(ids.size());
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (List<Long> chunk : CollUtil.split(CollUtil.distinct(ids), BATCH_CHUNK_SIZE)) {
+            // 先查出所属题库，只删除仍存在的题目，保证计数增减准确
+            List<QuizQuestion> questions = this.list(new LambdaQueryWrapper<QuizQuestion>()
+                    .select(QuizQuestion::getId, QuizQuestion::getBankId)
+                    .in(QuizQuestion::getId, chunk));
+            if (questions.isEmpty()) {
+                continue;
+            }
+            List<Long> chunkIds = questions.stream().map(QuizQuestion::getId).collect(Collectors.toList());
+            this.removeByIds(chunkIds);
+            removedIds.addAll(chunkIds);
+            for (QuizQuestion question : questions) {
+                if (question.getBankId() != null) {
+                    deltas.merge(question.getBankId(), -1, Integer::sum);
+                }
+            }
+        }
+        deltas.forEach(this::adjustBankCount);
+        afterRemoved(removedIds);
+    }
+
+    /**
+     * 删除题库下的所有题目
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteByBankId(Long bankId) {
+        deleteByBankIds(List.of(bankId));
+    }
+
+    /**
+     * 删除多个题库下的所有题目(题库随后一并删除，不再维护其题目数)
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteByBankIds(Collection<Long> bankIds) {
+        if (bankIds.isEmpty()) {
+            return;
+        }
+        this.remove(new LambdaQueryWrapper<QuizQuestion>().in(QuizQuestion::getBankId, bankIds));
+        List<Long> droppedBankIds = List.copyOf(bankIds);
+        afterCommit(() -> {
+            droppedBankIds.forEach(dedupService::dropBank);
+            samplerService.invalidate();
+            searchService.invalidate();
+        });
     }
 
     /**
@@ -110,15 +227,17 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
         }
         question.setStatus(status);
         this.updateById(question);
+        afterSaved(List.of(question));
     }
 
     /**
      * 批量更新状态
      */
-    public void updateStatusBatch(List<Long> ids, Integer status) {
-        for (Long id : ids) {
-            updateStatus(id, status);
-        }
+    @Transactional(rollbackFor = Exception.class)
+    public BatchResult updateStatusBatch(List<Long> ids, Integer status) {
+        QuizQuestion patch = new QuizQuestion();
+        patch.setStatus(status);
+        return updateBatch(ids, patch);
     }
 
     /**
@@ -138,6 +257,7 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
         }
         question.setIsDisabled(1);
         this.updateById(question);
+        afterSaved(List.of(question));
     }
 
     /**
@@ -150,39 +270,163 @@ public class QuestionService extends ServiceImpl<QuizQuestionMapper, QuizQuestio
         }
         question.setIsDisabled(0);
         this.updateById(question);
+        afterSaved(List.of(question));
     }
 
     /**
      * 批量禁用题目
      */
     @Transactional(rollbackFor = Exception.class)
-    public void disableBatch(List<Long> ids) {
-        for (Long id : ids) {
-            disable(id);
-        }
+    public BatchResult disableBatch(List<Long> ids) {
+        QuizQuestion patch = new QuizQuestion();
+        patch.setIsDisabled(1);
+        return updateBatch(ids, patch);
     }
 
     /**
      * 批量启用题目
      */
     @Transactional(rollbackFor = Exception.class)
-    public void enableBatch(List<Long> ids) {
-        for (Long id : ids) {
-            enable(id);
+    public BatchResult enableBatch(List<Long> ids) {
+        QuizQuestion patch = new QuizQuestion();
+        patch.setIsDisabled(0);
+        return updateBatch(ids, patch);
+    }
+
+    /**
+     * 按ID分块批量更新(每块一条 UPDATE ... WHERE id IN)，全部完成后一次性同步内存索引
+     *
+     * @param patch 只设置需要更新的字段
+     */
+    private BatchResult updateBatch(List<Long> ids, QuizQuestion patch) {
+        BatchResult result = new BatchResult();
+        List<Long> distinctIds = CollUtil.distinct(ids);
+        result.setTotal(distinctIds.size());
+        patch.setUpdatedBy(StpUtil.getLoginIdAsLong());
+
+        List<QuizQuestion> updated = new ArrayList<>(distinctIds.size());
+        for (List<Long> chunk : CollUtil.split(distinctIds, BATCH_CHUNK_SIZE)) {
+            this.update(patch, new LambdaUpdateWrapper<QuizQuestion>().in(QuizQuestion::getId, chunk));
+
+            // 回查本块，既用于区分不存在的ID，也用于同步索引
+            Map<Long, QuizQuestion> found = this.listByIds(chunk).stream()
+                    .collect(Collectors.toMap(QuizQuestion::getId, Function.identity()));
+            for (Long id : chunk) {
+                QuizQuestion question = found.get(id);
+                if (question != null) {
+                    result.getSuccessIds().add(id);
+                    updated.add(question);
+                } else {
+                    result.addFailure(id, "题目不存在");
+                }
+            }
         }
+
+        // 状态变更不影响题目文本，无需更新去重索引
+        afterCommit(() -> {
+            samplerService.onSavedAll(updated);
+            searchService.onSaved(updated);
+        });
+        return result;
     }
 
     /**
-     * 获取随机题目
+     * 获取随机题目(只抽取已发布且未禁用的题目)
      */
-    public List<QuizQuestion> getRandomQuestions(Long categoryId, Integer type, 
+    public List<QuizQuestion> getRandomQuestions(Long categoryId, Integer type,
                                                    Integer difficulty, Integer count) {
-        LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(categoryId != null, QuizQuestion::getCategoryId, categoryId);
-        wrapper.eq(type != null, QuizQuestion::getType, type);
-        wrapper.eq(difficulty != null, QuizQuestion::getDifficulty, difficulty);
-        wrapper.eq(QuizQuestion::getStatus, 1); // 只获取已发布的题目
-        wrapper.last("ORDER BY RAND() LIMIT " + count);
-        return this.list(wrapper);
+        if (count == null || count <= 0) {
+            throw new BusinessException("抽题数量必须大于0");
+        }
+        return loadInOrder(samplerService.sample(categoryId, type, difficulty, count));
+    }
+
+    /**
+     * 按难度分层获取随机题目
+     *
+     * @param strata 难度 -> 数量，如 {1:5, 2:3, 3:2}
+     */
+    public List<QuizQuestion> getStratifiedRandomQuestions(Long categoryId, Integer type,
+                                                             Map<Integer, Integer> strata) {
+        return loadInOrder(samplerService.sampleStratified(categoryId, type, strata));
+    }
+
+    /**
+     * 题目保存后同步内存索引(去重、抽题、检索)，在事务中调用时推迟到提交之后
+     */
+    public void afterSaved(Collection<QuizQuestion> questions) {
+        List<QuizQuestion> saved = new ArrayList<>(questions);
+        afterCommit(() -> {
+            dedupService.registerAll(saved);
+            samplerService.onSavedAll(saved);
+            searchService.onSaved(saved);
+        });
+    }
+
+    /**
+     * 题目删除后同步内存索引，在事务中调用时推迟到提交之后
+     */
+    public void afterRemoved(Collection<Long> ids) {
+        List<Long> removed = new ArrayList<>(ids);
+        afterCommit(() -> {
+            dedupService.removeAll(removed);
+            samplerService.onRemoved(removed);
+            searchService.onRemoved(removed);
+        });
+    }
+
+    /**
+     * 事务提交后执行(回滚时不执行，内存索引不会出现未提交的题目)；不在事务中时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 原子增减题库题目数(未归属题库时忽略)
+     */
+    private void adjustBankCount(Long bankId, int delta) {
+        if (bankId != null && delta != 0) {
+            bankMapper.adjustTotalQuestions(bankId, delta);
+        }
+    }
+
+    /**
+     * 按ID列表查询并保持列表顺序
+     */
+    private List<QuizQuestion> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, QuizQuestion> questionMap = this.listByIds(ids).stream()
+                .collect(Collectors.toMap(QuizQuestion::getId, Function.identity()));
+        List<QuizQuestion> questions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            QuizQuestion question = questionMap.get(id);
+            if (question != null) {
+                questions.add(question);
+            }
+        }
+        return questions;
+    }
+
+    /**
+     * 检查题库内是否已存在相同题目
+     */
+    private void checkDuplicate(QuizQuestion question, Long excludeId) {
+        Long duplicateId = dedupService.findDuplicate(question.getBankId(),
+                dedupService.fingerprint(question), excludeId);
+        if (duplicateId != null) {
+            throw new BusinessException("题库中已存在相同题目(ID=" + duplicateId + ")");
+        }
     }
 }
@@ -2,46 +2,65 @@ package com.qdq.service;
 
 import cn.dev33.satoken.stp.StpUtil;
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.qdq.common.PageRequest;
 import com.qdq.dto.BankRequest;
+import com.qdq.dto.BatchResult;
+import com.qdq.dto.DuplicateReport;
 import com.qdq.entity.QuizBank;
-import com.qdq.entity.QuizQuestion;
 import com.qdq.exception.BusinessException;
 import com.qdq.mapper.QuizBankMapper;
+import com.qdq.mapper.QuizQuestionMapper;
+import com.qdq.util.PageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 题库服务
  */
+@Slf4j
 @Service
 public class QuizBankService extends ServiceImpl<QuizBankMapper, QuizBank> {
 
+    /** 批量操作每条SQL的ID数上限 */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final QuestionService questionService;
+    private final QuestionDedupService dedupService;
+    private final QuizQuestionMapper questionMapper;
 
-    public QuizBankService(QuestionService questionService) {
+    public QuizBankService(QuestionService questionService, QuestionDedupService dedupService,
+                           QuizQuestionMapper questionMapper) {
         this.questionService = questionService;
+        this.dedupService = dedupService;
+        this.questionMapper = questionMapper;
     }
 
     /**
      * 分页查询题库
      */
     public Page<QuizBank> page(PageRequest pageRequest, Integer status, Integer isDisabled, String keyword) {
-        Page<QuizBank> page = new Page<>(pageRequest.getPage(), pageRequest.getPageSize());
-        
         LambdaQueryWrapper<QuizBank> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(status != null, QuizBank::getStatus, status);
         wrapper.eq(isDisabled != null, QuizBank::getIsDisabled, isDisabled);
         wrapper.like(StrUtil.isNotBlank(keyword), QuizBank::getName, keyword);
-        wrapper.orderByDesc(QuizBank::getCreatedAt);
         
-        return this.page(page, wrapper);
+        return PageUtil.pageByCreatedAt(baseMapper, pageRequest, wrapper,
+                QuizBank::getCreatedAt, QuizBank::getId);
     }
 
     /**
@@ -98,22 +117,29 @@ public class QuizBankService extends ServiceImpl<QuizBankMapper, QuizBank> {
         }
         
         // 删除题库下的所有题目
-        LambdaQueryWrapper<QuizQuestion> questionWrapper = new LambdaQueryWrapper<>();
-        questionWrapper.eq(QuizQuestion::getBankId, id);
-        questionService.remove(questionWrapper);
+        questionService.deleteByBankId(id);
         
         // 删除题库
         this.removeById(id);
     }
 
     /**
-     * 批量删除题库
+     * 批量删除题库(按块一次性删除题库及其题目)
      */
     @Transactional(rollbackFor = Exception.class)
-    public void deleteBatch(List<Long> ids) {
-        for (Long id : ids) {
-            delete(id);
+    public BatchResult deleteBatch(List<Long> ids) {
+        BatchResult result = new BatchResult();
+        List<Long> distinctIds = CollUtil.distinct(ids);
+        result.setTotal(distinctIds.size());
+
+        for (List<Long> chunk : CollUtil.split(distinctIds, BATCH_CHUNK_SIZE)) {
+            List<Long> existingIds = existingIds(chunk, result);
+            if (!existingIds.isEmpty()) {
+                questionService.deleteByBankIds(existingIds);
+                this.removeByIds(existingIds);
+            }
         }
+        return result;
     }
 
     /**
@@ -148,34 +174,97 @@ public class QuizBankService extends ServiceImpl<QuizBankMapper, QuizBank> {
      * 批量禁用题库
      */
     @Transactional(rollbackFor = Exception.class)
-    public void disableBatch(List<Long> ids) {
-        for (Long id : ids) {
-            disable(id);
-        }
+    public BatchResult disableBatch(List<Long> ids) {
+        QuizBank patch = new QuizBank();
+        patch.setIsDisabled(1);
+        return updateBatch(ids, patch);
     }
 
     /**
      * 批量启用题库
      */
     @Transactional(rollbackFor = Exception.class)
-    public void enableBatch(List<Long> ids) {
-        for (Long id : ids) {
-            enable(id);
+    public BatchResult enableBatch(List<Long> ids) {
+        QuizBank patch = new QuizBank();
+        patch.setIsDisabled(0);
+        return updateBatch(ids, patch);
+    }
+
+    /**
+     * 按ID分块批量更新(每块一条 UPDATE ... WHERE id IN)
+     *
+     * @param patch 只设置需要更新的字段
+     */
+    private BatchResult updateBatch(List<Long> ids, QuizBank patch) {
+        BatchResult result = new BatchResult();
+        List<Long> distinctIds = CollUtil.distinct(ids);
+        result.setTotal(distinctIds.size());
+        patch.setUpdatedBy(StpUtil.getLoginIdAsLong());
+
+        for (List<Long> chunk : CollUtil.split(distinctIds, BATCH_CHUNK_SIZE)) {
+            List<Long> existingIds = existingIds(chunk, result);
+            if (!existingIds.isEmpty()) {
+                this.update(patch, new LambdaUpdateWrapper<QuizBank>().in(QuizBank::getId, existingIds));
+            }
         }
+        return result;
     }
 
     /**
-     * 更新题库中的题目数量
+     * 查询本块中存在的题库ID，并记录逐条结果
      */
-    public void updateQuestionCount(Long bankId) {
-        LambdaQueryWrapper<QuizQuestion> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(QuizQuestion::getBankId, bankId);
-        long count = questionService.count(wrapper);
-        
-        QuizBank bank = this.getById(bankId);
-        if (bank != null) {
-            bank.setTotalQuestions((int) count);
-            this.updateById(bank);
+    private List<Long> existingIds(List<Long> chunk, BatchResult result) {
+        Set<Long> found = this.list(new LambdaQueryWrapper<QuizBank>()
+                        .select(QuizBank::getId)
+                        .in(QuizBank::getId, chunk))
+                .stream()
+                .map(QuizBank::getId)
+                .collect(Collectors.toSet());
+        List<Long> existingIds = new ArrayList<>(found.size());
+        for (Long id : chunk) {
+            if (found.contains(id)) {
+                existingIds.add(id);
+                result.getSuccessIds().add(id);
+            } else {
+                result.addFailure(id, "题库不存在");
+            }
+        }
+        return existingIds;
+    }
+
+    /**
+     * 获取题库重复题目报告
+     */
+    public DuplicateReport getDuplicateReport(Long id) {
+        getDetail(id);
+        return dedupService.buildReport(id);
+    }
+
+    /**
+     * 定期校正题库题目数
+     * 题目数平时由各写入路径原子增减维护，这里用一次分组统计修正可能的漂移；
+     * 先读题库再统计，并以旧值为条件更新，不会覆盖期间发生的并发增减
+     */
+    @Scheduled(fixedDelayString = "${quiz.bank.count-reconcile-interval-ms:3600000}",
+            initialDelayString = "${quiz.bank.count-reconcile-interval-ms:3600000}")
+    public void reconcileQuestionCounts() {
+        List<QuizBank> banks = this.list(new LambdaQueryWrapper<QuizBank>()
+                .select(QuizBank::getId, QuizBank::getTotalQuestions));
+
+        Map<Long, Integer> actualCounts = new HashMap<>();
+        for (Map<String, Object> row : questionMapper.countGroupByBank()) {
+            actualCounts.put(((Number) row.get("bankId")).longValue(), ((Number) row.get("total")).intValue());
+        }
+
+        int corrected = 0;
+        for (QuizBank bank : banks) {
+            int expected = bank.getTotalQuestions() != null ? bank.getTotalQuestions() : 0;
+            int actual = actualCounts.getOrDefault(bank.getId(), 0);
+            if (expected != actual && baseMapper.correctTotalQuestions(bank.getId(), expected, actual) > 0) {
+                log.warn("校正题库题目数: bankId={}, {} -> {}", bank.getId(), expected, actual);
+                corrected++;
+            }
         }
+        log.info("题库题目数校正完成: 题库数={}, 校正数={}", banks.size(), corrected);
     }
 }
@@ -0,0 +1,472 @@
+package com.qdq.service;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.qdq.util.MappedBufferUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 场次事件日志
+ * 比赛进行中的状态变更、抢答、判定结果按场次顺序追加到内存映射的分段文件
+ * (eventlog/active/{sessionId}/{序号}.seg)：写入只是内存拷贝，进程崩溃不丢数据；
+ * 后台线程按间隔批量刷盘(msync)，断电最多丢失一个刷盘间隔。
+ * 启动时由 SessionRecoveryService 回放进行中场次的日志；比赛结束后日志移入 eventlog/archive 供赛后归档
+ * <p>
+ * 记录格式: length(int，记录体字节数) crc32(int，记录体) | type(byte) time(long) questionId(long) a(long) b(long) payload
+ */
+@Slf4j
+@Service
+public class SessionEventLog {
+
+    /** 场次状态变更: a=状态 b=当前题目索引 questionId=当前题目 */
+    public static final byte STATE = 1;
+    /** 开放抢答 */
+    public static final byte BUZZ_OPEN = 2;
+    /** 抢答受理: b=服务端时间 payload=成员ID */
+    public static final byte BUZZ = 3;
+    /** 抢答关闭: a=1判定时锁定 a=2主持人关闭 */
+    public static final byte BUZZ_CLOSE = 4;
+    /** 抢答判定结果: payload=按名次排列的 [成员ID, 服务端时间] */
+    public static final byte BUZZ_RESULT = 5;
+    /** 答题进度: a=用户ID b=已答题数 */
+    public static final byte ANSWER_PROGRESS = 6;
+
+    private static final int MAGIC = 0x51444c47;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_PREFIX_SIZE = 8;
+    private static final int RECORD_BODY_HEADER_SIZE = 33;
+    private static final String ACTIVE_DIR = "active";
+    private static final String ARCHIVE_DIR = "archive";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Value("${quiz.event-log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quiz.event-log.path:./eventlog}")
+    private String logPath;
+
+    @Value("${quiz.event-log.segment-bytes:16777216}")
+    private int segmentBytes;
+
+    @Value("${quiz.event-log.sync-interval-ms:20}")
+    private long syncIntervalMs;
+
+    /** 场次ID -> 当前写入的分段 */
+    private final Map<Long, SessionLog> logs = new ConcurrentHashMap<>();
+    /** 本进程内已归档的场次(之后迟到的写入直接丢弃，不再重建 active 目录)，重新开赛时移除 */
+    private final Set<Long> archived = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("event-log-sync-", true));
+        syncExecutor.scheduleWithFixedDelay(this::syncAll, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (syncExecutor == null) {
+            return;
+        }
+        syncExecutor.shutdown();
+        syncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        syncAll();
+    }
+
+    /**
+     * 场次开赛(含重新开赛): 已归档的场次重新开始记录
+     */
+    public void open(Long sessionId) {
+        archived.remove(sessionId);
+    }
+
+    /**
+     * 记录场次状态变更
+     */
+    public void appendState(Long sessionId, int status, int currentQuestionIndex, Long currentQuestionId) {
+        append(sessionId, STATE, currentQuestionId, status, currentQuestionIndex, null);
+    }
+
+    /**
+     * 记录抢答事件(开放/关闭)
+     */
+    public void appendBuzzEvent(Long sessionId, Long questionId, byte type, long value) {
+        append(sessionId, type, questionId, value, 0, null);
+    }
+
+    /**
+     * 记录抢答受理
+     */
+    public void appendBuzz(Long sessionId, Long questionId, String memberId, long serverTime) {
+        append(sessionId, BUZZ, questionId, 0, serverTime, memberId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 记录抢答判定结果(按名次)
+     */
+    public void appendBuzzResult(Long sessionId, Long questionId, List<Map<String, Object>> results) {
+        List<byte[]> members = new ArrayList<>(results.size());
+        int size = 4;
+        for (Map<String, Object> result : results) {
+            byte[] member = result.get("memberId").toString().getBytes(StandardCharsets.UTF_8);
+            members.add(member);
+            size += 2 + member.length + 8;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        payload.putInt(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            payload.putShort((short) members.get(i).length);
+            payload.put(members.get(i));
+            payload.putLong(((Number) results.get(i).get("serverTime")).longValue());
+        }
+        append(sessionId, BUZZ_RESULT, questionId, results.size(), 0, payload.array());
+    }
+
+    /**
+     * 记录答题进度
+     */
+    public void appendAnswerProgress(Long sessionId, Long userId, int answeredCount) {
+        append(sessionId, ANSWER_PROGRESS, null, userId, answeredCount, null);
+    }
+
+    /**
+     * 有未归档日志的场次
+     */
+    public Set<Long> activeSessionIds() {
+        Set<Long> ids = new TreeSet<>();
+        Path dir = Paths.get(logPath, ACTIVE_DIR);
+        if (!enabled || !Files.isDirectory(dir)) {
+            return ids;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            children.map(path -> path.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .forEach(name -> ids.add(Long.valueOf(name)));
+        } catch (IOException e) {
+            log.warn("读取事件日志目录失败: {}", e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * 按顺序回放场次日志(遇到不完整或校验失败的记录即停止，之后的内容视为未写完)
+     *
+     * @return 回放的记录数
+     */
+    public int replay(Long sessionId, Consumer<Event> consumer) {
+        Path dir = sessionDir(ACTIVE_DIR, sessionId);
+        if (!Files.isDirectory(dir)) {
+            dir = sessionDir(ARCHIVE_DIR, sessionId);
+        }
+        int count = 0;
+        for (Path segment : segments(dir)) {
+            MappedByteBuffer data = null;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (data.remaining() < FILE_HEADER_SIZE || data.getInt() != MAGIC) {
+                    log.warn("事件日志分段损坏，跳过: {}", segment);
+                    continue;
+                }
+                data.position(FILE_HEADER_SIZE);
+                Event event;
+                while ((event = readEvent(data)) != null) {
+                    consumer.accept(event);
+                    count++;
+                }
+            } catch (IOException e) {
+                log.warn("读取事件日志失败: {}, {}", segment, e.getMessage());
+            } finally {
+                // 事件内容已复制，立即解除映射(否则之后归档时目录无法移动)
+                MappedBufferUtil.unmap(data);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 比赛结束: 刷盘、解除映射并把场次日志移入归档目录，之后的写入忽略(重新开赛调用 open 后恢复记录)
+     */
+    public void archive(Long sessionId) {
+        if (!enabled) {
+            return;
+        }
+        // 先标记再移除，移除之后的写入不会再打开日志
+        archived.add(sessionId);
+        SessionLog sessionLog = logs.remove(sessionId);
+        if (sessionLog != null) {
+            sessionLog.close();
+        }
+        Path source = sessionDir(ACTIVE_DIR, sessionId);
+        if (!Files.isDirectory(source)) {
+            return;
+        }
+        Path target = sessionDir(ARCHIVE_DIR, sessionId);
+        try {
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                // 同一场次重新开赛后再次结束，旧归档保留为带时间戳的目录
+                Files.move(target, target.resolveSibling(sessionId + "-" + System.currentTimeMillis()));
+            }
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("事件日志归档失败: sessionId={}, {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void append(Long sessionId, byte type, Long questionId, long a, long b, byte[] payload) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        try {
+            SessionLog sessionLog = logs.computeIfAbsent(sessionId, id -> archived.contains(id) ? null : openLog(id));
+            if (sessionLog == null || !sessionLog.append(type, questionId != null ? questionId : 0, a, b, payload)) {
+                log.debug("场次日志已归档，忽略事件: sessionId={}, type={}", sessionId, type);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 事件日志只用于恢复，写入失败不影响比赛
+            log.error("事件日志写入失败: sessionId={}, type={}", sessionId, type, e);
+        }
+    }
+
+    private void syncAll() {
+        for (SessionLog sessionLog : logs.values()) {
+            sessionLog.sync();
+        }
+    }
+
+    private SessionLog openLog(Long sessionId) {
+        try {
+            Path dir = sessionDir(ACTIVE_DIR, sessionId);
+            Files.createDirectories(dir);
+            List<Path> existing = segments(dir);
+            SessionLog sessionLog = new SessionLog(dir, existing.isEmpty() ? 0 : existing.size() - 1);
+            sessionLog.open(!existing.isEmpty());
+            return sessionLog;
+        } catch (IOException e) {
+            throw new IllegalStateException("打开事件日志失败: sessionId=" + sessionId, e);
+        }
+    }
+
+    private Path sessionDir(String kind, Long sessionId) {
+        return Paths.get(logPath, kind, String.valueOf(sessionId));
+    }
+
+    private List<Path> segments(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            return children.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingInt(path -> Integer.parseInt(FileUtil.mainName(path.toFile()))))
+                    .toList();
+        } catch (IOException e) {
+            log.warn("读取事件日志目录失败: {}, {}", dir, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 从当前位置读取一条记录(无效时返回null且不移动位置)
+     */
+    private static Event readEvent(ByteBuffer data) {
+        int start = data.position();
+        if (data.remaining() < RECORD_PREFIX_SIZE) {
+            return null;
+        }
+        int length = data.getInt();
+        int checksum = data.getInt();
+        if (length < RECORD_BODY_HEADER_SIZE || data.remaining() < length) {
+            data.position(start);
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(data.position(), length));
+        if ((int) crc.getValue() != checksum) {
+            data.position(start);
+            return null;
+        }
+        byte type = data.get();
+        long time = data.getLong();
+        long questionId = data.getLong();
+        long a = data.getLong();
+        long b = data.getLong();
+        byte[] payload = new byte[length - RECORD_BODY_HEADER_SIZE];
+        data.get(payload);
+        return new Event(type, time, questionId != 0 ? questionId : null, a, b, payload);
+    }
+
+    /**
+     * 日志事件
+     */
+    public record Event(byte type, long time, Long questionId, long a, long b, byte[] payload) {
+
+        public String payloadText() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 解析判定结果: 按名次的 [成员ID, 服务端时间]
+         */
+        public List<Map.Entry<String, Long>> results() {
+            ByteBuffer data = ByteBuffer.wrap(payload);
+            int count = data.getInt();
+            List<Map.Entry<String, Long>> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] member = new byte[data.getShort()];
+                data.get(member);
+                results.add(Map.entry(new String(member, StandardCharsets.UTF_8), data.getLong()));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * 单个场次的日志写入器(当前分段写满后切换到下一分段)
+     */
+    private final class SessionLog {
+
+        private final Path dir;
+        private final CRC32 crc = new CRC32();
+        private int segmentIndex;
+        private MappedByteBuffer buffer;
+        private int syncedPosition;
+        private boolean closed;
+        /** 已写满、等待刷盘线程刷盘并解除映射的分段(不在写入路径上同步刷盘) */
+        private final Queue<MappedByteBuffer> retired = new ConcurrentLinkedQueue<>();
+        /** 刷盘与关闭互斥(关闭时解除映射，不能与刷盘同时进行)；写入只持有this锁，不等待刷盘 */
+        private final Object syncLock = new Object();
+
+        SessionLog(Path dir, int segmentIndex) {
+            this.dir = dir;
+            this.segmentIndex = segmentIndex;
+        }
+
+        /**
+         * 映射当前分段；续写已有分段时定位到最后一条有效记录之后
+         */
+        void open(boolean resume) throws IOException {
+            Path segment = dir.resolve(segmentIndex + SEGMENT_SUFFIX);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            }
+            if (resume && buffer.getInt(0) == MAGIC) {
+                buffer.position(FILE_HEADER_SIZE);
+                while (readEvent(buffer) != null) {
+                    // 跳过已有记录
+                }
+                // 清掉写了一半的记录，避免之后的记录被它挡住
+                for (int i = buffer.position(); i < Math.min(buffer.position() + RECORD_PREFIX_SIZE, segmentBytes); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+            } else {
+                buffer.putInt(0, MAGIC);
+                buffer.position(FILE_HEADER_SIZE);
+            }
+            syncedPosition = 0;
+        }
+
+        /**
+         * @return 已关闭(场次已归档)时返回false，不写入
+         */
+        synchronized boolean append(byte type, long questionId, long a, long b, byte[] payload) throws IOException {
+            if (closed) {
+                return false;
+            }
+            int bodyLength = RECORD_BODY_HEADER_SIZE + (payload != null ? payload.length : 0);
+            if (RECORD_PREFIX_SIZE + bodyLength > segmentBytes - FILE_HEADER_SIZE) {
+                throw new IllegalArgumentException("事件过大: " + bodyLength);
+            }
+            if (buffer.remaining() < RECORD_PREFIX_SIZE + bodyLength) {
+                retired.add(buffer);
+                segmentIndex++;
+                open(false);
+            }
+            int start = buffer.position();
+            buffer.position(start + RECORD_PREFIX_SIZE);
+            buffer.put(type);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.putLong(questionId);
+            buffer.putLong(a);
+            buffer.putLong(b);
+            if (payload != null) {
+                buffer.put(payload);
+            }
+            crc.reset();
+            crc.update(buffer.slice(start + RECORD_PREFIX_SIZE, bodyLength));
+            // 长度最后写入，回放时不会读到未写完的记录
+            buffer.putInt(start + 4, (int) crc.getValue());
+            buffer.putInt(start, bodyLength);
+            return true;
+        }
+
+        /**
+         * 把上次刷盘后新写入的区间刷到磁盘，写满的分段刷盘后解除映射
+         */
+        void sync() {
+            synchronized (syncLock) {
+                MappedByteBuffer full;
+                while ((full = retired.poll()) != null) {
+                    full.force();
+                    MappedBufferUtil.unmap(full);
+                }
+                MappedByteBuffer target;
+                int from;
+                int to;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    target = buffer;
+                    from = syncedPosition;
+                    to = buffer.position();
+                    syncedPosition = to;
+                }
+                if (to > from) {
+                    target.force(from, to - from);
+                }
+            }
+        }
+
+        /**
+         * 刷盘并解除映射，之后的写入失败(不再持有16MB的映射，Windows下目录也才能移动)
+         */
+        void close() {
+            synchronized (syncLock) {
+                sync();
+                MappedByteBuffer target;
+                synchronized (this) {
+                    closed = true;
+                    target = buffer;
+                    buffer = null;
+                }
+                target.force();
+                MappedBufferUtil.unmap(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.qdq.entity.QuizSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 场次状态恢复服务
+ * 启动后回放进行中场次(状态1-3)的事件日志，在内存中重建场次状态、当前题目的抢答队列/锁定/判定结果与答题进度，
+ * 再写回实时状态存储；状态与数据库不一致时以数据库为准(事务已提交的才算数)。已结束或已删除场次的遗留日志直接归档
+ */
+@Slf4j
+@Service
+public class SessionRecoveryService {
+
+    private final SessionEventLog sessionEventLog;
+    private final SessionService sessionService;
+    private final BuzzService buzzService;
+
+    public SessionRecoveryService(SessionEventLog sessionEventLog, SessionService sessionService,
+                                  BuzzService buzzService) {
+        this.sessionEventLog = sessionEventLog;
+        this.sessionService = sessionService;
+        this.buzzService = buzzService;
+    }
+
+    /**
+     * 启动后恢复进行中的场次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverLiveSessions() {
+        long startTime = System.currentTimeMillis();
+        Set<Long> logged = sessionEventLog.activeSessionIds();
+        List<QuizSession> sessions = sessionService.list(new LambdaQueryWrapper<QuizSession>()
+                .in(QuizSession::getStatus, 1, 2, 3));
+        int events = 0;
+        for (QuizSession session : sessions) {
+            if (!logged.remove(session.getId())) {
+                continue;
+            }
+            try {
+                events += recover(session);
+            } catch (RuntimeException e) {
+                log.error("场次状态恢复失败: sessionId={}", session.getId(), e);
+            }
+        }
+        // 剩下的是已结束/已删除场次未归档的日志(结束时进程退出)
+        for (Long sessionId : logged) {
+            sessionEventLog.archive(sessionId);
+        }
+        if (!sessions.isEmpty() || !logged.isEmpty()) {
+            log.info("场次状态恢复完成: 进行中场次={}, 回放事件={}, 归档遗留日志={}, 耗时={}ms",
+                    sessions.size(), events, logged.size(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 回放单个场次的日志并写回实时状态存储
+     *
+     * @return 回放的事件数
+     */
+    private int recover(QuizSession session) {
+        LiveSessionState state = new LiveSessionState();
+        int events = sessionEventLog.replay(session.getId(), state::apply);
+
+        if (!Objects.equals(state.status, session.getStatus())
+                || !Objects.equals(state.currentQuestionIndex, session.getCurrentQuestionIndex())) {
+            log.warn("事件日志与数据库状态不一致，以数据库为准: sessionId={}, 日志=({}, {}), 数据库=({}, {})",
+                    session.getId(), state.status, state.currentQuestionIndex,
+                    session.getStatus(), session.getCurrentQuestionIndex());
+        }
+        sessionService.restoreLiveState(session, state.answerProgress);
+
+        Integer index = session.getCurrentQuestionIndex();
+        List<Long> questionIds = session.getQuestionIds();
+        Long currentQuestionId = index != null && index >= 0 && questionIds != null && index < questionIds.size()
+                ? questionIds.get(index) : null;
+        if (currentQuestionId != null && currentQuestionId.equals(state.buzzQuestionId)) {
+            buzzService.restoreBuzzState(session.getId(), currentQuestionId, state.buzzes, state.closeReason,
+                    state.results);
+        }
+        log.info("场次状态已恢复: sessionId={}, 状态={}, 题目索引={}, 抢答数={}, 已判定={}", session.getId(),
+                session.getStatus(), index, state.buzzes.size(), state.results != null);
+        return events;
+    }
+
+    /**
+     * 回放得到的场次状态
+     */
+    private static class LiveSessionState {
+
+        int status = -1;
+        int currentQuestionIndex = -1;
+        Long buzzQuestionId;
+        /** 当前题目的抢答(成员ID -> 服务端时间，重复抢答保留第一次的时间，与抢答队列的ZADD NX一致) */
+        final Map<String, Long> buzzes = new LinkedHashMap<>();
+        int closeReason;
+        List<Map.Entry<String, Long>> results;
+        final Map<Long, Integer> answerProgress = new HashMap<>();
+
+        void apply(SessionEventLog.Event event) {
+            switch (event.type()) {
+                case SessionEventLog.STATE -> {
+                    status = (int) event.a();
+                    currentQuestionIndex = (int) event.b();
+                }
+                case SessionEventLog.BUZZ_OPEN -> {
+                    buzzQuestionId = event.questionId();
+                    buzzes.clear();
+                    closeReason = 0;
+                    results = null;
+                }
+                case SessionEventLog.BUZZ -> {
+                    if (Objects.equals(buzzQuestionId, event.questionId())) {
+                        buzzes.putIfAbsent(event.payloadText(), event.b());
+                    }
+                }
+                case SessionEventLog.BUZZ_CLOSE -> {
+                    if (Objects.equals(buzzQuestionId, event.questionId())) {
+                        closeReason = (int) event.a();
+                    }
+                }
+                case SessionEventLog.BUZZ_RESULT -> {
+                    if (Objects.equals(buzzQuestionId, event.questionId())) {
+                        results = event.results();
+                    }
+                }
+                case SessionEventLog.ANSWER_PROGRESS -> answerProgress.put(event.a(), (int) event.b());
+                default -> {
+                }
+            }
+        }
+    }
+}
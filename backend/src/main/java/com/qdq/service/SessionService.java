@@ -11,9 +11,11 @@ import com.qdq.dto.SessionRequest;
 import com.qdq.entity.QuizQuestion;
 import com.qdq.entity.QuizSession;
 import com.qdq.exception.BusinessException;
+import com.qdq.live.LiveStateStore;
+import com.qdq.live.SubmissionDeduplicator;
 import com.qdq.mapper.QuizSessionMapper;
+import com.qdq.util.PageUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,7 +23,6 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 比赛场次服务
@@ -31,30 +32,31 @@ import java.util.concurrent.TimeUnit;
 public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession> {
 
     private final QuestionService questionService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final LiveStateStore liveStateStore;
+    private final MediaCacheService mediaCacheService;
+    private final SessionEventLog sessionEventLog;
+    private final SubmissionDeduplicator submissionDeduplicator;
 
-    private static final String SESSION_CACHE_KEY = "quiz:session:";
-    private static final String SESSION_STATE_KEY = "quiz:session:state:";
-    private static final String COUNTDOWN_KEY = "quiz:session:countdown:";
-    private static final String ANSWER_PROGRESS_KEY = "quiz:session:progress:";
-
-    public SessionService(QuestionService questionService, RedisTemplate<String, Object> redisTemplate) {
+    public SessionService(QuestionService questionService, LiveStateStore liveStateStore,
+                          MediaCacheService mediaCacheService, SessionEventLog sessionEventLog,
+                          SubmissionDeduplicator submissionDeduplicator) {
         this.questionService = questionService;
-        this.redisTemplate = redisTemplate;
+        this.liveStateStore = liveStateStore;
+        this.mediaCacheService = mediaCacheService;
+        this.sessionEventLog = sessionEventLog;
+        this.submissionDeduplicator = submissionDeduplicator;
     }
 
     /**
      * 分页查询场次
      */
     public Page<QuizSession> page(PageRequest pageRequest, Integer status, String keyword) {
-        Page<QuizSession> page = new Page<>(pageRequest.getPage(), pageRequest.getPageSize());
-        
         LambdaQueryWrapper<QuizSession> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(status != null, QuizSession::getStatus, status);
         wrapper.like(StrUtil.isNotBlank(keyword), QuizSession::getName, keyword);
-        wrapper.orderByDesc(QuizSession::getCreatedAt);
         
-        Page<QuizSession> result = this.page(page, wrapper);
+        Page<QuizSession> result = PageUtil.pageByCreatedAt(baseMapper, pageRequest, wrapper,
+                QuizSession::getCreatedAt, QuizSession::getId);
         
         // 填充额外信息
         result.getRecords().forEach(session -> {
@@ -155,6 +157,7 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         
         this.removeById(id);
         clearSessionCache(id);
+        mediaCacheService.releaseSession(id);
     }
 
     /**
@@ -178,10 +181,15 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         session.setCountdownSeconds(countdownSeconds);
         session.setStatus(1); // 待开始
         this.updateById(session);
+        sessionEventLog.open(id);
+        appendState(session);
 
-        // 缓存倒计时信息到Redis
+        // 缓存倒计时信息
         cacheCountdown(id, countdownSeconds);
 
+        // 倒计时期间预热题目媒体
+        mediaCacheService.warmUpSession(id, session.getQuestionIds());
+
         log.info("比赛开始倒计时: {}秒", countdownSeconds);
         return session;
     }
@@ -212,9 +220,14 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         session.setCurrentQuestionIndex(-1);
         session.setStartTime(LocalDateTime.now());
         this.updateById(session);
+        sessionEventLog.open(id);
+        appendState(session);
         
-        // 缓存场次状态到Redis
+        // 缓存场次状态
         cacheSessionState(session);
+
+        // 预热题目媒体(倒计时阶段已预热的直接命中)
+        mediaCacheService.warmUpSession(id, session.getQuestionIds());
         
         log.info("比赛开始: {}", session.getName());
         return session;
@@ -236,6 +249,7 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         
         session.setStatus(3); // 暂停
         this.updateById(session);
+        appendState(session);
         
         cacheSessionState(session);
         
@@ -259,6 +273,7 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         
         session.setStatus(2); // 进行中
         this.updateById(session);
+        appendState(session);
         
         cacheSessionState(session);
         
@@ -279,8 +294,12 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         session.setStatus(4); // 已结束
         session.setEndTime(LocalDateTime.now());
         this.updateById(session);
+        appendState(session);
         
         clearSessionCache(id);
+        mediaCacheService.releaseSession(id);
+        // 场次日志移入归档，供赛后处理
+        sessionEventLog.archive(id);
         
         log.info("比赛结束: {}", session.getName());
         return session;
@@ -312,6 +331,7 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         
         session.setCurrentQuestionIndex(nextIndex);
         this.updateById(session);
+        appendState(session);
         
         // 获取题目信息
         Long questionId = questionIds.get(nextIndex);
@@ -324,6 +344,18 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         return question;
     }
 
+    /**
+     * 获取接下来几道题的媒体文件(供客户端预取)
+     */
+    public List<Map<String, Object>> getUpcomingMedia(Long sessionId) {
+        QuizSession session = this.getById(sessionId);
+        if (session == null) {
+            throw new BusinessException("场次不存在");
+        }
+        return mediaCacheService.prepareUpcoming(sessionId, session.getQuestionIds(),
+                session.getCurrentQuestionIndex() != null ? session.getCurrentQuestionIndex() : -1);
+    }
+
     /**
      * 获取当前题目
      */
@@ -346,70 +378,107 @@ public class SessionService extends ServiceImpl<QuizSessionMapper, QuizSession>
         return questionService.getById(questionId);
     }
 
+    /**
+     * 按事件日志恢复场次的实时状态(启动时由 SessionRecoveryService 调用)
+     *
+     * @param answerProgress 用户ID -> 已答题数
+     */
+    public void restoreLiveState(QuizSession session, Map<Long, Integer> answerProgress) {
+        if (session.getStatus() == 1) {
+            cacheCountdown(session.getId(), session.getCountdownSeconds() != null ? session.getCountdownSeconds() : 10);
+        } else {
+            cacheSessionState(session);
+        }
+        Long questionId = currentQuestionId(session);
+        if (questionId != null) {
+            cacheCurrentQuestion(session.getId(), questionService.getById(questionId));
+        }
+        answerProgress.forEach((userId, answeredCount) -> cacheAnswerProgress(session.getId(), userId, answeredCount));
+    }
+
+    /**
+     * 当前题目ID(未开始答题时为null)
+     */
+    private Long currentQuestionId(QuizSession session) {
+        Integer index = session.getCurrentQuestionIndex();
+        List<Long> questionIds = session.getQuestionIds();
+        if (index == null || index < 0 || questionIds == null || index >= questionIds.size()) {
+            return null;
+        }
+        return questionIds.get(index);
+    }
+
+    /**
+     * 记录状态变更到场次事件日志
+     */
+    private void appendState(QuizSession session) {
+        sessionEventLog.appendState(session.getId(), session.getStatus(),
+                session.getCurrentQuestionIndex() != null ? session.getCurrentQuestionIndex() : -1,
+                currentQuestionId(session));
+    }
+
     /**
      * 缓存场次状态
      */
     private void cacheSessionState(QuizSession session) {
-        String key = SESSION_STATE_KEY + session.getId();
         Map<String, Object> state = new HashMap<>();
         state.put("id", session.getId());
         state.put("status", session.getStatus());
         state.put("currentQuestionIndex", session.getCurrentQuestionIndex());
         state.put("questionCount", session.getQuestionIds() != null ? session.getQuestionIds().size() : 0);
-        redisTemplate.opsForHash().putAll(key, state);
-        redisTemplate.expire(key, 24, TimeUnit.HOURS);
+        liveStateStore.saveSessionState(session.getId(), state);
     }
 
     /**
      * 缓存当前题目
      */
     private void cacheCurrentQuestion(Long sessionId, QuizQuestion question) {
-        String key = SESSION_CACHE_KEY + sessionId + ":current_question";
-        redisTemplate.opsForValue().set(key, question, 1, TimeUnit.HOURS);
+        liveStateStore.saveCurrentQuestion(sessionId, question);
     }
 
     /**
      * 缓存倒计时信息
      */
     private void cacheCountdown(Long sessionId, Integer countdownSeconds) {
-        String key = COUNTDOWN_KEY + sessionId;
-        redisTemplate.opsForValue().set(key, countdownSeconds, 1, TimeUnit.HOURS);
+        liveStateStore.saveCountdown(sessionId, countdownSeconds);
     }
 
     /**
      * 获取倒计时秒数
      */
     public Integer getCountdownSeconds(Long sessionId) {
-        String key = COUNTDOWN_KEY + sessionId;
-        Object value = redisTemplate.opsForValue().get(key);
-        return value != null ? Integer.parseInt(value.toString()) : 10;
+        Integer value = liveStateStore.getCountdown(sessionId);
+        return value != null ? value : 10;
     }
 
     /**
      * 跟新答题进度
      */
     public void updateAnswerProgress(Long sessionId, Long userId, Integer answeredCount) {
-        String key = ANSWER_PROGRESS_KEY + sessionId;
-        Map<String, Object> progress = new java.util.HashMap<>();
+        cacheAnswerProgress(sessionId, userId, answeredCount);
+        sessionEventLog.appendAnswerProgress(sessionId, userId, answeredCount);
+    }
+
+    private void cacheAnswerProgress(Long sessionId, Long userId, Integer answeredCount) {
+        Map<String, Object> progress = new HashMap<>();
         progress.put("userId", userId);
         progress.put("answeredCount", answeredCount);
         progress.put("timestamp", System.currentTimeMillis());
-        redisTemplate.opsForHash().put(key, userId.toString(), progress);
+        liveStateStore.saveAnswerProgress(sessionId, userId, progress);
     }
 
     /**
      * 获取整体答题进度
      */
     public Map<Object, Object> getAnswerProgressMap(Long sessionId) {
-        String key = ANSWER_PROGRESS_KEY + sessionId;
-        return redisTemplate.opsForHash().entries(key);
+        return liveStateStore.getAnswerProgress(sessionId);
     }
 
     /**
      * 清除场次缓存
      */
     private void clearSessionCache(Long sessionId) {
-        redisTemplate.delete(SESSION_STATE_KEY + sessionId);
-        redisTemplate.delete(SESSION_CACHE_KEY + sessionId + ":current_question");
+        liveStateStore.clearSession(sessionId);
+        submissionDeduplicator.clear(sessionId);
     }
 }
@@ -11,6 +11,7 @@ import com.qdq.dto.UserRequest;
 import com.qdq.entity.SysUser;
 import com.qdq.exception.BusinessException;
 import com.qdq.mapper.SysUserMapper;
+import com.qdq.util.PageUtil;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,18 +33,17 @@ public class UserService extends ServiceImpl<SysUserMapper, SysUser> {
      * 分页查询用户
      */
     public Page<SysUser> page(PageRequest pageRequest, String keyword, Integer status) {
-        Page<SysUser> page = new Page<>(pageRequest.getPage(), pageRequest.getPageSize());
-        
         LambdaQueryWrapper<SysUser> wrapper = new LambdaQueryWrapper<>();
-        wrapper.like(StrUtil.isNotBlank(keyword), SysUser::getUsername, keyword)
+        // 关键字条件加括号，避免OR吞掉后续的状态和游标条件
+        wrapper.and(StrUtil.isNotBlank(keyword), w -> w.like(SysUser::getUsername, keyword)
                 .or()
-                .like(StrUtil.isNotBlank(keyword), SysUser::getName, keyword)
+                .like(SysUser::getName, keyword)
                 .or()
-                .like(StrUtil.isNotBlank(keyword), SysUser::getPhone, keyword);
+                .like(SysUser::getPhone, keyword));
         wrapper.eq(status != null, SysUser::getStatus, status);
-        wrapper.orderByDesc(SysUser::getCreatedAt);
         
-        return this.page(page, wrapper);
+        return PageUtil.pageByCreatedAt(baseMapper, pageRequest, wrapper,
+                SysUser::getCreatedAt, SysUser::getId);
     }
 
     /**
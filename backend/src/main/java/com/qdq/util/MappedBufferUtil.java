@@ -0,0 +1,52 @@
+package com.qdq.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+
+/**
+ * 内存映射释放工具
+ * MappedByteBuffer 默认要等GC才解除映射，Windows下映射未解除的文件不能删除或移动；
+ * 这里通过 sun.misc.Unsafe.invokeCleaner 立即解除映射。解除后不能再访问该缓冲区，调用方需保证没有其他线程在使用
+ */
+@Slf4j
+public class MappedBufferUtil {
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", java.nio.ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法立即解除内存映射，将等待GC释放: {}", e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private MappedBufferUtil() {
+    }
+
+    /**
+     * 解除映射(不支持时留给GC)
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("解除内存映射失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.qdq.util;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.http.HtmlUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检索分词工具类
+ * 汉字连续片段切分为二元组(单字片段保留单字)，字母数字片段按整词切分；
+ * 建索引时字母数字词另外展开为前缀，检索词按前缀匹配(java 可命中 javascript)
+ */
+public class NgramTokenizer {
+
+    /** 字母数字词展开前缀的最小与最大长度(更长的检索词按最大长度的前缀匹配) */
+    public static final int MIN_PREFIX = 2;
+    public static final int MAX_PREFIX = 20;
+
+    private NgramTokenizer() {
+    }
+
+    /**
+     * 分词(去HTML标签、全角转半角、转小写)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String cleaned = Convert.toDBC(HtmlUtil.cleanHtmlTag(text)).toLowerCase();
+
+        int length = cleaned.length();
+        int i = 0;
+        while (i < length) {
+            char c = cleaned.charAt(i);
+            if (isHan(c)) {
+                int start = i;
+                while (i < length && isHan(cleaned.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.add(cleaned.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(cleaned.charAt(i)) && !isHan(cleaned.charAt(i))) {
+                    i++;
+                }
+                tokens.add(cleaned.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 字母数字词的索引前缀(长度 MIN_PREFIX 到 MAX_PREFIX，不足 MIN_PREFIX 的词保留整词)，汉字词元返回空
+     */
+    public static List<String> prefixes(String token) {
+        List<String> prefixes = new ArrayList<>();
+        if (token.isEmpty() || isHan(token.charAt(0))) {
+            return prefixes;
+        }
+        int max = Math.min(token.length(), MAX_PREFIX);
+        for (int length = Math.min(MIN_PREFIX, max); length <= max; length++) {
+            prefixes.add(token.substring(0, length));
+        }
+        return prefixes;
+    }
+
+    /**
+     * 检索词对应的索引词项(过长的字母数字词截为最大前缀)
+     */
+    public static String queryTerm(String token) {
+        return token.length() > MAX_PREFIX && !isHan(token.charAt(0)) ? token.substring(0, MAX_PREFIX) : token;
+    }
+
+    /**
+     * 是否为汉字
+     */
+    public static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+}
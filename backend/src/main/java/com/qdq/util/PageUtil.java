@@ -0,0 +1,128 @@
+package com.qdq.util;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.common.CursorPage;
+import com.qdq.common.PageRequest;
+import com.qdq.exception.BusinessException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分页工具类
+ * 统一按(created_at desc, id desc)排序，支持页码分页和游标(键集)分页，
+ * 计数方式可选精确COUNT、封顶估算或不计数
+ */
+public class PageUtil {
+
+    public static final String COUNT_EXACT = "exact";
+    public static final String COUNT_APPROX = "approx";
+    public static final String COUNT_NONE = "none";
+
+    /** 估算计数上限，超过时total返回该值并标记为估算 */
+    public static final int APPROX_COUNT_CAP = 10000;
+
+    private PageUtil() {
+    }
+
+    /**
+     * 按创建时间倒序分页查询
+     *
+     * @param wrapper   只包含筛选条件的查询(排序由本方法追加)
+     * @param createdAt 创建时间列
+     * @param id        主键列
+     */
+    public static <T> Page<T> pageByCreatedAt(BaseMapper<T> mapper, PageRequest pageRequest,
+                                              LambdaQueryWrapper<T> wrapper,
+                                              SFunction<T, LocalDateTime> createdAt, SFunction<T, Long> id) {
+        String countMode = pageRequest.getCountMode();
+        if (!pageRequest.isCursorMode()) {
+            if (countMode == null || COUNT_EXACT.equals(countMode)) {
+                wrapper.orderByDesc(createdAt).orderByDesc(id);
+                return mapper.selectPage(new Page<>(pageRequest.getPage(), pageRequest.getPageSize()), wrapper);
+            }
+            CursorPage<T> page = new CursorPage<>(pageRequest.getPage(), pageRequest.getPageSize());
+            fillCount(mapper, page, wrapper, id, countMode);
+            wrapper.orderByDesc(createdAt).orderByDesc(id);
+            page.setRecords(mapper.selectPage(new Page<>(pageRequest.getPage(), pageRequest.getPageSize(), false),
+                    wrapper).getRecords());
+            page.setHasMore(page.getRecords().size() == pageRequest.getPageSize());
+            return page;
+        }
+
+        CursorPage<T> page = new CursorPage<>(1, pageRequest.getPageSize());
+        if (countMode != null) {
+            fillCount(mapper, page, wrapper, id, countMode);
+        }
+
+        Cursor cursor = decodeCursor(pageRequest.getCursor());
+        if (cursor != null) {
+            wrapper.and(w -> w.lt(createdAt, cursor.createdAt())
+                    .or(o -> o.eq(createdAt, cursor.createdAt()).lt(id, cursor.id())));
+        }
+        wrapper.orderByDesc(createdAt).orderByDesc(id);
+
+        // 多取一条判断是否还有下一页
+        List<T> records = mapper.selectPage(new Page<>(1, pageRequest.getPageSize() + 1L, false), wrapper)
+                .getRecords();
+        boolean hasMore = records.size() > pageRequest.getPageSize();
+        if (hasMore) {
+            records = records.subList(0, pageRequest.getPageSize());
+            T last = records.get(records.size() - 1);
+            page.setNextCursor(encodeCursor(createdAt.apply(last), id.apply(last)));
+        }
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        return page;
+    }
+
+    /**
+     * 生成游标(Base64URL编码的"创建时间,ID")
+     */
+    public static String encodeCursor(LocalDateTime createdAt, Long id) {
+        return Base64.encodeUrlSafe(createdAt + "," + id);
+    }
+
+    /**
+     * 解析游标，空字符串表示第一页
+     */
+    private static Cursor decodeCursor(String cursor) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String[] parts = Base64.decodeStr(cursor).split(",");
+            return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (Exception e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 计数(在追加游标条件和排序之前调用)
+     */
+    private static <T> void fillCount(BaseMapper<T> mapper, CursorPage<T> page, LambdaQueryWrapper<T> wrapper,
+                                      SFunction<T, Long> id, String countMode) {
+        switch (countMode) {
+            case COUNT_EXACT -> page.setTotal(mapper.selectCount(wrapper));
+            case COUNT_APPROX -> {
+                // 只取主键且最多取上限条，命中索引时代价远低于全量COUNT
+                LambdaQueryWrapper<T> countWrapper = wrapper.clone();
+                countWrapper.select(id).last("LIMIT " + APPROX_COUNT_CAP);
+                long count = mapper.selectObjs(countWrapper).size();
+                page.setTotal(count);
+                page.setApproximateTotal(count >= APPROX_COUNT_CAP);
+            }
+            case COUNT_NONE -> page.setTotal(-1);
+            default -> throw new BusinessException("不支持的计数方式: " + countMode);
+        }
+    }
+
+    private record Cursor(LocalDateTime createdAt, Long id) {
+    }
+}
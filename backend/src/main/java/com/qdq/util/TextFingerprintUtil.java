@@ -0,0 +1,140 @@
+package com.qdq.util;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.http.HtmlUtil;
+import com.qdq.entity.QuizQuestion;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 题目文本指纹工具类
+ * 精确指纹: 归一化后的标题+内容+选项的MD5
+ * 近似指纹: 字符3-gram的MinHash签名，配合LSH分段快速找出相似题目
+ */
+public class TextFingerprintUtil {
+
+    /** MinHash签名长度 */
+    public static final int SIGNATURE_SIZE = 64;
+
+    /** LSH分段数(每段 SIGNATURE_SIZE / LSH_BANDS 个值) */
+    public static final int LSH_BANDS = 16;
+
+    private static final int SHINGLE_SIZE = 3;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private TextFingerprintUtil() {
+    }
+
+    /**
+     * 归一化文本: 去HTML标签、全角转半角、转小写、只保留字母数字和汉字
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String cleaned = Convert.toDBC(HtmlUtil.cleanHtmlTag(text)).toLowerCase();
+        StringBuilder sb = new StringBuilder(cleaned.length());
+        for (int i = 0; i < cleaned.length(); i++) {
+            char c = cleaned.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 题目归一化文本(标题 + 内容 + 选项)
+     */
+    public static String normalizedText(QuizQuestion question) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(normalize(question.getTitle())).append('\u0001');
+        sb.append(normalize(question.getContent())).append('\u0001');
+        List<Map<String, Object>> options = question.getOptions();
+        if (options != null) {
+            for (Map<String, Object> option : options) {
+                Object value = option.get("value");
+                sb.append(normalize(value != null ? value.toString() : null)).append('\u0002');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 精确指纹
+     */
+    public static String fingerprint(String normalizedText) {
+        return SecureUtil.md5(normalizedText);
+    }
+
+    /**
+     * MinHash签名
+     */
+    public static int[] minHash(String normalizedText) {
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        int length = normalizedText.length();
+        int shingleCount = Math.max(length - SHINGLE_SIZE + 1, 1);
+        for (int start = 0; start < shingleCount; start++) {
+            int end = Math.min(start + SHINGLE_SIZE, length);
+            long shingle = 0;
+            for (int i = start; i < end; i++) {
+                shingle = shingle * 31 + normalizedText.charAt(i);
+            }
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int h = (int) mix(shingle ^ SEEDS[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * LSH分段键
+     */
+    public static long bandKey(int[] signature, int band) {
+        int rows = SIGNATURE_SIZE / LSH_BANDS;
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return mix(key);
+    }
+
+    /**
+     * 估算Jaccard相似度
+     */
+    public static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / SIGNATURE_SIZE;
+    }
+
+    /**
+     * 64位混淆(SplitMix64)
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
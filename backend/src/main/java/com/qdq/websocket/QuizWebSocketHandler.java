@@ -3,7 +3,13 @@ package com.qdq.websocket;
 import cn.dev33.satoken.stp.StpUtil;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qdq.entity.QuizSession;
+import com.qdq.live.SubmissionDeduplicator;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.metrics.QuizMetrics;
+import com.qdq.service.AuditLogService;
 import com.qdq.service.BuzzService;
+import com.qdq.service.SessionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
@@ -21,11 +27,23 @@ public class QuizWebSocketHandler extends TextWebSocketHandler {
 
     private final WebSocketMessageService messageService;
     private final BuzzService buzzService;
+    private final SessionService sessionService;
+    private final QuizMetrics quizMetrics;
+    private final QuestionTracer questionTracer;
+    private final AuditLogService auditLogService;
+    private final SubmissionDeduplicator submissionDeduplicator;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public QuizWebSocketHandler(WebSocketMessageService messageService, BuzzService buzzService) {
+    public QuizWebSocketHandler(WebSocketMessageService messageService, BuzzService buzzService,
+                                SessionService sessionService, QuizMetrics quizMetrics, QuestionTracer questionTracer,
+                                AuditLogService auditLogService, SubmissionDeduplicator submissionDeduplicator) {
         this.messageService = messageService;
         this.buzzService = buzzService;
+        this.sessionService = sessionService;
+        this.quizMetrics = quizMetrics;
+        this.questionTracer = questionTracer;
+        this.auditLogService = auditLogService;
+        this.submissionDeduplicator = submissionDeduplicator;
     }
 
     @Override
@@ -43,13 +61,13 @@ public class QuizWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
-        log.debug("收到WebSocket消息: {}", payload);
         
         try {
             Map<String, Object> msg = objectMapper.readValue(payload, 
                     new TypeReference<Map<String, Object>>() {});
             
             String event = (String) msg.get("event");
+            quizMetrics.countInbound(event);
             Map<String, Object> data = (Map<String, Object>) msg.getOrDefault("data", new HashMap<>());
             
             switch (event) {
@@ -78,6 +96,17 @@ public class QuizWebSocketHandler extends TextWebSocketHandler {
             sendError(session, "场次ID不能为空");
             return;
         }
+
+        // 只允许订阅存在且未结束的场次(订阅关系和连接数指标按场次ID建立，不能由客户端任意创建)
+        QuizSession quizSession = sessionService.getById(sessionId);
+        if (quizSession == null) {
+            sendError(session, "场次不存在");
+            return;
+        }
+        if (quizSession.getStatus() == 4) {
+            sendError(session, "比赛已结束");
+            return;
+        }
         
         // 验证token（可选）
         Long userId = null;
@@ -126,8 +155,10 @@ public class QuizWebSocketHandler extends TextWebSocketHandler {
 
     /**
      * 处理抢答
+     * requestId可选(客户端生成，重试时不变)，原样回传；同一参与者的重复抢答按第一次受理的结果应答
      */
     private void handleBuzz(WebSocketSession session, Map<String, Object> data) throws Exception {
+        long receivedNanos = System.nanoTime();
         Long sessionId = getLong(data, "sessionId");
         Long questionId = getLong(data, "questionId");
         Long userId = getLong(data, "userId");
@@ -143,27 +174,58 @@ public class QuizWebSocketHandler extends TextWebSocketHandler {
             return;
         }
         
+        long memberId = teamId != null ? teamId : userId;
+        questionTracer.record(sessionId, questionId, QuestionTracer.BUZZ_RECEIVED, receivedNanos, memberId, session.getId());
+        
         try {
-            Map<String, Object> result = buzzService.buzz(sessionId, questionId, userId, teamId);
+            Map<String, Object> result = buzzService.buzz(sessionId, questionId, userId, teamId, receivedNanos);
+            Object requestId = data.get("requestId");
+            if (requestId != null) {
+                result.put("requestId", requestId);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("event", "buzz_response");
             response.put("data", result);
             response.put("timestamp", System.currentTimeMillis());
             session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+            questionTracer.record(sessionId, questionId, QuestionTracer.BUZZ_RESPONSE, System.nanoTime(),
+                    memberId, session.getId());
         } catch (Exception e) {
             sendError(session, e.getMessage());
         }
     }
 
     /**
-     * 处理提交答案
+     * 处理提交答案(答案记入审计日志即受理)
+     * requestId可选(客户端生成，重试时不变)：当前题目已受理过的requestId不重复记录，
+     * 按第一次的受理结果应答并标记duplicate
      */
     private void handleSubmitAnswer(WebSocketSession session, Map<String, Object> data) throws Exception {
-        // TODO: 实现答案提交逻辑
+        Long sessionId = getLong(data, "sessionId");
+        Long questionId = getLong(data, "questionId");
+        Object requestId = data.get("requestId");
+        long receivedAt = System.currentTimeMillis();
+        long recordedAt = requestId != null && sessionId != null && questionId != null
+                ? submissionDeduplicator.recordAnswer(sessionId, questionId, requestId.toString(), receivedAt)
+                : SubmissionDeduplicator.NOT_RECORDED;
+        boolean duplicate = recordedAt != SubmissionDeduplicator.NOT_RECORDED;
+        if (!duplicate) {
+            Object answer = data.get("answer");
+            auditLogService.answer(sessionId, questionId, getLong(data, "userId"), getLong(data, "teamId"),
+                    answer != null ? answer.toString() : null);
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "accepted");
+        result.put("duplicate", duplicate);
+        result.put("receivedAt", duplicate ? recordedAt : receivedAt);
+        if (requestId != null) {
+            result.put("requestId", requestId);
+        }
         Map<String, Object> response = new HashMap<>();
         response.put("event", "answer_received");
-        response.put("data", Map.of("status", "processing"));
+        response.put("data", result);
         response.put("timestamp", System.currentTimeMillis());
         session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
     }
@@ -1,6 +1,8 @@
 package com.qdq.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.metrics.QuizMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.TextMessage;
@@ -18,6 +20,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class WebSocketMessageService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QuizMetrics quizMetrics;
+    private final QuestionTracer questionTracer;
     
     // 所有连接的会话
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
@@ -28,6 +32,12 @@ public class WebSocketMessageService {
     // 用户会话映射：userId -> WebSocketSession Id
     private final Map<Long, String> userSessions = new ConcurrentHashMap<>();
 
+    public WebSocketMessageService(QuizMetrics quizMetrics, QuestionTracer questionTracer) {
+        this.quizMetrics = quizMetrics;
+        this.questionTracer = questionTracer;
+        quizMetrics.registerConnections(sessions);
+    }
+
     /**
      * 注册会话
      */
@@ -43,7 +53,7 @@ public class WebSocketMessageService {
         sessions.remove(session.getId());
         
         // 清理订阅关系
-        sessionSubscriptions.values().forEach(set -> set.remove(session.getId()));
+        sessionSubscriptions.keySet().forEach(quizSessionId -> unsubscribeSession(session.getId(), quizSessionId));
         
         // 清理用户映射
         userSessions.values().removeIf(id -> id.equals(session.getId()));
@@ -52,11 +62,18 @@ public class WebSocketMessageService {
     }
 
     /**
-     * 订阅场次
+     * 订阅场次(调用方须已确认场次存在且未结束)
      */
     public void subscribeSession(String wsSessionId, Long quizSessionId, Long userId) {
-        sessionSubscriptions.computeIfAbsent(quizSessionId, k -> ConcurrentHashMap.newKeySet())
-                .add(wsSessionId);
+        // 集合的创建、移除与连接数指标的注册、移除都在同一个key的compute内完成，避免与清空订阅交错
+        sessionSubscriptions.compute(quizSessionId, (id, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = ConcurrentHashMap.newKeySet();
+                quizMetrics.registerSessionConnections(id, subscribers);
+            }
+            subscribers.add(wsSessionId);
+            return subscribers;
+        });
         
         if (userId != null) {
             userSessions.put(userId, wsSessionId);
@@ -70,10 +87,24 @@ public class WebSocketMessageService {
      * 取消订阅场次
      */
     public void unsubscribeSession(String wsSessionId, Long quizSessionId) {
-        Set<String> subscribers = sessionSubscriptions.get(quizSessionId);
-        if (subscribers != null) {
+        sessionSubscriptions.computeIfPresent(quizSessionId, (id, subscribers) -> {
             subscribers.remove(wsSessionId);
-        }
+            if (subscribers.isEmpty()) {
+                quizMetrics.removeSessionConnections(id);
+                return null;
+            }
+            return subscribers;
+        });
+    }
+
+    /**
+     * 释放场次订阅(比赛结束或删除后调用，连接保持但不再接收该场次的消息)
+     */
+    public void releaseSession(Long quizSessionId) {
+        sessionSubscriptions.computeIfPresent(quizSessionId, (id, subscribers) -> {
+            quizMetrics.removeSessionConnections(id);
+            return null;
+        });
     }
 
     /**
@@ -85,6 +116,7 @@ public class WebSocketMessageService {
             return;
         }
         
+        long startNanos = System.nanoTime();
         Map<String, Object> message = new HashMap<>();
         message.put("event", event);
         message.put("data", data);
@@ -99,17 +131,31 @@ public class WebSocketMessageService {
         }
         
         TextMessage textMessage = new TextMessage(jsonMessage);
+        QuestionTracer.QuestionTrace trace = questionTracer.broadcastTrace(quizSessionId, event);
+        if (trace != null) {
+            trace.record(QuestionTracer.BROADCAST_START, System.nanoTime(), subscribers.size(), event);
+        }
         
         for (String wsSessionId : subscribers) {
             WebSocketSession session = sessions.get(wsSessionId);
             if (session != null && session.isOpen()) {
+                long sendStart = quizMetrics.sendStarted();
                 try {
                     session.sendMessage(textMessage);
                 } catch (IOException e) {
                     log.error("发送消息失败: sessionId={}", wsSessionId, e);
+                } finally {
+                    long sendEnd = quizMetrics.sendFinished(sendStart);
+                    if (trace != null) {
+                        trace.record(QuestionTracer.SEND, sendEnd, 0, wsSessionId);
+                    }
                 }
             }
         }
+        quizMetrics.recordBroadcast(event, startNanos);
+        if (trace != null) {
+            trace.record(QuestionTracer.BROADCAST_END, System.nanoTime(), 0, event);
+        }
         
         log.debug("广播消息到场次: quizSessionId={}, event={}, 订阅者数={}", 
                 quizSessionId, event, subscribers.size());
@@ -159,6 +205,18 @@ public class WebSocketMessageService {
         broadcastToSession(quizSessionId, "question_push", question);
     }
 
+    /**
+     * 广播待预取的媒体文件
+     */
+    public void broadcastMediaPrefetch(Long quizSessionId, List<Map<String, Object>> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("files", files);
+        broadcastToSession(quizSessionId, "media_prefetch", data);
+    }
+
     /**
      * 广播分数更新
      */
@@ -0,0 +1,77 @@
+-- ============================
+-- V2: 按实际查询形态调整索引(已有数据库执行，新库直接使用 schema.sql)
+-- ============================
+--
+-- 查询形态清单(逻辑删除条件 deleted = 0 由 MyBatis-Plus 自动追加，因此作为复合索引前导列)
+-- 清单由 QueryShapeCatalogTest 在 MySQL 容器中逐条 EXPLAIN 校验，出现 filesort、全表扫描、只用到 deleted 前缀的索引访问，
+-- 或读取过半数据行再回表过滤时即构建失败
+--
+-- | 调用方                                   | WHERE / ORDER BY                                                        | 使用索引                   |
+-- |------------------------------------------|-------------------------------------------------------------------------|----------------------------|
+-- | QuestionService.page(无筛选)             | ORDER BY created_at, id                                                 | idx_created                |
+-- | QuestionService.page(含题型)             | type [+ difficulty] ORDER BY created_at, id                             | idx_type_created           |
+-- | QuestionService.page(只含难度)           | difficulty ORDER BY created_at, id                                      | idx_difficulty_created     |
+-- | QuestionService.page(含状态)             | status [+ type, difficulty] ORDER BY created_at, id                     | idx_status_created         |
+-- | QuestionService.page(含题库)             | bank_id [+ 其余筛选] ORDER BY created_at, id                            | idx_bank_created           |
+-- | QuestionService.page(含分类)             | category_id [+ 其余筛选] ORDER BY created_at, id                        | idx_category_created       |
+-- | QuestionSamplerService.rebuild           | status = 1, is_disabled = 0, id > ? ORDER BY id (只查分桶列)            | idx_sampler(覆盖索引)      |
+-- | QuestionService.getRandomQuestions       | id IN (...)                                                             | 主键                       |
+-- | QuestionDedupService.loadIndex           | bank_id = ? / bank_id IS NULL, id > ? ORDER BY id                       | idx_bank_id(隐含主键)      |
+-- | QuestionSearchService.rebuild            | id > ? ORDER BY id                                                      | 主键                       |
+-- | ImportExportService.exportQuestions      | bank_id / category_id / ..., id > ? ORDER BY id                         | idx_bank_id / 主键         |
+-- | QuizQuestionMapper.countGroupByBank      | bank_id IS NOT NULL GROUP BY bank_id                                    | idx_bank_created(覆盖索引) |
+-- | QuizBankService.page                     | status ORDER BY created_at, id                                          | idx_status_created         |
+-- | SessionService.page                      | status ORDER BY created_at, id                                          | idx_status_created         |
+-- | UserService.page                         | status ORDER BY created_at, id                                          | idx_status_created         |
+-- | 上述分页无筛选条件或只有关键字时         | ORDER BY created_at, id                                                 | idx_created                |
+-- | LeaderboardService.getRealTimeLeaderboard| session_id = ? (按得分排序)                                             | idx_session_score          |
+-- | FileStorageService.deleteFile            | sys_file_blob content_hash = ? FOR UPDATE (引用计数)                    | uk_content_hash(V4)        |
+-- | FileStorageService.reclaimUnreferenced   | sys_file_blob ref_count = 0 ORDER BY id LIMIT ?                         | idx_ref_count(V4)          |
+--
+-- 游标分页条件 created_at < ? OR (created_at = ? AND id < ?) 依赖二级索引末尾隐含的主键列，无需额外包含 id。
+-- 排序列 created_at 之后不能再放其他列，否则隐含的 id 不再紧随其后，(created_at, id) 排序会退化为 filesort。
+-- 题型、难度基数虽低，但页码分页的精确计数 COUNT(*) 没有LIMIT可提前停止，只按 deleted 前缀会读取几乎整张表，
+-- 因此同样建 (deleted, 列, created_at) 复合索引，计数走索引范围、列表保持创建时间顺序；
+-- 含状态、题库或分类的组合由对应的复合索引定位并保持顺序，其余条件回表判断。
+-- 原单列索引 idx_type / idx_difficulty / idx_status / idx_is_disabled / idx_category 的查询均已由上述复合索引承接
+-- (按ID键集遍历的导出改走主键顺序扫描)，一并删除以降低写入开销。
+
+-- 题目表
+ALTER TABLE quiz_question
+    ADD INDEX idx_created (deleted, created_at),
+    ADD INDEX idx_status_created (deleted, status, created_at),
+    ADD INDEX idx_bank_created (deleted, bank_id, created_at),
+    ADD INDEX idx_category_created (deleted, category_id, created_at),
+    ADD INDEX idx_type_created (deleted, type, created_at),
+    ADD INDEX idx_difficulty_created (deleted, difficulty, created_at),
+    ADD INDEX idx_sampler (deleted, status, is_disabled, id, category_id, type, difficulty),
+    DROP INDEX idx_category,
+    DROP INDEX idx_type,
+    DROP INDEX idx_difficulty,
+    DROP INDEX idx_status,
+    DROP INDEX idx_is_disabled;
+
+-- 题库表
+ALTER TABLE quiz_bank
+    ADD INDEX idx_status_created (deleted, status, created_at),
+    ADD INDEX idx_created (deleted, created_at),
+    DROP INDEX idx_status,
+    DROP INDEX idx_is_disabled;
+
+-- 用户表
+ALTER TABLE sys_user
+    ADD INDEX idx_status_created (deleted, status, created_at),
+    ADD INDEX idx_created (deleted, created_at);
+
+-- 比赛场次表
+ALTER TABLE quiz_session
+    ADD INDEX idx_status_created (deleted, status, created_at),
+    ADD INDEX idx_created (deleted, created_at),
+    DROP INDEX idx_status;
+
+-- 场次参赛者表(先建复合索引再删除旧索引，保证外键 fk_session_id 始终有可用索引)
+ALTER TABLE quiz_session_participant
+    ADD INDEX idx_session_score (session_id, total_score DESC);
+ALTER TABLE quiz_session_participant
+    DROP INDEX idx_session,
+    DROP INDEX idx_score;
@@ -0,0 +1,10 @@
+-- ============================
+-- V3: 文件按内容寻址存储
+-- ============================
+--
+-- 相同内容只存一份物理文件，sys_file 中 content_hash 相同的未删除记录数即为引用计数，
+-- 最后一条记录删除时才删除物理文件。历史文件 content_hash 为空，删除行为不变。
+
+ALTER TABLE sys_file
+    ADD COLUMN content_hash CHAR(64) COMMENT '内容SHA-256(相同内容共用一个物理文件)' AFTER mime_type,
+    ADD INDEX idx_content_hash (content_hash, deleted);
@@ -0,0 +1,27 @@
+-- ============================
+-- V4: 物理文件引用计数落库
+-- ============================
+--
+-- V3 以 sys_file 中相同 content_hash 的未删除记录数作为引用计数，增减在单个进程的锁内判断，多实例部署时
+-- 不同节点对同一内容的上传与删除可能交错；删除失败待重试的物理文件也只记在内存中，重启即丢失。
+-- 改为 sys_file_blob 每个物理文件一行：上传在落盘前先登记，落盘、插入文件记录与引用数加一在同一事务内
+-- 持有该行的行锁(SELECT ... FOR UPDATE)；删除时同样锁定后减一。引用数为0的行即待删除的物理文件，
+-- 由后台定期回收(锁定后再次确认为0才删除文件与记录)，上传中途失败或进程退出留下的物理文件同样被回收。
+-- 历史文件(content_hash 为空)删除失败时也登记一行引用数为0的记录，由同一流程重试。
+
+CREATE TABLE IF NOT EXISTS sys_file_blob (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT 'ID',
+    content_hash CHAR(64) COMMENT '内容SHA-256(历史文件为空)',
+    file_path VARCHAR(255) NOT NULL COMMENT '物理文件路径',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用的未删除文件记录数(为0时待删除)',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_content_hash (content_hash),
+    INDEX idx_ref_count (ref_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='物理文件表';
+
+-- 按现有文件记录回填引用数(只剩已删除记录的内容引用数为0，由后台回收)
+INSERT INTO sys_file_blob (content_hash, file_path, ref_count)
+SELECT content_hash, MIN(file_path), SUM(deleted = 0)
+FROM sys_file
+WHERE content_hash IS NOT NULL
+GROUP BY content_hash;
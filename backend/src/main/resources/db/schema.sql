@@ -65,7 +65,9 @@ CREATE TABLE IF NOT EXISTS sys_user (
     last_login_ip VARCHAR(50) COMMENT '最后登录IP',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT DEFAULT 0 COMMENT '删除标记'
+    deleted TINYINT DEFAULT 0 COMMENT '删除标记',
+    INDEX idx_status_created (deleted, status, created_at),
+    INDEX idx_created (deleted, created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户表';
 
 -- 用户角色关联表
@@ -106,8 +108,8 @@ CREATE TABLE IF NOT EXISTS quiz_bank (
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '删除标记',
-    INDEX idx_status (status),
-    INDEX idx_is_disabled (is_disabled)
+    INDEX idx_status_created (deleted, status, created_at),
+    INDEX idx_created (deleted, created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='题库表';
 
 -- 题目表
@@ -132,15 +134,39 @@ CREATE TABLE IF NOT EXISTS quiz_question (
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '删除标记',
-    INDEX idx_category (category_id),
     INDEX idx_bank_id (bank_id),
-    INDEX idx_type (type),
-    INDEX idx_difficulty (difficulty),
-    INDEX idx_status (status),
-    INDEX idx_is_disabled (is_disabled),
+    INDEX idx_created (deleted, created_at),
+    INDEX idx_status_created (deleted, status, created_at),
+    INDEX idx_bank_created (deleted, bank_id, created_at),
+    INDEX idx_category_created (deleted, category_id, created_at),
+    INDEX idx_type_created (deleted, type, created_at),
+    INDEX idx_difficulty_created (deleted, difficulty, created_at),
+    INDEX idx_sampler (deleted, status, is_disabled, id, category_id, type, difficulty),
     CONSTRAINT fk_bank_id FOREIGN KEY (bank_id) REFERENCES quiz_bank(id) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='题目表';
 
+-- 题目导入任务表
+CREATE TABLE IF NOT EXISTS quiz_import_job (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+    bank_id BIGINT COMMENT '目标题库ID',
+    file_name VARCHAR(255) COMMENT '原始文件名',
+    file_path VARCHAR(255) NOT NULL COMMENT '暂存文件路径',
+    status TINYINT DEFAULT 0 COMMENT '状态(0:排队中 1:导入中 2:已完成 3:失败)',
+    total_rows INT DEFAULT 0 COMMENT '已读取行数',
+    success_count INT DEFAULT 0 COMMENT '成功导入数',
+    failed_count INT DEFAULT 0 COMMENT '失败行数',
+    last_row_num INT DEFAULT 0 COMMENT '最后提交的Excel行号(断点)',
+    errors JSON COMMENT '失败行明细(JSON数组)',
+    error_message VARCHAR(500) COMMENT '任务失败原因',
+    created_by BIGINT COMMENT '创建人',
+    started_at DATETIME COMMENT '开始时间',
+    finished_at DATETIME COMMENT '完成时间',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_status (status),
+    INDEX idx_created_by (created_by)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='题目导入任务表';
+
 -- ============================
 -- 3. 比赛场次模块
 -- ============================
@@ -187,7 +213,8 @@ CREATE TABLE IF NOT EXISTS quiz_session (
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '删除标记',
-    INDEX idx_status (status),
+    INDEX idx_status_created (deleted, status, created_at),
+    INDEX idx_created (deleted, created_at),
     INDEX idx_start_time (start_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='比赛场次表';
 
@@ -203,10 +230,9 @@ CREATE TABLE IF NOT EXISTS quiz_session_participant (
     buzz_count INT DEFAULT 0 COMMENT '抢答次数',
     buzz_success_count INT DEFAULT 0 COMMENT '抢答成功次数',
     answered_count INT DEFAULT 0 COMMENT '已答题数',
-    rank INT COMMENT '排名',
+    `rank` INT COMMENT '排名',
     joined_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '加入时间',
-    INDEX idx_session (session_id),
-    INDEX idx_score (total_score DESC),
+    INDEX idx_session_score (session_id, total_score DESC),
     CONSTRAINT fk_session_id FOREIGN KEY (session_id) REFERENCES quiz_session(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='场次参赛者表';
 
@@ -224,7 +250,7 @@ CREATE TABLE IF NOT EXISTS quiz_buzz_log (
     buzz_time DATETIME(3) NOT NULL COMMENT '抢答时间(毫秒精度)',
     server_time BIGINT NOT NULL COMMENT '服务器时间戳(毫秒)',
     is_first TINYINT DEFAULT 0 COMMENT '是否第一个(0:否 1:是)',
-    rank INT COMMENT '抢答排名',
+    `rank` INT COMMENT '抢答排名',
     processed TINYINT DEFAULT 0 COMMENT '是否已处理',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     INDEX idx_session_question (session_id, question_id),
@@ -315,13 +341,26 @@ CREATE TABLE IF NOT EXISTS sys_file (
     file_type VARCHAR(50) COMMENT '文件类型(audio/video/image)',
     file_size BIGINT COMMENT '文件大小(字节)',
     mime_type VARCHAR(100) COMMENT 'MIME类型',
+    content_hash CHAR(64) COMMENT '内容SHA-256(相同内容共用一个物理文件)',
     uploaded_by BIGINT COMMENT '上传人ID',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     deleted TINYINT DEFAULT 0 COMMENT '删除标记',
     INDEX idx_uploaded_by (uploaded_by),
-    INDEX idx_file_type (file_type)
+    INDEX idx_file_type (file_type),
+    INDEX idx_content_hash (content_hash, deleted)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件记录表';
 
+-- 物理文件表(按内容寻址文件的引用计数，引用数为0的记录为待删除的物理文件)
+CREATE TABLE IF NOT EXISTS sys_file_blob (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT 'ID',
+    content_hash CHAR(64) COMMENT '内容SHA-256(历史文件为空)',
+    file_path VARCHAR(255) NOT NULL COMMENT '物理文件路径',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用的未删除文件记录数(为0时待删除)',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_content_hash (content_hash),
+    INDEX idx_ref_count (ref_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='物理文件表';
+
 -- 操作日志表
 CREATE TABLE IF NOT EXISTS sys_operation_log (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '日志ID',
@@ -0,0 +1,413 @@
+package com.qdq.live;
+
+import com.qdq.config.RedisConfig;
+import com.qdq.entity.QuizQuestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 实时状态存储一致性测试
+ * 同一组用例在 local、redis、hybrid 三种实现上运行，保证切换实现不改变抢答与场次状态的语义；
+ * hybrid 另外检查异步复制到Redis的结果与本地一致。
+ * Redis实现依赖Lua脚本，使用Testcontainers启动真实Redis；没有Docker时可用 -Dtest.redis.address=host:port
+ * 指定已有的Redis(用例只读写随机场次ID的键并在结束时清除)，两者都没有时跳过 redis 与 hybrid
+ */
+class LiveStateStoreTest {
+
+    private static final Long QUESTION_ID = 1L;
+    private static final Long OTHER_QUESTION_ID = 2L;
+
+    private static GenericContainer<?> redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    private static long nextSessionId = 900_000_000L + new Random().nextInt(1_000_000) * 10L;
+
+    private HybridLiveStateStore hybrid;
+
+    enum Kind {
+        LOCAL, REDIS, HYBRID
+    }
+
+    @AfterEach
+    void shutdownHybrid() throws InterruptedException {
+        if (hybrid != null) {
+            hybrid.shutdown();
+            hybrid = null;
+        }
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (redis != null) {
+            redis.stop();
+        }
+    }
+
+    /**
+     * 抢答队列按时间排序，同一成员重复抢答保留第一次的时间，时间相同按成员ID排序；
+     * 只有开放抢答的题目接受抢答，开放下一题时释放上一题的队列、锁定与结果
+     */
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void buzzQueue(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        assertEquals(LiveStateStore.BUZZ_LOCKED, store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_000L), "未开放时拒绝抢答");
+        store.resetBuzz(sessionId, QUESTION_ID);
+        store.addBuzz(sessionId, QUESTION_ID, "user:3", 1_030L);
+        store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_020L);
+        store.addBuzz(sessionId, QUESTION_ID, "user:2", 1_020L);
+        assertEquals(1_030L, store.addBuzz(sessionId, QUESTION_ID, "user:3", 1_050L), "重复抢答返回第一次的时间");
+        assertEquals(LiveStateStore.BUZZ_LOCKED, store.addBuzz(sessionId, OTHER_QUESTION_ID, "user:9", 900L),
+                "未开放的题目拒绝抢答");
+        assertEquals(List.of(
+                        new LiveStateStore.BuzzEntry("user:1", 1_020L),
+                        new LiveStateStore.BuzzEntry("user:2", 1_020L),
+                        new LiveStateStore.BuzzEntry("user:3", 1_030L)),
+                store.getBuzzQueue(sessionId, QUESTION_ID), "抢答队列排序且重复抢答不覆盖");
+        assertEquals(List.of(), store.getBuzzQueue(sessionId, OTHER_QUESTION_ID), "未开放的题目队列为空");
+        assertEquals(List.of(), store.lockBuzzQueue(sessionId, OTHER_QUESTION_ID), "未开放的题目判定为空");
+        assertFalse(store.isBuzzLocked(sessionId, OTHER_QUESTION_ID), "未开放的题目判定不锁定");
+        store.resetBuzz(sessionId, QUESTION_ID);
+        assertEquals(List.of(), store.getBuzzQueue(sessionId, QUESTION_ID), "重新开放抢答清空队列");
+        store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_100L);
+        store.lockBuzz(sessionId, QUESTION_ID, false);
+        store.saveBuzzResult(sessionId, QUESTION_ID, new ArrayList<>(List.of(result(1, "user:1", 1_100L))));
+        store.resetBuzz(sessionId, OTHER_QUESTION_ID);
+        assertEquals(List.of(), store.getBuzzQueue(sessionId, QUESTION_ID), "开放下一题释放上一题队列");
+        assertFalse(store.isBuzzLocked(sessionId, QUESTION_ID), "开放下一题释放上一题锁定");
+        assertNull(store.getBuzzResult(sessionId, QUESTION_ID), "开放下一题释放上一题结果");
+        assertEquals(LiveStateStore.BUZZ_LOCKED, store.addBuzz(sessionId, QUESTION_ID, "user:2", 1_200L), "上一题不再接受抢答");
+        assertEquals(1_300L, store.addBuzz(sessionId, OTHER_QUESTION_ID, "user:2", 1_300L), "开放的题目接受抢答");
+        assertEquals(List.of(new LiveStateStore.BuzzEntry("user:2", 1_300L)),
+                store.getBuzzQueue(sessionId, OTHER_QUESTION_ID), "开放下一题的队列");
+        store.clearSession(sessionId);
+    }
+
+    /**
+     * 锁定在两种关闭方式下都生效，开放抢答后解除
+     */
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void buzzLock(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        assertFalse(store.isBuzzLocked(sessionId, QUESTION_ID), "初始未锁定");
+        store.lockBuzz(sessionId, QUESTION_ID, false);
+        assertTrue(store.isBuzzLocked(sessionId, QUESTION_ID), "判定锁定");
+        assertFalse(store.isBuzzLocked(sessionId, OTHER_QUESTION_ID), "锁定不影响其他题目");
+        store.lockBuzz(sessionId, OTHER_QUESTION_ID, true);
+        assertTrue(store.isBuzzLocked(sessionId, OTHER_QUESTION_ID), "主持人关闭");
+        store.resetBuzz(sessionId, OTHER_QUESTION_ID);
+        store.resetBuzz(sessionId, QUESTION_ID);
+        assertFalse(store.isBuzzLocked(sessionId, QUESTION_ID), "开放抢答解除锁定");
+        assertFalse(store.isBuzzLocked(sessionId, OTHER_QUESTION_ID), "开放下一题解除上一题锁定");
+        assertEquals(1_000L, store.addBuzz(sessionId, QUESTION_ID, "user:2", 1_000L), "解除锁定后受理抢答");
+        store.lockBuzz(sessionId, QUESTION_ID, true);
+        assertEquals(LiveStateStore.BUZZ_LOCKED, store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_010L), "锁定后拒绝抢答");
+        assertEquals(List.of(new LiveStateStore.BuzzEntry("user:2", 1_000L)),
+                store.getBuzzQueue(sessionId, QUESTION_ID), "锁定后队列不变");
+        store.clearSession(sessionId);
+    }
+
+    /**
+     * 判定时锁定并读取队列: 队列为空不锁定，非空时锁定后不再接受抢答
+     */
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void lockBuzzQueue(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        store.resetBuzz(sessionId, QUESTION_ID);
+        assertEquals(List.of(), store.lockBuzzQueue(sessionId, QUESTION_ID), "空队列判定");
+        assertFalse(store.isBuzzLocked(sessionId, QUESTION_ID), "空队列不锁定");
+        assertEquals(1_010L, store.addBuzz(sessionId, QUESTION_ID, "user:2", 1_010L), "未锁定时受理抢答");
+        store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_000L);
+        assertEquals(List.of(
+                        new LiveStateStore.BuzzEntry("user:1", 1_000L),
+                        new LiveStateStore.BuzzEntry("user:2", 1_010L)),
+                store.lockBuzzQueue(sessionId, QUESTION_ID), "判定返回队列");
+        assertTrue(store.isBuzzLocked(sessionId, QUESTION_ID), "判定后锁定");
+        assertEquals(LiveStateStore.BUZZ_LOCKED, store.addBuzz(sessionId, QUESTION_ID, "user:3", 1_020L), "判定后拒绝抢答");
+        assertEquals(2, store.getBuzzQueue(sessionId, QUESTION_ID).size(), "判定后队列不变");
+        store.clearSession(sessionId);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void buzzResult(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        assertNull(store.getBuzzResult(sessionId, QUESTION_ID), "未判定时结果为null");
+        List<Map<String, Object>> results = new ArrayList<>(List.of(result(1, "team:7", 1_000L), result(2, "team:8", 1_040L)));
+        store.saveBuzzResult(sessionId, QUESTION_ID, results);
+        assertEquals(normalize(results), normalize(store.getBuzzResult(sessionId, QUESTION_ID)), "判定结果");
+        store.saveBuzzResult(sessionId, OTHER_QUESTION_ID, new ArrayList<>());
+        assertEquals(List.of(), store.getBuzzResult(sessionId, OTHER_QUESTION_ID), "空判定结果不为null");
+        store.resetBuzz(sessionId, QUESTION_ID);
+        store.resetBuzz(sessionId, OTHER_QUESTION_ID);
+        assertNull(store.getBuzzResult(sessionId, QUESTION_ID), "开放抢答清除结果");
+        store.clearSession(sessionId);
+    }
+
+    /**
+     * 场次状态整体覆盖，清除场次后状态、当前题目与倒计时都为空
+     */
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void sessionState(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        assertEquals(Map.of(), store.getSessionState(sessionId), "初始状态为空");
+        assertNull(store.getCountdown(sessionId), "未设置倒计时");
+        assertNull(store.getCurrentQuestion(sessionId), "未设置当前题目");
+
+        store.saveSessionState(sessionId, state(sessionId, 2, -1));
+        store.saveSessionState(sessionId, state(sessionId, 2, 0));
+        assertEquals(normalize(state(sessionId, 2, 0)), normalize(store.getSessionState(sessionId)), "场次状态");
+
+        QuizQuestion question = question();
+        store.saveCurrentQuestion(sessionId, question);
+        assertEquals(question, store.getCurrentQuestion(sessionId), "当前题目");
+
+        store.saveCountdown(sessionId, 15);
+        assertEquals(15, store.getCountdown(sessionId), "倒计时");
+
+        store.clearSession(sessionId);
+        assertEquals(Map.of(), store.getSessionState(sessionId), "清除后状态为空");
+        assertNull(store.getCurrentQuestion(sessionId), "清除后无当前题目");
+        assertNull(store.getCountdown(sessionId), "清除后无倒计时");
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void answerProgress(Kind kind) {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        assertEquals(Map.of(), store.getAnswerProgress(sessionId), "初始进度为空");
+        store.saveAnswerProgress(sessionId, 1L, progress(1L, 1));
+        store.saveAnswerProgress(sessionId, 2L, progress(2L, 1));
+        store.saveAnswerProgress(sessionId, 1L, progress(1L, 2));
+        assertEquals(normalize(Map.of("1", progress(1L, 2), "2", progress(2L, 1))),
+                normalize(store.getAnswerProgress(sessionId)), "答题进度按用户覆盖");
+        store.clearSession(sessionId);
+        assertEquals(Map.of(), store.getAnswerProgress(sessionId), "清除场次后进度为空");
+    }
+
+    /**
+     * 多线程同时抢答: 每个成员各一条记录且按时间排序，两次提交都拿到队列中的那一个时间
+     */
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void concurrentBuzz(Kind kind) throws InterruptedException {
+        LiveStateStore store = store(kind);
+        Long sessionId = nextSessionId++;
+        int threads = 8;
+        int perThread = 200;
+        store.resetBuzz(sessionId, QUESTION_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Set<Long>> returned = new ConcurrentHashMap<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // 每个成员被两个线程各提交一次，时间相差1毫秒
+                    int member = (thread / 2) * perThread + i;
+                    long firstTime = store.addBuzz(sessionId, QUESTION_ID, "user:" + member,
+                            10_000L + member % 97 + thread % 2);
+                    returned.computeIfAbsent("user:" + member, k -> ConcurrentHashMap.newKeySet()).add(firstTime);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "并发抢答超时");
+
+        List<LiveStateStore.BuzzEntry> queue = store.getBuzzQueue(sessionId, QUESTION_ID);
+        assertEquals(threads / 2 * perThread, queue.size(), "并发抢答去重");
+        for (int i = 1; i < queue.size(); i++) {
+            assertTrue(queue.get(i - 1).serverTime() <= queue.get(i).serverTime(), "并发抢答有序");
+        }
+        for (LiveStateStore.BuzzEntry entry : queue) {
+            assertEquals(Set.of(entry.serverTime()), returned.get(entry.memberId()), "返回队列中第一次的时间");
+        }
+        store.clearSession(sessionId);
+    }
+
+    /**
+     * hybrid 写入的状态在复制完成后与Redis中的一致
+     */
+    @Test
+    void replication() throws InterruptedException {
+        HybridLiveStateStore store = (HybridLiveStateStore) store(Kind.HYBRID);
+        LiveStateStore remote = new RedisLiveStateStore(binaryRedisTemplate);
+        Long sessionId = nextSessionId++;
+        Long otherSessionId = nextSessionId++;
+        store.resetBuzz(sessionId, QUESTION_ID);
+        store.addBuzz(sessionId, QUESTION_ID, "user:1", 1_000L);
+        store.addBuzz(sessionId, QUESTION_ID, "user:2", 1_010L);
+        store.lockBuzzQueue(sessionId, QUESTION_ID);
+        store.saveBuzzResult(sessionId, QUESTION_ID, new ArrayList<>(List.of(result(1, "user:1", 1_000L))));
+        store.saveSessionState(sessionId, state(sessionId, 2, 0));
+        store.saveCountdown(sessionId, 20);
+        store.saveAnswerProgress(sessionId, 1L, progress(1L, 3));
+        // 另一场次开放下一题
+        store.resetBuzz(otherSessionId, QUESTION_ID);
+        store.addBuzz(otherSessionId, QUESTION_ID, "user:1", 2_000L);
+        store.resetBuzz(otherSessionId, OTHER_QUESTION_ID);
+        store.addBuzz(otherSessionId, OTHER_QUESTION_ID, "user:2", 2_100L);
+        // 关闭时等待复制队列写完
+        store.shutdown();
+        hybrid = null;
+
+        assertEquals(store.getBuzzQueue(sessionId, QUESTION_ID), remote.getBuzzQueue(sessionId, QUESTION_ID), "复制抢答队列");
+        assertTrue(remote.isBuzzLocked(sessionId, QUESTION_ID), "复制锁定");
+        assertEquals(normalize(store.getBuzzResult(sessionId, QUESTION_ID)),
+                normalize(remote.getBuzzResult(sessionId, QUESTION_ID)), "复制判定结果");
+        assertEquals(normalize(store.getSessionState(sessionId)), normalize(remote.getSessionState(sessionId)), "复制场次状态");
+        assertEquals(20, remote.getCountdown(sessionId), "复制倒计时");
+        assertEquals(normalize(store.getAnswerProgress(sessionId)),
+                normalize(remote.getAnswerProgress(sessionId)), "复制答题进度");
+        assertEquals(List.of(), remote.getBuzzQueue(otherSessionId, QUESTION_ID), "复制开放下一题");
+        assertEquals(List.of(new LiveStateStore.BuzzEntry("user:2", 2_100L)),
+                remote.getBuzzQueue(otherSessionId, OTHER_QUESTION_ID), "复制下一题的抢答");
+        remote.clearSession(sessionId);
+        remote.clearSession(otherSessionId);
+    }
+
+    private LiveStateStore store(Kind kind) {
+        if (kind == Kind.LOCAL) {
+            return new LocalLiveStateStore();
+        }
+        startRedis();
+        if (kind == Kind.REDIS) {
+            return new RedisLiveStateStore(binaryRedisTemplate);
+        }
+        hybrid = new HybridLiveStateStore(new LocalLiveStateStore(), new RedisLiveStateStore(binaryRedisTemplate), 65536);
+        hybrid.init();
+        return hybrid;
+    }
+
+    /**
+     * 首次用到Redis实现时连接指定的Redis或启动容器，整个测试类共用
+     */
+    private static void startRedis() {
+        if (connectionFactory != null) {
+            return;
+        }
+        String address = System.getProperty("test.redis.address");
+        if (address != null) {
+            int colon = address.lastIndexOf(':');
+            connectionFactory = new LettuceConnectionFactory(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)));
+        } else {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "没有Docker，跳过Redis实现");
+            redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+            redis.start();
+            connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        }
+        connectionFactory.afterPropertiesSet();
+        binaryRedisTemplate = new RedisConfig().binaryRedisTemplate(connectionFactory);
+    }
+
+    private static QuizQuestion question() {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(QUESTION_ID);
+        question.setBankId(1L);
+        question.setCategoryId(1L);
+        question.setType(1);
+        question.setTitle("我国第一部纪传体通史是哪一部？");
+        question.setContent("请从下列选项中选择正确答案。");
+        List<Map<String, Object>> options = new ArrayList<>();
+        String[] labels = {"A", "B", "C", "D"};
+        String[] texts = {"《史记》", "《汉书》", "《资治通鉴》", "《春秋》"};
+        for (int i = 0; i < labels.length; i++) {
+            Map<String, Object> option = new LinkedHashMap<>();
+            option.put("key", labels[i]);
+            option.put("value", texts[i]);
+            options.add(option);
+        }
+        question.setOptions(options);
+        question.setAnswer(List.of("A"));
+        question.setAttachments(List.of(Map.of("type", "image", "url", "/files/1.png")));
+        question.setScore(10);
+        question.setDifficulty(2);
+        question.setTags(List.of("历史", "古代文学"));
+        question.setStatus(1);
+        question.setIsDisabled(0);
+        question.setCreatedAt(LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123_000_000));
+        return question;
+    }
+
+    /**
+     * 统一数值类型(编解码可能把Long读回为Integer)后比较
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> normalized = new TreeMap<>();
+            map.forEach((k, v) -> normalized.put(k.toString(), normalize(v)));
+            return normalized;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> normalized = new ArrayList<>(list.size());
+            list.forEach(item -> normalized.add(normalize(item)));
+            return normalized;
+        }
+        return value instanceof Number number ? number.longValue() : value;
+    }
+
+    private static Map<String, Object> result(int rank, String memberId, long serverTime) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("rank", rank);
+        result.put("memberId", memberId);
+        result.put("serverTime", serverTime);
+        result.put("isFirst", rank == 1);
+        return result;
+    }
+
+    private static Map<String, Object> state(Long sessionId, int status, int currentQuestionIndex) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("id", sessionId);
+        state.put("status", status);
+        state.put("currentQuestionIndex", currentQuestionIndex);
+        state.put("questionCount", 10);
+        return state;
+    }
+
+    private static Map<String, Object> progress(Long userId, int answeredCount) {
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("userId", userId);
+        progress.put("answeredCount", answeredCount);
+        progress.put("timestamp", 1_700_000_000_000L);
+        return progress;
+    }
+}
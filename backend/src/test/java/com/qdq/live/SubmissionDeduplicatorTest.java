@@ -0,0 +1,52 @@
+package com.qdq.live;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 提交去重测试: 重复抢答返回第一次的时间，重复答题请求返回第一次的受理时间，开放下一题后重新记录
+ */
+class SubmissionDeduplicatorTest {
+
+    private static final Long SESSION_ID = 1L;
+    private static final Long QUESTION_ID = 1L;
+    private static final Long OTHER_QUESTION_ID = 2L;
+
+    @Test
+    void recordBuzzAndAnswer() {
+        SubmissionDeduplicator dedup = new SubmissionDeduplicator();
+        dedup.open(SESSION_ID, QUESTION_ID);
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.buzzTime(SESSION_ID, QUESTION_ID, "user:1"), "未抢答");
+        assertEquals(1_000L, dedup.recordBuzz(SESSION_ID, QUESTION_ID, "user:1", 1_000L), "首次抢答");
+        assertEquals(1_000L, dedup.recordBuzz(SESSION_ID, QUESTION_ID, "user:1", 1_050L), "重复抢答返回第一次的时间");
+        for (int member = 2; member <= 200; member++) {
+            dedup.recordBuzz(SESSION_ID, QUESTION_ID, "team:" + member, 1_000L + member);
+        }
+        assertEquals(1_200L, dedup.buzzTime(SESSION_ID, QUESTION_ID, "team:200"), "槽位扩容后的抢答时间");
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.buzzTime(SESSION_ID, OTHER_QUESTION_ID, "user:1"),
+                "其他题目未记录");
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.recordAnswer(SESSION_ID, QUESTION_ID, "r-1", 2_000L),
+                "首次答题请求");
+        assertEquals(2_000L, dedup.recordAnswer(SESSION_ID, QUESTION_ID, "r-1", 2_050L), "重复答题请求返回第一次的受理时间");
+    }
+
+    @Test
+    void openNextQuestion() {
+        SubmissionDeduplicator dedup = new SubmissionDeduplicator();
+        dedup.open(SESSION_ID, QUESTION_ID);
+        dedup.recordBuzz(SESSION_ID, QUESTION_ID, "user:1", 1_000L);
+        dedup.recordAnswer(SESSION_ID, QUESTION_ID, "r-1", 2_000L);
+        dedup.open(SESSION_ID, OTHER_QUESTION_ID);
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.buzzTime(SESSION_ID, OTHER_QUESTION_ID, "user:1"),
+                "下一题重新记录抢答");
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.buzzTime(SESSION_ID, QUESTION_ID, "user:1"),
+                "上一题记录已释放");
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.recordAnswer(SESSION_ID, OTHER_QUESTION_ID, "r-1", 3_000L),
+                "下一题答题请求");
+        dedup.recordBuzz(SESSION_ID, OTHER_QUESTION_ID, "user:1", 3_000L);
+        dedup.clear(SESSION_ID);
+        assertEquals(SubmissionDeduplicator.NOT_RECORDED, dedup.buzzTime(SESSION_ID, OTHER_QUESTION_ID, "user:1"),
+                "清除场次");
+    }
+}
@@ -0,0 +1,356 @@
+package com.qdq.mapper;
+
+import cn.hutool.crypto.SecureUtil;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.toolkit.GlobalConfigUtils;
+import com.qdq.common.PageRequest;
+import com.qdq.config.MybatisPlusConfig;
+import com.qdq.service.*;
+import com.qdq.util.PageUtil;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 查询形态清单测试(清单见 db/migration/V2__query_shape_indexes.sql)
+ * 在MySQL容器中执行 schema.sql 并写入样本数据，通过真实的Service/Mapper发出清单中的热点查询，
+ * 对每条实际执行的SQL做EXPLAIN，出现 filesort、全表扫描、全索引扫描、只用到 deleted 前缀的索引访问，
+ * 或读取过半数据行再回表过滤即失败；没有Docker时跳过
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class QueryShapeCatalogTest {
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("quiz_competition")
+            .withUsername("root")
+            .withPassword("test")
+            .withCommand("--character-set-server=utf8mb4", "--collation-server=utf8mb4_unicode_ci");
+
+    /** 游标分页的定位点(样本数据中间位置) */
+    private static final String CURSOR = PageUtil.encodeCursor(LocalDateTime.of(2024, 1, 20, 0, 0), 25000L);
+
+    private static final ExplainInterceptor EXPLAIN = new ExplainInterceptor();
+
+    /** 样本表 -> 行数(判断EXPLAIN的扫描行数占比) */
+    private static final Map<String, Long> TABLE_ROWS = new HashMap<>();
+
+    private static SingleConnectionDataSource dataSource;
+    private static SqlSession sqlSession;
+    private static QuestionService questionService;
+    private static QuestionDedupService dedupService;
+    private static QuestionSearchService searchService;
+    private static ImportExportService importExportService;
+    private static QuizBankService bankService;
+    private static SessionService sessionService;
+    private static UserService userService;
+    private static LeaderboardService leaderboardService;
+    private static SysFileBlobMapper blobMapper;
+    private static QuizQuestionMapper questionMapper;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword(), true);
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource("db/schema.sql"), StandardCharsets.UTF_8));
+            seed(connection);
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setCacheEnabled(false);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        GlobalConfig globalConfig = GlobalConfigUtils.getGlobalConfig(configuration);
+        globalConfig.setBanner(false);
+        globalConfig.getDbConfig()
+                .setLogicDeleteField("deleted")
+                .setLogicDeleteValue("1")
+                .setLogicNotDeleteValue("0");
+        configuration.addInterceptor(new MybatisPlusConfig().mybatisPlusInterceptor());
+        configuration.addInterceptor(EXPLAIN);
+        configuration.addMappers(QuizQuestionMapper.class.getPackageName());
+        sqlSession = new MybatisSqlSessionFactoryBuilder().build(configuration).openSession(true);
+
+        questionMapper = sqlSession.getMapper(QuizQuestionMapper.class);
+        blobMapper = sqlSession.getMapper(SysFileBlobMapper.class);
+        dedupService = new QuestionDedupService(questionMapper);
+        searchService = new QuestionSearchService(questionMapper);
+        questionService = new QuestionService(dedupService, new QuestionSamplerService(questionMapper),
+                searchService, sqlSession.getMapper(QuizBankMapper.class));
+        ReflectionTestUtils.setField(questionService, "baseMapper", questionMapper);
+        importExportService = new ImportExportService(questionService, dedupService);
+        ReflectionTestUtils.setField(importExportService, "exportPageSize", 1000);
+        bankService = new QuizBankService(questionService, dedupService, questionMapper);
+        ReflectionTestUtils.setField(bankService, "baseMapper", sqlSession.getMapper(QuizBankMapper.class));
+        sessionService = new SessionService(questionService, null, null, null, null);
+        ReflectionTestUtils.setField(sessionService, "baseMapper", sqlSession.getMapper(QuizSessionMapper.class));
+        userService = new UserService(null);
+        ReflectionTestUtils.setField(userService, "baseMapper", sqlSession.getMapper(SysUserMapper.class));
+        leaderboardService = new LeaderboardService(sqlSession.getMapper(QuizSessionParticipantMapper.class));
+        ReflectionTestUtils.setField(leaderboardService, "baseMapper",
+                sqlSession.getMapper(LeaderboardConfigMapper.class));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sqlSession != null) {
+            sqlSession.close();
+        }
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    static Stream<Arguments> catalog() {
+        List<Arguments> shapes = new ArrayList<>();
+        // 题目列表: 筛选条件组合 × (页码分页精确计数, 游标分页)
+        Object[][] filters = {
+                // bankId, categoryId, type, difficulty, status
+                {null, null, null, null, null},
+                {null, null, 3, null, null},
+                {null, null, null, 2, null},
+                {null, null, 3, 2, null},
+                {null, null, null, null, 1},
+                {null, null, 3, 2, 1},
+                {7L, null, null, null, null},
+                {7L, null, 3, null, 1},
+                {null, 2L, null, null, null},
+                {null, 2L, null, 3, null},
+        };
+        for (Object[] f : filters) {
+            String name = "QuestionService.page bank=" + f[0] + " category=" + f[1] + " type=" + f[2]
+                    + " difficulty=" + f[3] + " status=" + f[4];
+            shapes.add(shape(name + " (页码)", () -> questionService.page(offsetPage(),
+                    (Long) f[0], (Long) f[1], (Integer) f[2], (Integer) f[3], (Integer) f[4], null)));
+            shapes.add(shape(name + " (游标)", () -> questionService.page(cursorPage(),
+                    (Long) f[0], (Long) f[1], (Integer) f[2], (Integer) f[3], (Integer) f[4], null)));
+        }
+
+        shapes.add(shape("QuestionService.getRandomQuestions", () -> {
+            List<?> questions = questionService.getRandomQuestions(null, 3, 2, 10);
+            assertFalse(questions.isEmpty());
+        }));
+        shapes.add(shape("QuestionDedupService.loadIndex bank", () -> dedupService.buildReport(7L)));
+        shapes.add(shape("QuestionDedupService.loadIndex 未归属题库", () -> dedupService.buildReport(null)));
+        shapes.add(shape("QuestionSearchService.rebuild", () -> searchService.rebuild()));
+        shapes.add(shape("ImportExportService.exportQuestions bank", () -> importExportService.exportQuestions(
+                new ByteArrayOutputStream(), ExcelTypeEnum.XLSX, 7L, null, null, null, null)));
+        shapes.add(shape("ImportExportService.exportQuestions category+type", () ->
+                importExportService.exportQuestions(new ByteArrayOutputStream(), ExcelTypeEnum.XLSX,
+                        null, 2L, 3, null, null)));
+        shapes.add(shape("QuizQuestionMapper.countGroupByBank", () -> questionMapper.countGroupByBank()));
+
+        shapes.add(shape("QuizBankService.page status (页码)",
+                () -> bankService.page(offsetPage(), 1, null, null)));
+        shapes.add(shape("QuizBankService.page keyword (游标)",
+                () -> bankService.page(cursorPage(), null, null, "题库")));
+        shapes.add(shape("SessionService.page status (页码)", () -> sessionService.page(offsetPage(), 2, null)));
+        shapes.add(shape("SessionService.page (游标)", () -> sessionService.page(cursorPage(), null, null)));
+        shapes.add(shape("UserService.page status (页码)", () -> userService.page(offsetPage(), null, 1)));
+        shapes.add(shape("UserService.page keyword (游标)", () -> userService.page(cursorPage(), "seed", null)));
+
+        shapes.add(shape("LeaderboardService.getRealTimeLeaderboard",
+                () -> leaderboardService.getRealTimeLeaderboard(42L)));
+        shapes.add(shape("FileStorageService.deleteFile 引用计数",
+                () -> blobMapper.selectByHashForUpdate(sha256Of(42))));
+        shapes.add(shape("FileStorageService.reclaimUnreferenced", () -> blobMapper.selectUnreferencedIds(100)));
+        return shapes.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("catalog")
+    void queryUsesIndex(String name, QueryShape shape) throws Exception {
+        EXPLAIN.plans.clear();
+        shape.run();
+
+        assertFalse(EXPLAIN.plans.isEmpty(), "未捕获到SQL: " + name);
+        List<Plan> violations = EXPLAIN.plans.stream()
+                .filter(Plan::regressed)
+                .collect(Collectors.toList());
+        assertTrue(violations.isEmpty(), () -> name + " 出现filesort或全扫描:\n"
+                + violations.stream().map(Plan::toString).collect(Collectors.joining("\n")));
+    }
+
+    private static PageRequest offsetPage() {
+        PageRequest pageRequest = new PageRequest();
+        pageRequest.setPage(3);
+        pageRequest.setPageSize(20);
+        return pageRequest;
+    }
+
+    private static PageRequest cursorPage() {
+        PageRequest pageRequest = new PageRequest();
+        pageRequest.setPageSize(20);
+        pageRequest.setCursor(CURSOR);
+        return pageRequest;
+    }
+
+    private static Arguments shape(String name, QueryShape shape) {
+        return Arguments.of(name, shape);
+    }
+
+    private static String sha256Of(int value) {
+        return SecureUtil.sha256(String.valueOf(value));
+    }
+
+    /**
+     * 写入样本数据并更新统计信息(数据量足以让优化器按索引选择执行计划)
+     */
+    private static void seed(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE seed_digit (d INT PRIMARY KEY)");
+            statement.execute("INSERT INTO seed_digit VALUES (0),(1),(2),(3),(4),(5),(6),(7),(8),(9)");
+            statement.execute("CREATE TABLE seed_seq (n INT PRIMARY KEY) "
+                    + "SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 + f.d * 10000 + 1 AS n "
+                    + "FROM seed_digit a, seed_digit b, seed_digit c, seed_digit e, seed_digit f");
+
+            statement.execute("INSERT INTO sys_user (username, password_hash, name, status, created_at, deleted) "
+                    + "SELECT CONCAT('seed', n), 'x', CONCAT('用户', n), IF(n % 10 = 0, 0, 1), "
+                    + "'2024-01-01' + INTERVAL n MINUTE, IF(n % 20 = 0, 1, 0) FROM seed_seq WHERE n <= 5000");
+            statement.execute("INSERT INTO quiz_bank (name, status, is_disabled, created_at, deleted) "
+                    + "SELECT CONCAT('题库', n), IF(n % 10 = 0, 0, 1), IF(n % 15 = 0, 1, 0), "
+                    + "'2024-01-01' + INTERVAL n HOUR, IF(n % 20 = 0, 1, 0) FROM seed_seq WHERE n <= 300");
+            statement.execute("INSERT INTO quiz_question (bank_id, category_id, type, title, difficulty, status, "
+                    + "is_disabled, created_at, deleted) "
+                    + "SELECT IF(n % 50 = 0, NULL, 1 + n % 300), 1 + n % 5, 1 + n % 7, CONCAT('样本题目', n), "
+                    + "1 + n % 3, CASE WHEN n % 10 < 7 THEN 1 WHEN n % 10 < 9 THEN 0 ELSE 2 END, "
+                    + "IF(n % 25 = 0, 1, 0), '2024-01-01' + INTERVAL n MINUTE, IF(n % 20 = 0, 1, 0) "
+                    + "FROM seed_seq WHERE n <= 50000");
+            statement.execute("INSERT INTO quiz_session (name, status, created_at, deleted) "
+                    + "SELECT CONCAT('场次', n), n % 5, '2024-01-01' + INTERVAL n MINUTE, IF(n % 20 = 0, 1, 0) "
+                    + "FROM seed_seq WHERE n <= 3000");
+            statement.execute("INSERT INTO quiz_session_participant (session_id, user_id, total_score) "
+                    + "SELECT 1 + n % 3000, n, n % 100 FROM seed_seq WHERE n <= 60000");
+            statement.execute("INSERT INTO quiz_leaderboard_config (session_id, leaderboard_name) "
+                    + "SELECT n, CONCAT('排行榜', n) FROM seed_seq WHERE n <= 3000");
+            statement.execute("INSERT INTO sys_file (file_name, file_path, content_hash, deleted) "
+                    + "SELECT CONCAT('file', n), CONCAT('/data/file', n), SHA2(n % 5000, 256), IF(n % 20 = 0, 1, 0) "
+                    + "FROM seed_seq WHERE n <= 20000");
+            statement.execute("INSERT INTO sys_file_blob (content_hash, file_path, ref_count) "
+                    + "SELECT SHA2(n, 256), CONCAT('/data/blob', n), IF(n % 100 = 0, 0, 1 + n % 4) "
+                    + "FROM seed_seq WHERE n <= 5000");
+
+            statement.execute("DROP TABLE seed_seq, seed_digit");
+            statement.execute("ANALYZE TABLE sys_user, quiz_bank, quiz_question, quiz_session, "
+                    + "quiz_session_participant, quiz_leaderboard_config, sys_file, sys_file_blob");
+            for (String table : List.of("sys_user", "quiz_bank", "quiz_question", "quiz_session",
+                    "quiz_session_participant", "quiz_leaderboard_config", "sys_file", "sys_file_blob")) {
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    rs.next();
+                    TABLE_ROWS.put(table, rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface QueryShape {
+        void run() throws Exception;
+    }
+
+    /**
+     * EXPLAIN中的一行
+     *
+     * @param tableRows 表的实际行数，非样本表(派生表等)为0
+     */
+    record Plan(String sql, String table, String type, String key, String keyLen, long rows, double filtered,
+                String extra, long tableRows) {
+
+        /** deleted 列(TINYINT，可为空)单独占用的索引长度: 1字节值 + 1字节NULL标记 */
+        static final String DELETED_KEY_LEN = "2";
+        /** 扫描行数超过表行数的该比例且仍需回表过滤时视为退化 */
+        static final double LARGE_SCAN_RATIO = 0.5;
+
+        /**
+         * 全表扫描(ALL)、需要额外排序(filesort)、没有LIMIT的全索引扫描(index)；
+         * 没有LIMIT的语句(如分页计数)只用到 deleted 前缀定位(key_len)，或扫描行数过半，且其余条件需回表过滤(filtered < 100)。
+         * 带LIMIT时按索引顺序扫描取满即停止，属于键集分页的正常计划
+         */
+        boolean regressed() {
+            boolean limited = sql.toUpperCase().contains(" LIMIT ");
+            boolean wideScan = DELETED_KEY_LEN.equals(keyLen) || (tableRows > 0 && rows > tableRows * LARGE_SCAN_RATIO);
+            return "ALL".equals(type)
+                    || ("index".equals(type) && !limited)
+                    || (extra != null && extra.contains("Using filesort"))
+                    || (!limited && wideScan && filtered < 100);
+        }
+
+        @Override
+        public String toString() {
+            return "table=" + table + ", type=" + type + ", key=" + key + ", key_len=" + keyLen + ", rows=" + rows
+                    + "/" + tableRows + ", filtered=" + filtered + ", extra=" + extra + "\n  " + sql;
+        }
+    }
+
+    /**
+     * 在SQL绑定参数后用同一连接、同一组参数执行EXPLAIN(分页插件的计数语句也会经过这里)
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "parameterize", args = Statement.class))
+    static class ExplainInterceptor implements Interceptor {
+
+        final List<Plan> plans = new ArrayList<>();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            String sql = handler.getBoundSql().getSql().trim();
+            if (!sql.regionMatches(true, 0, "SELECT", 0, 6)) {
+                return result;
+            }
+            Connection connection = ((Statement) invocation.getArgs()[0]).getConnection();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                handler.getParameterHandler().setParameters(explain);
+                try (ResultSet rs = explain.executeQuery()) {
+                    while (rs.next()) {
+                        String table = rs.getString("table");
+                        plans.add(new Plan(sql.replaceAll("\\s+", " "), table, rs.getString("type"),
+                                rs.getString("key"), rs.getString("key_len"), rs.getLong("rows"),
+                                rs.getDouble("filtered"), rs.getString("Extra"), TABLE_ROWS.getOrDefault(table, 0L)));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.qdq.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热点延迟直方图: Prometheus下按 histogram 输出累计桶，其他注册表输出次数与总耗时
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void prometheusHistogram() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().commonTags("application", "quiz");
+        QuizMetrics metrics = new QuizMetrics(registry);
+        metrics.recordBuzzAdmission("accepted", System.nanoTime() - 1_500);
+        metrics.recordBuzzAdmission("accepted", System.nanoTime() - 2_000_000_000L);
+        metrics.recordBuzzAdmission("locked", System.nanoTime());
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("# TYPE quiz_buzz_admission_seconds histogram"));
+        assertTrue(scrape.contains("quiz_buzz_admission_seconds_bucket{application=\"quiz\",outcome=\"accepted\",le=\"1.024E-6\",} 0.0"));
+        assertTrue(scrape.contains("quiz_buzz_admission_seconds_bucket{application=\"quiz\",outcome=\"accepted\",le=\"1.073741824\",} 1.0"));
+        assertTrue(scrape.contains("quiz_buzz_admission_seconds_bucket{application=\"quiz\",outcome=\"accepted\",le=\"+Inf\",} 2.0"));
+        assertTrue(scrape.contains("quiz_buzz_admission_seconds_count{application=\"quiz\",outcome=\"accepted\",} 2.0"));
+        assertTrue(scrape.contains("quiz_buzz_admission_seconds_count{application=\"quiz\",outcome=\"locked\",} 1.0"));
+        assertTrue(scrape.contains("# TYPE quiz_ws_send_seconds histogram"));
+    }
+
+    @Test
+    void otherRegistries() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QuizMetrics metrics = new QuizMetrics(registry);
+        metrics.sendFinished(metrics.sendStarted());
+        metrics.recordBuzzAdmission("duplicate", System.nanoTime());
+
+        assertEquals(1, registry.get("quiz.ws.send").functionTimer().count());
+        assertEquals(1, registry.get("quiz.buzz.admission").tag("outcome", "duplicate").functionTimer().count());
+    }
+}
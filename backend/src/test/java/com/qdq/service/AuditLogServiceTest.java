@@ -0,0 +1,65 @@
+package com.qdq.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 审计日志: 记录校验与续写前截断不完整记录
+ */
+class AuditLogServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void truncateTornTailBeforeAppend() throws Exception {
+        AuditLogService first = start();
+        first.buzz(1L, 10L, 100L, null, AuditLogService.OUTCOME_ACCEPTED, 1000L);
+        first.answer(1L, 10L, 100L, null, "A");
+        first.shutdown();
+
+        // 写入中断: 末尾留下半条记录
+        Path file = tempDir.resolve("audit-" + DateTimeFormatter.ofPattern("yyyyMMdd").format(LocalDate.now()) + ".bin");
+        long validSize = Files.size(file);
+        Files.write(file, new byte[]{0, 60, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        AuditLogService second = start();
+        second.buzz(1L, 10L, 200L, null, AuditLogService.OUTCOME_LOCKED, 2000L);
+        second.shutdown();
+
+        List<Map<String, Object>> events = second.read(LocalDate.now(), 1L, null, 100);
+        assertEquals(3, events.size(), "续写的记录不被半条记录挡住");
+        assertEquals("A", events.get(1).get("answer"));
+        assertEquals(200L, events.get(2).get("userId"));
+        assertEquals("locked", events.get(2).get("outcome"));
+
+        // 记录体被改写: 校验失败，只读出之前的记录
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{9}), validSize + 20);
+        }
+        assertEquals(2, second.read(LocalDate.now(), null, null, 100).size());
+    }
+
+    private AuditLogService start() {
+        AuditLogService service = new AuditLogService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "auditPath", tempDir.toString());
+        ReflectionTestUtils.setField(service, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 50L);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,97 @@
+package com.qdq.service;
+
+import com.qdq.entity.SysFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 媒体流式输出: Range校验与合并
+ */
+class MediaStreamServiceTest {
+
+    private static final int FILE_SIZE = 1000;
+
+    @TempDir
+    Path tempDir;
+
+    private byte[] content;
+    private SysFile sysFile;
+    private MediaStreamService streamService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = tempDir.resolve("media.bin");
+        Files.write(file, content);
+        sysFile = new SysFile();
+        sysFile.setId(1L);
+        sysFile.setFileName("media.mp4");
+        sysFile.setFilePath(file.toString());
+        sysFile.setMimeType("video/mp4");
+        streamService = new MediaStreamService(new MediaCacheService(null, null));
+    }
+
+    @Test
+    void rejectRepeatedWholeFileRanges() throws Exception {
+        MockHttpServletResponse response = stream("bytes=0-,0-,0-");
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + FILE_SIZE, response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void mergeOverlappingAndAdjacentRanges() throws Exception {
+        MockHttpServletResponse response = stream("bytes=100-199,0-49,50-99,150-249");
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-249/" + FILE_SIZE, response.getHeader("Content-Range"));
+        assertArrayEquals(slice(0, 250), response.getContentAsByteArray());
+    }
+
+    @Test
+    void multipartInAscendingOrder() throws Exception {
+        MockHttpServletResponse response = stream("bytes=500-509,0-9");
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String body = response.getContentAsString(StandardCharsets.ISO_8859_1);
+        assertTrue(body.indexOf("bytes 0-9/") < body.indexOf("bytes 500-509/"));
+    }
+
+    @Test
+    void tooManyPartsFallBackToFullFile() throws Exception {
+        StringBuilder range = new StringBuilder("bytes=");
+        for (int i = 0; i < 20; i++) {
+            range.append(i > 0 ? "," : "").append(i * 10).append('-').append(i * 10 + 1);
+        }
+        MockHttpServletResponse response = stream(range.toString());
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    private MockHttpServletResponse stream(String range) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/1");
+        request.addHeader("Range", range);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamService.stream(sysFile, false, request, response);
+        return response;
+    }
+
+    private byte[] slice(int from, int to) {
+        byte[] slice = new byte[to - from];
+        System.arraycopy(content, from, slice, 0, slice.length);
+        return slice;
+    }
+}
@@ -0,0 +1,96 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 题目去重索引: 加载期间的登记与移除在加载完成后重放
+ */
+class QuestionDedupServiceTest {
+
+    private static final Long BANK_ID = 1L;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), QuizQuestion.class);
+    }
+
+    @Test
+    void replayChangesDuringLoad() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        QuizQuestionMapper mapper = mock(QuizQuestionMapper.class);
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            assertTrue(releaseLoad.await(10, TimeUnit.SECONDS));
+            Page<QuizQuestion> page = invocation.getArgument(0);
+            page.setRecords(List.of(question(1L, BANK_ID, "我国第一部纪传体通史是哪一部"),
+                    question(2L, BANK_ID, "光年是什么单位")));
+            return page;
+        });
+        QuestionDedupService dedupService = new QuestionDedupService(mapper);
+
+        CompletableFuture<Integer> report = CompletableFuture.supplyAsync(
+                () -> dedupService.buildReport(BANK_ID).getQuestionCount());
+        assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+        // 加载读到的是旧数据: 题目3在读取后新增，题目2在读取后删除，题目1在读取后移到其他题库
+        QuizQuestion added = question(3L, BANK_ID, "水的化学式是什么");
+        dedupService.register(added);
+        dedupService.remove(2L);
+        dedupService.register(question(1L, 9L, "我国第一部纪传体通史是哪一部"));
+        releaseLoad.countDown();
+
+        assertEquals(1, report.get(10, TimeUnit.SECONDS));
+        String fingerprint = dedupService.fingerprint(added);
+        assertEquals(3L, dedupService.findDuplicate(BANK_ID, fingerprint));
+        assertNull(dedupService.findDuplicate(BANK_ID, fingerprint, 3L));
+        assertNull(dedupService.findDuplicate(BANK_ID,
+                dedupService.fingerprint(question(2L, BANK_ID, "光年是什么单位"))));
+    }
+
+    @Test
+    void registerBeforeLoadIsReadFromDatabase() {
+        QuizQuestionMapper mapper = mock(QuizQuestionMapper.class);
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<QuizQuestion> page = invocation.getArgument(0);
+            page.setRecords(List.of(question(1L, BANK_ID, "光年是什么单位")));
+            return page;
+        });
+        QuestionDedupService dedupService = new QuestionDedupService(mapper);
+
+        // 索引未加载时登记不保留，首次访问从数据库完整加载
+        dedupService.register(question(5L, BANK_ID, "水的化学式是什么"));
+        assertEquals(1, dedupService.buildReport(BANK_ID).getQuestionCount());
+
+        dedupService.register(question(5L, BANK_ID, "水的化学式是什么"));
+        assertEquals(2, dedupService.buildReport(BANK_ID).getQuestionCount());
+        dedupService.dropBank(BANK_ID);
+        assertEquals(1, dedupService.buildReport(BANK_ID).getQuestionCount());
+    }
+
+    private static QuizQuestion question(Long id, Long bankId, String title) {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(id);
+        question.setBankId(bankId);
+        question.setTitle(title);
+        return question;
+    }
+}
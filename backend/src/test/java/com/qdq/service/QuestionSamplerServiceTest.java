@@ -0,0 +1,79 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 随机抽题索引: 重建期间的新增、禁用与删除在新索引上重放
+ */
+class QuestionSamplerServiceTest {
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), QuizQuestion.class);
+    }
+
+    @Test
+    void replayChangesDuringRebuild() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch rebuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseRebuild = new CountDownLatch(1);
+        QuizQuestionMapper mapper = mock(QuizQuestionMapper.class);
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() > 1) {
+                rebuildStarted.countDown();
+                assertTrue(releaseRebuild.await(10, TimeUnit.SECONDS));
+            }
+            Page<QuizQuestion> page = invocation.getArgument(0);
+            page.setRecords(List.of(question(1L, 1), question(2L, 1), question(3L, 1)));
+            return page;
+        });
+        QuestionSamplerService sampler = new QuestionSamplerService(mapper);
+        assertEquals(List.of(1L, 2L, 3L), sampleAll(sampler));
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(sampler::rebuild);
+        assertTrue(rebuildStarted.await(10, TimeUnit.SECONDS));
+        // 重建读到的是旧数据: 题目4在读取后发布，题目2在读取后删除，题目3在读取后下架
+        sampler.onSavedAll(List.of(question(4L, 1), question(3L, 0)));
+        sampler.onRemoved(List.of(2L));
+        assertEquals(List.of(1L, 4L), sampleAll(sampler), "重建期间旧索引照常更新");
+        releaseRebuild.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1L, 4L), sampleAll(sampler), "重建后保留重建期间的修改");
+    }
+
+    private static List<Long> sampleAll(QuestionSamplerService sampler) {
+        return sampler.sample(null, null, null, 100).stream().sorted().toList();
+    }
+
+    private static QuizQuestion question(Long id, int status) {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(id);
+        question.setCategoryId(1L);
+        question.setType(1);
+        question.setDifficulty(1);
+        question.setStatus(status);
+        question.setIsDisabled(0);
+        return question;
+    }
+}
@@ -0,0 +1,120 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.qdq.entity.QuizQuestion;
+import com.qdq.mapper.QuizQuestionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 题目检索: 字母数字词按前缀匹配，单个汉字经字-词项索引匹配，重建期间的修改在新索引上重放
+ */
+class QuestionSearchServiceTest {
+
+    private QuestionSearchService searchService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), QuizQuestion.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        QuizQuestionMapper mapper = mock(QuizQuestionMapper.class);
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<QuizQuestion> page = invocation.getArgument(0);
+            page.setRecords(List.of(
+                    question(1L, "JavaScript 中的闭包是什么"),
+                    question(2L, "Java 虚拟机的垃圾回收"),
+                    question(3L, "《史记》的作者是谁"),
+                    question(4L, "HTTP/2 与 HTTP2020 的区别")));
+            return page;
+        });
+        searchService = new QuestionSearchService(mapper);
+    }
+
+    @Test
+    void alphanumericPrefix() {
+        assertEquals(List.of(1L, 2L), sorted(search("java")));
+        assertEquals(List.of(1L), search("javascript"));
+        assertEquals(List.of(1L), search("JavaScr"));
+        assertEquals(List.of(), search("script"));
+        assertEquals(List.of(4L), search("http20"));
+        assertEquals(List.of(), search("javascriptframeworkbenchmark"));
+    }
+
+    @Test
+    void singleHanCharacter() {
+        assertEquals(List.of(3L), search("史"));
+        assertEquals(List.of(1L), search("闭"));
+        assertEquals(List.of(), search("汉"));
+
+        searchService.onRemoved(List.of(3L));
+        assertEquals(List.of(), search("史"));
+
+        searchService.onSaved(List.of(question(5L, "史")));
+        assertEquals(List.of(5L), search("史"));
+    }
+
+    @Test
+    void replayChangesDuringRebuild() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch rebuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseRebuild = new CountDownLatch(1);
+        QuizQuestionMapper mapper = mock(QuizQuestionMapper.class);
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() > 1) {
+                rebuildStarted.countDown();
+                assertTrue(releaseRebuild.await(10, TimeUnit.SECONDS));
+            }
+            Page<QuizQuestion> page = invocation.getArgument(0);
+            page.setRecords(List.of(question(1L, "光年是什么单位"), question(2L, "光速是多少")));
+            return page;
+        });
+        QuestionSearchService service = new QuestionSearchService(mapper);
+        assertEquals(List.of(1L, 2L), sorted(service.search("光", null, null, null, null, null)));
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(service::rebuild);
+        assertTrue(rebuildStarted.await(10, TimeUnit.SECONDS));
+        // 重建读到的是旧数据: 题目3在读取后新增，题目2在读取后删除
+        service.onSaved(List.of(question(3L, "光合作用的产物")));
+        service.onRemoved(List.of(2L));
+        assertEquals(List.of(1L, 3L), sorted(service.search("光", null, null, null, null, null)), "重建期间旧索引照常更新");
+        releaseRebuild.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1L, 3L), sorted(service.search("光", null, null, null, null, null)), "重建后保留重建期间的修改");
+    }
+
+    private List<Long> search(String keyword) {
+        return searchService.search(keyword, null, null, null, null, null);
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    private static QuizQuestion question(Long id, String title) {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(id);
+        question.setTitle(title);
+        return question;
+    }
+}
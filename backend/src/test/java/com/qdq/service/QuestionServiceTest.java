@@ -0,0 +1,82 @@
+package com.qdq.service;
+
+import com.qdq.entity.QuizQuestion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * 题目服务: 内存索引只在事务提交后同步
+ */
+class QuestionServiceTest {
+
+    private QuestionDedupService dedupService;
+    private QuestionSamplerService samplerService;
+    private QuestionSearchService searchService;
+    private QuestionService questionService;
+
+    @BeforeEach
+    void setUp() {
+        dedupService = mock(QuestionDedupService.class);
+        samplerService = mock(QuestionSamplerService.class);
+        searchService = mock(QuestionSearchService.class);
+        questionService = new QuestionService(dedupService, samplerService, searchService, null);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void indexesUpdatedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        List<QuizQuestion> batch = new ArrayList<>(List.of(question(1L)));
+        questionService.afterSaved(batch);
+        questionService.afterRemoved(List.of(2L));
+        // 调用方复用批次列表不影响提交后的同步
+        batch.clear();
+        verifyNoInteractions(dedupService, samplerService, searchService);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(dedupService).registerAll(List.of(question(1L)));
+        verify(samplerService).onSavedAll(List.of(question(1L)));
+        verify(searchService).onSaved(List.of(question(1L)));
+        verify(dedupService).removeAll(List.of(2L));
+        verify(samplerService).onRemoved(List.of(2L));
+        verify(searchService).onRemoved(List.of(2L));
+    }
+
+    @Test
+    void indexesUntouchedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        questionService.afterSaved(List.of(question(1L)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verifyNoInteractions(dedupService, samplerService, searchService);
+    }
+
+    @Test
+    void indexesUpdatedImmediatelyWithoutTransaction() {
+        questionService.afterSaved(List.of(question(1L)));
+        verify(dedupService).registerAll(anyCollection());
+        verify(samplerService).onSavedAll(anyCollection());
+        verify(searchService).onSaved(anyCollection());
+    }
+
+    private static QuizQuestion question(Long id) {
+        QuizQuestion question = new QuizQuestion();
+        question.setId(id);
+        return question;
+    }
+}
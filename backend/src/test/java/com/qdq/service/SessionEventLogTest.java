@@ -0,0 +1,146 @@
+package com.qdq.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 场次事件日志: 记录校验、续写不完整的分段、分段切换与归档后的写入
+ */
+class SessionEventLogTest {
+
+    private static final Long SESSION_ID = 1L;
+    /** 无payload记录: 长度与校验(8) + 记录体(33) */
+    private static final int RECORD_SIZE = 41;
+    private static final int FILE_HEADER_SIZE = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<SessionEventLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (SessionEventLog eventLog : opened) {
+            eventLog.shutdown();
+        }
+    }
+
+    @Test
+    void stopAtChecksumMismatch() throws Exception {
+        SessionEventLog eventLog = start(1 << 16);
+        for (int i = 1; i <= 3; i++) {
+            eventLog.appendAnswerProgress(SESSION_ID, 5L, i);
+        }
+        assertEquals(List.of(1L, 2L, 3L), progress(eventLog));
+
+        // 第三条记录的记录体被改写
+        write(segment(0), FILE_HEADER_SIZE + 2 * RECORD_SIZE + 20, new byte[]{0x7f});
+        assertEquals(List.of(1L, 2L), progress(eventLog));
+    }
+
+    @Test
+    void resumePartialSegment() throws Exception {
+        SessionEventLog first = start(1 << 16);
+        first.appendAnswerProgress(SESSION_ID, 5L, 1);
+        first.appendAnswerProgress(SESSION_ID, 5L, 2);
+        first.shutdown();
+
+        // 进程在写第三条记录时退出: 长度与校验已落盘，记录体只写了一半
+        ByteBuffer torn = ByteBuffer.allocate(20).putInt(33).putInt(0x12345678).put((byte) 6).putLong(1L);
+        write(segment(0), FILE_HEADER_SIZE + 2 * RECORD_SIZE, torn.array());
+
+        SessionEventLog second = start(1 << 16);
+        assertEquals(List.of(1L, 2L), progress(second), "不完整的记录及之后的内容不回放");
+        second.appendAnswerProgress(SESSION_ID, 5L, 3);
+        assertEquals(List.of(1L, 2L, 3L), progress(second), "续写覆盖不完整的记录");
+    }
+
+    @Test
+    void rollOverSegments() throws Exception {
+        int segmentBytes = FILE_HEADER_SIZE + 4 * RECORD_SIZE;
+        SessionEventLog first = start(segmentBytes);
+        for (int i = 0; i < 10; i++) {
+            first.appendAnswerProgress(SESSION_ID, 5L, i);
+        }
+        first.shutdown();
+        assertEquals(List.of("0.seg", "1.seg", "2.seg"), segmentNames());
+
+        // 重启后在最后一个分段上续写
+        SessionEventLog second = start(segmentBytes);
+        for (int i = 10; i < 13; i++) {
+            second.appendAnswerProgress(SESSION_ID, 5L, i);
+        }
+        assertEquals(List.of("0.seg", "1.seg", "2.seg", "3.seg"), segmentNames());
+        List<Long> expected = new ArrayList<>();
+        for (long i = 0; i < 13; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, progress(second));
+    }
+
+    @Test
+    void ignoreAppendsAfterArchive() throws Exception {
+        SessionEventLog eventLog = start(1 << 16);
+        eventLog.appendAnswerProgress(SESSION_ID, 5L, 1);
+        eventLog.archive(SESSION_ID);
+
+        // 归档后迟到的写入不重建 active 目录
+        eventLog.appendAnswerProgress(SESSION_ID, 5L, 2);
+        assertFalse(Files.exists(tempDir.resolve("active").resolve(String.valueOf(SESSION_ID))));
+        assertTrue(eventLog.activeSessionIds().isEmpty());
+        assertEquals(List.of(1L), progress(eventLog));
+
+        // 重新开赛后恢复记录
+        eventLog.open(SESSION_ID);
+        eventLog.appendAnswerProgress(SESSION_ID, 5L, 3);
+        assertEquals(List.of(3L), progress(eventLog));
+    }
+
+    private SessionEventLog start(int segmentBytes) {
+        SessionEventLog eventLog = new SessionEventLog();
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "logPath", tempDir.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(eventLog, "syncIntervalMs", 20L);
+        eventLog.init();
+        opened.add(eventLog);
+        return eventLog;
+    }
+
+    private static List<Long> progress(SessionEventLog eventLog) {
+        List<Long> answered = new ArrayList<>();
+        eventLog.replay(SESSION_ID, event -> answered.add(event.b()));
+        return answered;
+    }
+
+    private Path segment(int index) {
+        return tempDir.resolve("active").resolve(String.valueOf(SESSION_ID)).resolve(index + ".seg");
+    }
+
+    private List<String> segmentNames() throws Exception {
+        try (Stream<Path> children = Files.list(segment(0).getParent())) {
+            return children.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static void write(Path file, long position, byte[] bytes) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.qdq.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.qdq.entity.QuizSession;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 场次状态恢复: 回放事件日志，重复抢答保留第一次的时间，状态与数据库不一致时以数据库为准
+ */
+class SessionRecoveryServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SessionEventLog eventLog;
+    private SessionService sessionService;
+    private BuzzService buzzService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), QuizSession.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        eventLog = new SessionEventLog();
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "logPath", tempDir.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentBytes", 1 << 16);
+        ReflectionTestUtils.setField(eventLog, "syncIntervalMs", 20L);
+        eventLog.init();
+        sessionService = mock(SessionService.class);
+        buzzService = mock(BuzzService.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        eventLog.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replayLiveSessions() {
+        // 场次1: 日志停在进行中，数据库已暂停；客户端重试的抢答晚于第一次
+        eventLog.appendState(1L, 2, -1, null);
+        eventLog.appendState(1L, 2, 0, 10L);
+        eventLog.appendBuzzEvent(1L, 10L, SessionEventLog.BUZZ_OPEN, 0);
+        eventLog.appendBuzz(1L, 10L, "m1", 100L);
+        eventLog.appendBuzz(1L, 10L, "m2", 150L);
+        eventLog.appendBuzz(1L, 10L, "m1", 180L);
+        eventLog.appendBuzzEvent(1L, 10L, SessionEventLog.BUZZ_CLOSE, 1);
+        eventLog.appendBuzzResult(1L, 10L, List.of(
+                Map.of("memberId", "m1", "serverTime", 100L),
+                Map.of("memberId", "m2", "serverTime", 150L)));
+        eventLog.appendAnswerProgress(1L, 5L, 3);
+        eventLog.appendAnswerProgress(1L, 5L, 4);
+        // 场次2: 日志里的抢答属于上一题，数据库已切到下一题
+        eventLog.appendState(2L, 2, 0, 20L);
+        eventLog.appendBuzzEvent(2L, 20L, SessionEventLog.BUZZ_OPEN, 0);
+        eventLog.appendBuzz(2L, 20L, "m1", 100L);
+        // 场次3: 数据库中已结束，日志是结束时进程退出留下的
+        eventLog.appendState(3L, 2, 0, 30L);
+
+        QuizSession paused = session(1L, 3, 0, List.of(10L, 11L));
+        QuizSession moved = session(2L, 2, 1, List.of(20L, 21L));
+        when(sessionService.list(any(Wrapper.class))).thenReturn(List.of(paused, moved));
+        new SessionRecoveryService(eventLog, sessionService, buzzService).recoverLiveSessions();
+
+        ArgumentCaptor<Map<String, Long>> buzzes = ArgumentCaptor.forClass(Map.class);
+        verify(buzzService).restoreBuzzState(eq(1L), eq(10L), buzzes.capture(), eq(1),
+                eq(List.of(Map.entry("m1", 100L), Map.entry("m2", 150L))));
+        assertEquals(new ArrayList<>(List.of(Map.entry("m1", 100L), Map.entry("m2", 150L))),
+                new ArrayList<>(buzzes.getValue().entrySet()), "重复抢答保留第一次的时间");
+        verify(sessionService).restoreLiveState(paused, new LinkedHashMap<>(Map.of(5L, 4)));
+        assertEquals(3, paused.getStatus(), "以数据库状态为准");
+
+        verify(buzzService, never()).restoreBuzzState(eq(2L), any(), any(), anyInt(), any());
+        verify(sessionService).restoreLiveState(eq(moved), any());
+
+        assertFalse(Files.exists(tempDir.resolve("active").resolve("3")));
+        assertTrue(Files.isDirectory(tempDir.resolve("archive").resolve("3")), "已结束场次的遗留日志归档");
+    }
+
+    private static QuizSession session(Long id, int status, int currentQuestionIndex, List<Long> questionIds) {
+        QuizSession session = new QuizSession();
+        session.setId(id);
+        session.setStatus(status);
+        session.setCurrentQuestionIndex(currentQuestionIndex);
+        session.setQuestionIds(questionIds);
+        return session;
+    }
+}
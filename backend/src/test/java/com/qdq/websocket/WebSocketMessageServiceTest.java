@@ -0,0 +1,54 @@
+package com.qdq.websocket;
+
+import com.qdq.metrics.QuestionTracer;
+import com.qdq.metrics.QuizMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 场次订阅与连接数指标: 订阅清空或场次释放后同时移除订阅集合与指标
+ */
+class WebSocketMessageServiceTest {
+
+    private static final String GAUGE = "quiz.ws.session.connections";
+
+    private SimpleMeterRegistry registry;
+    private WebSocketMessageService messageService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        messageService = new WebSocketMessageService(new QuizMetrics(registry), new QuestionTracer());
+    }
+
+    @Test
+    void removeGaugeWhenLastSubscriberLeaves() {
+        messageService.subscribeSession("ws-1", 7L, null);
+        messageService.subscribeSession("ws-2", 7L, null);
+        assertEquals(2, registry.get(GAUGE).tag("sessionId", "7").gauge().value());
+
+        messageService.unsubscribeSession("ws-1", 7L);
+        assertEquals(1, registry.get(GAUGE).tag("sessionId", "7").gauge().value());
+
+        messageService.unsubscribeSession("ws-2", 7L);
+        assertNull(registry.find(GAUGE).tag("sessionId", "7").gauge());
+        assertEquals(0, messageService.getSessionOnlineCount(7L));
+
+        messageService.subscribeSession("ws-1", 7L, null);
+        assertEquals(1, registry.get(GAUGE).tag("sessionId", "7").gauge().value());
+    }
+
+    @Test
+    void releaseSession() {
+        messageService.subscribeSession("ws-1", 7L, null);
+        messageService.subscribeSession("ws-1", 8L, null);
+        messageService.releaseSession(7L);
+        assertNull(registry.find(GAUGE).tag("sessionId", "7").gauge());
+        assertEquals(0, messageService.getSessionOnlineCount(7L));
+        assertEquals(1, registry.get(GAUGE).tag("sessionId", "8").gauge().value());
+    }
+}
@@ -148,16 +148,18 @@ export class WebSocketService {
 
   /**
    * 抢答
+   * @param requestId 可选，客户端生成，重试同一次抢答时保持不变
    */
-  buzz(sessionId: number, questionId: number, userId?: number, teamId?: number) {
-    return this.send('client_buzz', { sessionId, questionId, userId, teamId })
+  buzz(sessionId: number, questionId: number, userId?: number, teamId?: number, requestId?: string) {
+    return this.send('client_buzz', { sessionId, questionId, userId, teamId, requestId })
   }
 
   /**
    * 提交答案
+   * @param requestId 可选，客户端生成，重试同一次提交时保持不变
    */
-  submitAnswer(sessionId: number, questionId: number, answer: any) {
-    return this.send('submit_answer', { sessionId, questionId, answer })
+  submitAnswer(sessionId: number, questionId: number, answer: any, requestId?: string) {
+    return this.send('submit_answer', { sessionId, questionId, answer, requestId })
   }
 
   /**